@@ -8,6 +8,7 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.apache.http.HttpHost;
 import org.elasticsearch.client.RestClient;
 import org.elasticsearch.client.RestClientBuilder;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
@@ -15,9 +16,10 @@ import org.springframework.context.annotation.Configuration;
 public class ElasticsearchConfig {
 
     @Bean
-    public ElasticsearchClient elasticsearchClient(ObjectMapper objectMapper) {
+    public ElasticsearchClient elasticsearchClient(ObjectMapper objectMapper,
+                                                   @Value("${bankify.search.elasticsearch.url:http://localhost:9200}") String url) {
         RestClientBuilder builder = RestClient.builder(
-                        new HttpHost("localhost", 9200, "http")) // Switch to HTTP to avoid SSL configuration
+                        HttpHost.create(url)) // plain HTTP by default to avoid SSL configuration
                 .setRequestConfigCallback(requestConfigBuilder ->
                         requestConfigBuilder
                                 .setConnectTimeout(10000)
@@ -1,74 +1,156 @@
 package com.youcode.bankify.config;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
-import co.elastic.clients.elasticsearch.core.DeleteByQueryRequest;
-import co.elastic.clients.elasticsearch.core.DeleteByQueryResponse;
-import co.elastic.clients.elasticsearch.core.DeleteRequest;
-import co.elastic.clients.elasticsearch.core.DeleteResponse;
-import co.elastic.clients.elasticsearch.indices.CreateIndexRequest;
+import co.elastic.clients.elasticsearch._types.mapping.DynamicMapping;
 import co.elastic.clients.elasticsearch.indices.CreateIndexResponse;
 import co.elastic.clients.elasticsearch.indices.DeleteIndexRequest;
 import co.elastic.clients.elasticsearch.indices.ExistsRequest;
+import co.elastic.clients.elasticsearch.indices.get_mapping.IndexMappingRecord;
+import co.elastic.clients.elasticsearch.indices.update_aliases.Action;
+import co.elastic.clients.json.JsonData;
+import com.youcode.bankify.repository.elasticsearch.TransactionDocument;
+import com.youcode.bankify.repository.elasticsearch.TransactionIndices;
 import jakarta.annotation.PostConstruct;
+import lombok.Getter;
 import lombok.RequiredArgsConstructor;
-import org.springframework.beans.factory.annotation.Autowired;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 
+@Slf4j
 @Component
 @RequiredArgsConstructor
+@ConditionalOnProperty(name = "bankify.search.backend", havingValue = "elasticsearch", matchIfMissing = true)
 public class IndexInitializer {
 
     private final ElasticsearchClient elasticsearchClient;
 
+    /**
+     * Whether the monthly indices were missing at boot, in which case they have to be filled from Postgres.
+     */
+    @Getter
+    private boolean createdOnStartup;
+
     @PostConstruct
     public void createTransactionIndex() {
         try {
-            deleteIndexIfExists();
-            boolean exists = elasticsearchClient.indices().exists(
-                    ExistsRequest.of(e -> e.index("transactions"))
-            ).value();
+            putIndexTemplate();
+            boolean outdated = deleteOutdatedIndices();
+            boolean hadMonthlyIndices = !elasticsearchClient.indices()
+                    .get(g -> g.index(TransactionIndices.PATTERN).allowNoIndices(true))
+                    .result().isEmpty();
+            if (deleteLegacyIndex() || outdated || !hadMonthlyIndices) {
+                createdOnStartup = true;
+            }
+            rollover();
+        } catch (Exception e) {
+            log.error("Failed to create the transaction indices", e);
+        }
+    }
+
+    /**
+     * Make sure this month's and next month's indices exist and move the write alias to this month.
+     */
+    public void rollover() throws IOException {
+        YearMonth current = YearMonth.now(ZoneOffset.UTC);
+        String currentIndex = createIndexIfMissing(current);
+        createIndexIfMissing(current.plusMonths(1));
+
+        Set<String> holders = Set.of();
+        if (elasticsearchClient.indices().existsAlias(e -> e.name(TransactionIndices.WRITE_ALIAS)).value()) {
+            holders = elasticsearchClient.indices().getAlias(g -> g.name(TransactionIndices.WRITE_ALIAS)).result().keySet();
+        }
+        if (holders.equals(Set.of(currentIndex))) {
+            return;
+        }
+
+        List<Action> actions = new ArrayList<>();
+        for (String holder : holders) {
+            if (!holder.equals(currentIndex)) {
+                actions.add(Action.of(a -> a.remove(r -> r.index(holder).alias(TransactionIndices.WRITE_ALIAS))));
+            }
+        }
+        actions.add(Action.of(a -> a.add(ad -> ad.index(currentIndex).alias(TransactionIndices.WRITE_ALIAS).isWriteIndex(true))));
+        elasticsearchClient.indices().updateAliases(u -> u.actions(actions));
+        log.info("Write alias moved to {}", currentIndex);
+    }
 
-            if (!exists) {
+    public String createIndexIfMissing(YearMonth month) throws IOException {
+        String index = TransactionIndices.forMonth(month);
+        boolean exists = elasticsearchClient.indices().exists(ExistsRequest.of(e -> e.index(index))).value();
+        if (!exists) {
+            // mappings and the read alias come from the index template
+            CreateIndexResponse createIndexResponse = elasticsearchClient.indices().create(c -> c.index(index));
+            log.info("Index {} created: {}", index, createIndexResponse.acknowledged());
+        }
+        return index;
+    }
 
-                CreateIndexRequest request = new CreateIndexRequest.Builder()
-                        .index("transactions")
+    private void putIndexTemplate() throws IOException {
+        elasticsearchClient.indices().putIndexTemplate(t -> t
+                .name(TransactionIndices.TEMPLATE)
+                .indexPatterns(TransactionIndices.PATTERN)
+                .template(tm -> tm
                         .mappings(m -> m
-                                .properties("amount", p -> p.double_(d -> d))
+                                .dynamic(DynamicMapping.False)
+                                .meta(TransactionIndices.SCHEMA_VERSION_META, JsonData.of(TransactionIndices.SCHEMA_VERSION))
+                                .properties("id", p -> p.long_(l -> l))
+                                .properties("amount", p -> p.scaledFloat(f -> f.scalingFactor(Math.pow(10, TransactionDocument.AMOUNT_SCALE))))
                                 .properties("type", p -> p.keyword(k -> k))
                                 .properties("status", p -> p.keyword(k -> k))
                                 .properties("date", p -> p.date(d -> d.format("strict_date_time||epoch_millis")))
-                                .properties("bankAccount", p -> p.object(o -> o))
-                                .properties("user", p -> p.object(o -> o))
+                                .properties("accountNumber", p -> p.keyword(k -> k))
+                                .properties("ownerUsername", p -> p.keyword(k -> k))
+                                .properties("counterparty", p -> p.keyword(k -> k))
                         )
-                        .build();
+                        .aliases(TransactionIndices.READ_ALIAS, a -> a)));
+    }
 
-                CreateIndexResponse createIndexResponse = elasticsearchClient.indices().create(request);
-                System.out.println("Index created: " + createIndexResponse.acknowledged());
-            } else {
-                System.out.println("Index 'transactions' already exists.");
+    /**
+     * Drop monthly indices whose mapping predates the current schema version.
+     * Their documents are rebuilt from Postgres.
+     */
+    private boolean deleteOutdatedIndices() throws IOException {
+        Map<String, IndexMappingRecord> mappings = elasticsearchClient.indices()
+                .getMapping(g -> g.index(TransactionIndices.PATTERN).allowNoIndices(true))
+                .result();
+        boolean deleted = false;
+        for (Map.Entry<String, IndexMappingRecord> entry : mappings.entrySet()) {
+            JsonData version = entry.getValue().mappings().meta().get(TransactionIndices.SCHEMA_VERSION_META);
+            if (version == null || version.to(Integer.class) != TransactionIndices.SCHEMA_VERSION) {
+                elasticsearchClient.indices().delete(d -> d.index(entry.getKey()));
+                log.warn("Index {} has an outdated mapping and was deleted", entry.getKey());
+                deleted = true;
             }
-        } catch (Exception e) {
-            System.err.println("Failed to create index: " + e.getMessage());
-            e.printStackTrace();
         }
+        return deleted;
     }
 
-    public void deleteIndexIfExists() {
-        try {
-            boolean exists = elasticsearchClient.indices().exists(
-                    ExistsRequest.of(e -> e.index("transactions"))
-            ).value();
+    /**
+     * Drop the single concrete {@code transactions} index used before monthly indices, so its name
+     * can be taken by the read alias. Its documents are rebuilt from Postgres.
+     */
+    private boolean deleteLegacyIndex() throws IOException {
+        boolean exists = elasticsearchClient.indices().exists(
+                ExistsRequest.of(e -> e.index(TransactionIndices.READ_ALIAS))
+        ).value();
+        boolean isAlias = elasticsearchClient.indices().existsAlias(e -> e.name(TransactionIndices.READ_ALIAS)).value();
 
-            if (exists) {
-                DeleteIndexRequest deleteRequest = DeleteIndexRequest.of(d -> d.index("transactions"));
-                elasticsearchClient.indices().delete(deleteRequest);
-                System.out.println("Index 'transactions' deleted.");
-            }
-        } catch (Exception e) {
-            System.err.println("Failed to delete index: " + e.getMessage());
-            e.printStackTrace();
+        if (exists && !isAlias) {
+            DeleteIndexRequest deleteRequest = DeleteIndexRequest.of(d -> d.index(TransactionIndices.READ_ALIAS));
+            elasticsearchClient.indices().delete(deleteRequest);
+            log.warn("Legacy index 'transactions' deleted, its documents are rebuilt from Postgres");
+            return true;
         }
+        return false;
     }
 }
@@ -0,0 +1,35 @@
+package com.youcode.bankify.config;
+
+import com.youcode.bankify.filter.QueryBudgetFilter;
+import com.youcode.bankify.util.QueryCounter;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Per-request SQL statement budget, enabled with {@code bankify.query-budget.enabled=true}
+ * (on in the test profile).
+ */
+@Configuration
+@ConditionalOnProperty(name = "bankify.query-budget.enabled", havingValue = "true")
+public class QueryBudgetConfig {
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCounterCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, new QueryCounter());
+    }
+
+    @Bean
+    public FilterRegistrationBean<QueryBudgetFilter> queryBudgetFilter(
+            @Value("${bankify.query-budget.max-statements:20}") int maxStatements,
+            @Value("${bankify.query-budget.fail-on-exceed:false}") boolean failOnExceed) {
+        FilterRegistrationBean<QueryBudgetFilter> registration =
+                new FilterRegistrationBean<>(new QueryBudgetFilter(maxStatements, failOnExceed));
+        registration.addUrlPatterns("/api/*");
+        return registration;
+    }
+}
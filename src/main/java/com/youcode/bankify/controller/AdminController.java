@@ -1,14 +1,21 @@
 package com.youcode.bankify.controller;
 
 
+import com.youcode.bankify.dto.BulkIndexerStats;
 import com.youcode.bankify.dto.RegisterRequest;
+import com.youcode.bankify.dto.ScheduledRunStats;
 import com.youcode.bankify.dto.UpdatedUserRequest;
 import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.entity.ReindexCheckpoint;
 import com.youcode.bankify.entity.User;
+import com.youcode.bankify.repository.elasticsearch.BulkIndexer;
 import com.youcode.bankify.service.AdminService;
+import com.youcode.bankify.service.ScheduledTransferService;
+import com.youcode.bankify.service.SearchReindexService;
 import com.youcode.bankify.service.UserService;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
@@ -25,6 +32,9 @@ public class AdminController {
 
     private final AdminService adminService;
     private final UserService userService;
+    private final BulkIndexer bulkIndexer;
+    private final SearchReindexService searchReindexService;
+    private final ScheduledTransferService scheduledTransferService;
 
 
     @PreAuthorize("hasRole('ADMIN')")
@@ -75,6 +85,36 @@ public class AdminController {
         return ResponseEntity.ok(summary);
     }
 
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/search/indexer-stats")
+    public ResponseEntity<BulkIndexerStats> getIndexerStats() {
+        return ResponseEntity.ok(bulkIndexer.getStats());
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @PostMapping("/search/reindex")
+    public ResponseEntity<?> startReindex() {
+        if (!searchReindexService.startFullRebuild()) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).body(Map.of("message", "A reindex is already running"));
+        }
+        return ResponseEntity.accepted().body(Map.of("message", "Reindex started"));
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/search/reindex")
+    public ResponseEntity<ReindexCheckpoint> getReindexStatus() {
+        return searchReindexService.getCheckpoint()
+                .map(ResponseEntity::ok)
+                .orElse(ResponseEntity.notFound().build());
+    }
+
+    @PreAuthorize("hasRole('ADMIN')")
+    @GetMapping("/scheduled-transfers/last-run")
+    public ResponseEntity<ScheduledRunStats> getScheduledTransferRun() {
+        ScheduledRunStats lastRun = scheduledTransferService.getLastRun();
+        return lastRun == null ? ResponseEntity.notFound().build() : ResponseEntity.ok(lastRun);
+    }
+
 
 
 
@@ -7,17 +7,25 @@ import com.youcode.bankify.entity.BankAccount;
 import com.youcode.bankify.entity.Invoice;
 import com.youcode.bankify.entity.Loan;
 import com.youcode.bankify.entity.Transaction;
+import com.youcode.bankify.service.ApprovalQueueStream;
 import com.youcode.bankify.service.EmployeeService;
+import com.youcode.bankify.service.ExportService;
 import com.youcode.bankify.service.UserService;
 import jakarta.servlet.http.HttpSession;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.OutputStream;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
@@ -32,6 +40,8 @@ public class EmployeeController {
 
     private final EmployeeService employeeService;
     private final UserService userService;
+    private final ApprovalQueueStream approvalQueueStream;
+    private final ExportService exportService;
 
 
 
@@ -124,6 +134,17 @@ public class EmployeeController {
         return ResponseEntity.ok(summary);
     }
 
+    /**
+     * Live approval queue: a "snapshot" event with the pending counts, then a "queue" event
+     * for every item entering or leaving the queue.
+     */
+    @GetMapping(value = "/approval-stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @PreAuthorize("hasRole('EMPLOYEE')")
+    public SseEmitter streamApprovalQueue(Authentication authentication) {
+        userService.getUserIdFromAuthentication(authentication);
+        return approvalQueueStream.subscribe(employeeService::getCurrentPendingCounts);
+    }
+
     private ResponseEntity<?> handleError(RuntimeException e) {
         ErrorResponse error = new ErrorResponse();
         error.setMessage(e.getMessage());
@@ -156,6 +177,49 @@ public class EmployeeController {
         return ResponseEntity.ok(loans);
     }
 
+    /**
+     * Streaming variants of the list endpoints above, for tables too large to load at once.
+     */
+    @GetMapping("/transactions/export")
+    @PreAuthorize("hasRole('EMPLOYEE')")
+    public ResponseEntity<?> exportTransactions(@RequestParam(defaultValue = "ndjson") String format, Authentication authentication) {
+        userService.getUserIdFromAuthentication(authentication);
+        return export("transactions", format, exportService::exportTransactions);
+    }
+
+    @GetMapping("/loans/export")
+    @PreAuthorize("hasRole('EMPLOYEE')")
+    public ResponseEntity<?> exportLoans(@RequestParam(defaultValue = "ndjson") String format, Authentication authentication) {
+        userService.getUserIdFromAuthentication(authentication);
+        return export("loans", format, exportService::exportLoans);
+    }
+
+    @GetMapping("/invoices/export")
+    @PreAuthorize("hasRole('EMPLOYEE')")
+    public ResponseEntity<?> exportInvoices(@RequestParam(defaultValue = "ndjson") String format, Authentication authentication) {
+        userService.getUserIdFromAuthentication(authentication);
+        return export("invoices", format, exportService::exportInvoices);
+    }
+
+    private ResponseEntity<?> export(String name, String format, Exporter exporter) {
+        ExportService.Format exportFormat;
+        try {
+            exportFormat = ExportService.Format.parse(format);
+        } catch (IllegalArgumentException e) {
+            return handleError(e);
+        }
+        StreamingResponseBody body = out -> exporter.export(exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(exportFormat.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + name + "." + exportFormat.getExtension() + "\"")
+                .body(body);
+    }
+
+    @FunctionalInterface
+    private interface Exporter {
+        void export(ExportService.Format format, OutputStream out) throws IOException;
+    }
+
     @GetMapping("/recent-transactions")
     @PreAuthorize("hasRole('EMPLOYEE')")
     public ResponseEntity<Map<String , Object>> getRecentTransactions(Authentication authentication) {
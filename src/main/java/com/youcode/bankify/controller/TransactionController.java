@@ -1,16 +1,25 @@
 package com.youcode.bankify.controller;
 
+import com.youcode.bankify.dto.ErrorResponse;
+import com.youcode.bankify.dto.SpendingAnalyticsResponse;
 import com.youcode.bankify.dto.TransactionSearchRequest;
-import com.youcode.bankify.entity.Transaction;
+import com.youcode.bankify.dto.TransactionSearchResponse;
+import com.youcode.bankify.service.TransactionAnalyticsService;
 import com.youcode.bankify.service.TransactionService;
+import com.youcode.bankify.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
 
-import java.util.List;
+import java.time.YearMonth;
 
 @RestController
 @RequestMapping("/api/transactions")
@@ -19,15 +28,43 @@ public class TransactionController {
     @Autowired
     private TransactionService transactionService;
 
+    @Autowired
+    private TransactionAnalyticsService transactionAnalyticsService;
+
+    @Autowired
+    private UserService userService;
+
+    /**
+     * Customers search their own accounts; employees and admins search every account.
+     */
     @PostMapping("/search")
-    public ResponseEntity<List<Transaction>> searchTransactions(@RequestBody TransactionSearchRequest searchRequest){
-        List<Transaction> result = transactionService.searchTransactions(
-                searchRequest.getAmount(),
-                searchRequest.getType(),
-                searchRequest.getStatus(),
-                searchRequest.getStartDate(),
-                searchRequest.getEndDate()
-        );
-        return ResponseEntity.ok(result);
+    @PreAuthorize("hasRole('USER') or hasRole('EMPLOYEE') or hasRole('ADMIN')")
+    public ResponseEntity<?> searchTransactions(@RequestBody TransactionSearchRequest searchRequest, Authentication authentication){
+        boolean staff = authentication.getAuthorities().stream()
+                .anyMatch(authority -> "ROLE_ADMIN".equals(authority.getAuthority()) || "ROLE_EMPLOYEE".equals(authority.getAuthority()));
+        try {
+            Long userId = staff ? null : userService.getUserIdFromAuthentication(authentication);
+            TransactionSearchResponse result = transactionService.searchTransactions(searchRequest, userId);
+            return ResponseEntity.ok(result);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
+    }
+
+    /**
+     * Monthly totals by type and status plus top counterparties across the caller's accounts.
+     */
+    @GetMapping("/analytics")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> getSpendingAnalytics(Authentication authentication,
+                                                  @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth from,
+                                                  @RequestParam(required = false) @DateTimeFormat(pattern = "yyyy-MM") YearMonth to){
+        Long userId = userService.getUserIdFromAuthentication(authentication);
+        try {
+            SpendingAnalyticsResponse analytics = transactionAnalyticsService.getSpendingAnalytics(userId, from, to);
+            return ResponseEntity.ok(analytics);
+        } catch (RuntimeException e) {
+            return ResponseEntity.badRequest().body(new ErrorResponse(e.getMessage()));
+        }
     }
 }
@@ -2,11 +2,14 @@ package com.youcode.bankify.controller;
 
 import com.youcode.bankify.dto.*;
 import com.youcode.bankify.entity.*;
+import com.youcode.bankify.exception.OperationPendingException;
+import com.youcode.bankify.exception.RetryableOperationException;
 import com.youcode.bankify.service.*;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataAccessException;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.security.core.Authentication;
@@ -28,6 +31,10 @@ public class UserController {
     private final LoanService loanService;
     private final TransactionService transactionService;
     private final ScheduledTransferService scheduledTransferService;
+    private final IdempotencyService idempotencyService;
+
+    public static final String NEXT_CURSOR_HEADER = "X-Next-Cursor";
+    private static final int MAX_HISTORY_PAGE_SIZE = 500;
 
 
 
@@ -80,31 +87,84 @@ public class UserController {
      */
     @GetMapping("/transactions")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<List<TransactionResponse>> getTransactionHistory(
+    public ResponseEntity<?> getTransactionHistory(
             Authentication authentication,
-            @RequestParam(defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int size) {
 
         Long userId = userService.getUserIdFromAuthentication(authentication);
-        List<TransactionResponse> transactions = userService.getTransactionHistory(userId, page, size);
-        return ResponseEntity.ok(transactions);
+        try {
+            return historyResponse(userService.getTransactionHistory(userId, cursor, validateHistorySize(size)));
+        } catch (IllegalArgumentException e) {
+            ErrorResponse error = new ErrorResponse();
+            error.setMessage(e.getMessage());
+            error.setTimestamp(java.time.LocalDateTime.now());
+            error.setStatus(400);
+            return ResponseEntity.badRequest().body(error);
+        }
     }
 
     @GetMapping("/accounts/{accountId}/transactions")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<List<TransactionResponse>> getTransactionsByAccount(
+    public ResponseEntity<?> getTransactionsByAccount(
             Authentication authentication,
             @PathVariable Long accountId,
-            @RequestParam (defaultValue = "0") int page,
+            @RequestParam(required = false) String cursor,
             @RequestParam(defaultValue = "10") int size) {
 
         Long userId = userService.getUserIdFromAuthentication(authentication);
         userService.verifyAccountOwnerShip(accountId, userId);
 
-        List<TransactionResponse> transactions = transactionService.getTransactionsByAccountId(accountId, page, size);
-        return ResponseEntity.ok(transactions);
+        try {
+            return historyResponse(transactionService.getTransactionsByAccountId(accountId, cursor, validateHistorySize(size)));
+        } catch (IllegalArgumentException e) {
+            ErrorResponse error = new ErrorResponse();
+            error.setMessage(e.getMessage());
+            error.setTimestamp(java.time.LocalDateTime.now());
+            error.setStatus(400);
+            return ResponseEntity.badRequest().body(error);
+        }
     }
 
+    /**
+     * The body stays a plain list; the cursor of the next page travels in {@code X-Next-Cursor}.
+     */
+    private ResponseEntity<List<TransactionResponse>> historyResponse(TransactionHistoryPage page) {
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok();
+        if (page.getNextCursor() != null) {
+            response.header(NEXT_CURSOR_HEADER, page.getNextCursor());
+        }
+        return response.body(page.getTransactions());
+    }
+
+    private int validateHistorySize(int size) {
+        if (size <= 0 || size > MAX_HISTORY_PAGE_SIZE) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + MAX_HISTORY_PAGE_SIZE);
+        }
+        return size;
+    }
+
+
+    /**
+     * Reconcile an account balance against the ledger.
+     */
+    @GetMapping("/accounts/{accountId}/ledger-balance")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> getLedgerBalance(
+            Authentication authentication,
+            @PathVariable Long accountId) {
+        Long userId = userService.getUserIdFromAuthentication(authentication);
+
+        try {
+            return ResponseEntity.ok(userService.getLedgerBalance(accountId, userId));
+        } catch (RuntimeException e) {
+            ErrorResponse error = new ErrorResponse();
+            error.setMessage(e.getMessage());
+            error.setTimestamp(java.time.LocalDateTime.now());
+            error.setStatus(400);
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
 
     @GetMapping("/accounts/{accountId}/scheduled-transfers")
     @PreAuthorize("hasRole('USER')")
@@ -128,9 +188,21 @@ public class UserController {
     @PreAuthorize("hasRole('USER')")
     public ResponseEntity<?> transferFunds(
             @RequestBody TransferRequest transferRequest,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
         Long userId = userService.getUserIdFromAuthentication(authentication);
 
+        return idempotencyService.execute(idempotencyKey, userId, "transfer", transferRequest, this::transferSuccessful,
+                () -> doTransferFunds(transferRequest, userId, authentication));
+    }
+
+    private ResponseEntity<?> transferSuccessful() {
+        Map<String,String> response = new HashMap<>();
+        response.put("message","Transfer successful");
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<?> doTransferFunds(TransferRequest transferRequest, Long userId, Authentication authentication) {
         try {
 
             BankAccount fromAccount = userService.getAccountWithBalanceCheck(
@@ -153,10 +225,35 @@ public class UserController {
                 return ResponseEntity.ok(response);
             } else {
                 userService.transferFunds(transferRequest, authentication);
-                Map<String,String> response = new HashMap<>();
-                response.put("message","Transfer successful");
-                return ResponseEntity.ok(response);
+                return transferSuccessful();
             }
+        } catch (OperationPendingException e) {
+            throw e.whenApplied(this::transferSuccessful);
+        } catch (RetryableOperationException | DataAccessException e) {
+            // not a final outcome: the idempotency key must stay retryable
+            throw e;
+        } catch (RuntimeException e) {
+            ErrorResponse error = new ErrorResponse();
+            error.setMessage(e.getMessage());
+            error.setTimestamp(java.time.LocalDateTime.now());
+            error.setStatus(400);
+            return ResponseEntity.badRequest().body(error);
+        }
+    }
+
+    /**
+     * Execute a batch of transfers, returning one result per item.
+     */
+    @PostMapping("/transfers/batch")
+    @PreAuthorize("hasRole('USER')")
+    public ResponseEntity<?> transferFundsBatch(
+            @RequestBody BatchTransferRequest batchTransferRequest,
+            Authentication authentication) {
+        Long userId = userService.getUserIdFromAuthentication(authentication);
+
+        try {
+            BatchTransferResponse response = userService.transferFundsBatch(batchTransferRequest.getTransfers(), userId);
+            return ResponseEntity.ok(response);
         } catch (RuntimeException e) {
             ErrorResponse error = new ErrorResponse();
             error.setMessage(e.getMessage());
@@ -205,16 +302,28 @@ public class UserController {
      */
     @PostMapping("/deposit")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Map<String,String>> depositMoney(
+    public ResponseEntity<?> depositMoney(
             @RequestBody TransactionRequest transactionRequest,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
         Long userId = userService.getUserIdFromAuthentication(authentication);
 
+        return idempotencyService.execute(idempotencyKey, userId, "deposit", transactionRequest, this::depositSuccessful,
+                () -> doDepositMoney(transactionRequest, userId));
+    }
+
+    private ResponseEntity<Map<String,String>> depositSuccessful() {
+        Map<String,String> response = new HashMap<>();
+        response.put("message","Money deposited successfully");
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<Map<String,String>> doDepositMoney(TransactionRequest transactionRequest, Long userId) {
         try {
             userService.depositMoney(userId, transactionRequest.getAccountId(), transactionRequest.getAmount());
-            Map<String,String> response = new HashMap<>();
-            response.put("message","Money deposited successfully");
-            return ResponseEntity.ok(response);
+            return depositSuccessful();
+        } catch (RetryableOperationException | DataAccessException e) {
+            throw e;
         } catch (RuntimeException e) {
             Map<String,String> errorResponse  = new HashMap<>();
             errorResponse.put("message",e.getMessage());
@@ -229,16 +338,28 @@ public class UserController {
      */
     @PostMapping("/withdraw")
     @PreAuthorize("hasRole('USER')")
-    public ResponseEntity<Map<String,String>> withdrawMoney(
+    public ResponseEntity<?> withdrawMoney(
             @RequestBody TransactionRequest transactionRequest,
+            @RequestHeader(value = IdempotencyService.HEADER, required = false) String idempotencyKey,
             Authentication authentication) {
         Long userId = userService.getUserIdFromAuthentication(authentication);
 
+        return idempotencyService.execute(idempotencyKey, userId, "withdraw", transactionRequest, this::withdrawalSuccessful,
+                () -> doWithdrawMoney(transactionRequest, userId));
+    }
+
+    private ResponseEntity<Map<String,String>> withdrawalSuccessful() {
+        Map<String, String> response = new HashMap<>();
+        response.put("message", "Money withdrawn successfully");
+        return ResponseEntity.ok(response);
+    }
+
+    private ResponseEntity<Map<String,String>> doWithdrawMoney(TransactionRequest transactionRequest, Long userId) {
         try {
             userService.withdrawMoney(userId, transactionRequest.getAccountId(), transactionRequest.getAmount());
-            Map<String, String> response = new HashMap<>();
-            response.put("message", "Money withdrawn successfully");
-            return ResponseEntity.ok(response);
+            return withdrawalSuccessful();
+        } catch (RetryableOperationException | DataAccessException e) {
+            throw e;
         } catch (RuntimeException e) {
             Map<String, String> errorResponse = new HashMap<>();
             errorResponse.put("message", e.getMessage());
@@ -0,0 +1,62 @@
+package com.youcode.bankify.dto;
+
+import com.youcode.bankify.entity.Invoice;
+import com.youcode.bankify.entity.Loan;
+import com.youcode.bankify.entity.Transaction;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * A change of the employee approval queue: an item entered it ({@code pendingDelta = 1})
+ * or left it ({@code pendingDelta = -1}). Published inside the writing transaction and
+ * pushed to the employee stream once it commits.
+ */
+@Getter
+public class ApprovalQueueEvent {
+
+    public static final String TRANSACTION = "TRANSACTION";
+    public static final String LOAN = "LOAN";
+    public static final String INVOICE = "INVOICE";
+
+    private final String itemType;
+    private final Long itemId;
+    private final String status;
+    private final BigDecimal amount;
+    private final int pendingDelta;
+    private final LocalDateTime occurredAt;
+
+    private ApprovalQueueEvent(String itemType, Long itemId, String status, BigDecimal amount, int pendingDelta) {
+        this.itemType = itemType;
+        this.itemId = itemId;
+        this.status = status;
+        this.amount = amount;
+        this.pendingDelta = pendingDelta;
+        this.occurredAt = LocalDateTime.now();
+    }
+
+    public static ApprovalQueueEvent pending(Transaction transaction) {
+        return new ApprovalQueueEvent(TRANSACTION, transaction.getId(), transaction.getStatus(), transaction.getAmount(), 1);
+    }
+
+    public static ApprovalQueueEvent pending(Loan loan) {
+        return new ApprovalQueueEvent(LOAN, loan.getId(), loan.getStatus(), loan.getAmount(), 1);
+    }
+
+    public static ApprovalQueueEvent pending(Invoice invoice) {
+        return new ApprovalQueueEvent(INVOICE, invoice.getId(), invoice.getStatus(), invoice.getAmount(), 1);
+    }
+
+    public static ApprovalQueueEvent resolved(Transaction transaction) {
+        return new ApprovalQueueEvent(TRANSACTION, transaction.getId(), transaction.getStatus(), transaction.getAmount(), -1);
+    }
+
+    public static ApprovalQueueEvent resolved(Loan loan) {
+        return new ApprovalQueueEvent(LOAN, loan.getId(), loan.getStatus(), loan.getAmount(), -1);
+    }
+
+    public static ApprovalQueueEvent resolved(Invoice invoice) {
+        return new ApprovalQueueEvent(INVOICE, invoice.getId(), invoice.getStatus(), invoice.getAmount(), -1);
+    }
+}
@@ -0,0 +1,12 @@
+package com.youcode.bankify.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BatchTransferRequest {
+    private List<TransferRequest> transfers;
+}
@@ -0,0 +1,15 @@
+package com.youcode.bankify.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class BatchTransferResponse {
+    private int total;
+    private int succeeded;
+    private int failed;
+    private List<BatchTransferResult> results;
+}
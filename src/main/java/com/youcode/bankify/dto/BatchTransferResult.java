@@ -0,0 +1,20 @@
+package com.youcode.bankify.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BatchTransferResult {
+    private int index;
+    private String status; // SUCCESS, FAILED
+    private String message;
+
+    public BatchTransferResult() {}
+
+    public BatchTransferResult(int index, String status, String message) {
+        this.index = index;
+        this.status = status;
+        this.message = message;
+    }
+}
@@ -0,0 +1,17 @@
+package com.youcode.bankify.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class BulkIndexerStats {
+    private int queuedOperations;
+    private long queuedBytes;
+    private int inFlightRequests;
+    private long bulkRequests;
+    private long indexedOperations;
+    private long failedOperations;
+    private long lastFlushMillis;
+    private long averageFlushMillis;
+}
@@ -0,0 +1,14 @@
+package com.youcode.bankify.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+public class CounterpartyTotal {
+    private String accountNumber;
+    private long count;
+    private BigDecimal total;
+}
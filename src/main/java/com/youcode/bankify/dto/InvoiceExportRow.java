@@ -0,0 +1,11 @@
+package com.youcode.bankify.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One exported invoice, read as a projection so no entity is managed during an export.
+ */
+public record InvoiceExportRow(Long id, String invoiceNumber, String description, BigDecimal amount,
+                               String status, LocalDate dueDate, Long userId) {
+}
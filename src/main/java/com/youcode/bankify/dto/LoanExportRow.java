@@ -0,0 +1,11 @@
+package com.youcode.bankify.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * One exported loan, read as a projection so no entity is managed during an export.
+ */
+public record LoanExportRow(Long id, BigDecimal amount, Integer termInMonths, String status,
+                            LocalDateTime applicationDate, Long userId) {
+}
@@ -0,0 +1,16 @@
+package com.youcode.bankify.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.util.Map;
+
+@Getter
+@Setter
+public class MonthlySpending {
+    private String month;
+    private long count;
+    private Map<String, BigDecimal> totalsByType;
+    private Map<String, BigDecimal> totalsByStatus;
+}
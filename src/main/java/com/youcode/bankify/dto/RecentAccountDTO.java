@@ -0,0 +1,17 @@
+package com.youcode.bankify.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+
+@Getter
+@Setter
+public class RecentAccountDTO {
+    private Long id;
+    private String accountNumber;
+    private BigDecimal balance;
+    private String status;
+    private Long userId;
+    private String username;
+}
@@ -0,0 +1,17 @@
+package com.youcode.bankify.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Set;
+
+@Getter
+@Setter
+public class RecentUserDTO {
+    private Long id;
+    private String username;
+    private String firstName;
+    private String lastName;
+    private boolean enabled;
+    private Set<String> roles;
+}
@@ -0,0 +1,21 @@
+package com.youcode.bankify.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+@Getter
+@Setter
+public class ScheduledRunStats {
+    private OffsetDateTime startedAt;
+    private OffsetDateTime finishedAt;
+    private boolean running;
+    private long chunks;
+    private long dueTransfers;
+    private long succeeded;
+    private long failed;
+    private long retired;
+    private long durationMillis;
+    private int workers;
+}
@@ -0,0 +1,10 @@
+package com.youcode.bankify.dto;
+
+import java.time.OffsetDateTime;
+
+/**
+ * When a scheduled transfer falls due, as loaded into the timing wheel: its next execution date,
+ * or the retry time of a failed occurrence.
+ */
+public record ScheduledTransferDue(Long id, OffsetDateTime dueAt) {
+}
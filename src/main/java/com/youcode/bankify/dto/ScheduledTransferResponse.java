@@ -18,4 +18,8 @@ public class ScheduledTransferResponse {
     private String frequency;
     private OffsetDateTime nextExecutionDate;
     private OffsetDateTime endDate;
+    private String status;
+    private int attempts;
+    private OffsetDateTime retryAt;
+    private String lastError;
 }
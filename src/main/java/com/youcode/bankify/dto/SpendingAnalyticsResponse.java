@@ -0,0 +1,16 @@
+package com.youcode.bankify.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Getter
+@Setter
+public class SpendingAnalyticsResponse {
+    private String from;
+    private String to;
+    private List<MonthlySpending> months = new ArrayList<>();
+    private List<CounterpartyTotal> topCounterparties = new ArrayList<>();
+}
@@ -0,0 +1,11 @@
+package com.youcode.bankify.dto;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * One exported transaction, read as a projection so no entity is managed during an export.
+ */
+public record TransactionExportRow(Long id, BigDecimal amount, String type, String status, OffsetDateTime date,
+                                   String accountNumber, String counterpartyAccountNumber, Long userId) {
+}
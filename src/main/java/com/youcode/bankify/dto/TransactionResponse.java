@@ -13,6 +13,8 @@ public class TransactionResponse {
     private String otherPartyUsername;
     private String date;
     private String status;
+    private String accountNumber;
+    private String counterpartyAccountNumber;
 
 
 }
@@ -2,10 +2,10 @@ package com.youcode.bankify.dto;
 
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.List;
 
 @Getter
 @Setter
@@ -13,6 +13,12 @@ public class TransactionSearchRequest {
     private BigDecimal amount;
     private String type;
     private String status;
+    private BigDecimal minAmount;
+    private BigDecimal maxAmount;
+    private List<String> types;
+    private List<String> statuses;
     private LocalDateTime startDate;
     private LocalDateTime endDate;
+    private Integer size;
+    private String cursor;
 }
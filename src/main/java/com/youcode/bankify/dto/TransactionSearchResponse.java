@@ -0,0 +1,16 @@
+package com.youcode.bankify.dto;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class TransactionSearchResponse {
+    private List<TransactionResponse> transactions;
+    /**
+     * Cursor for the next page, null on the last page.
+     */
+    private String nextCursor;
+}
@@ -3,6 +3,8 @@ package com.youcode.bankify.dto;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.time.OffsetDateTime;
+
 @Setter
 @Getter
 public class TransferRequest {
@@ -12,5 +14,6 @@ public class TransferRequest {
     private double amount;
     private String transactionType;
     private String frequency;
+    private OffsetDateTime endDate;
 
 }
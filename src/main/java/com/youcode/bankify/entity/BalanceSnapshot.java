@@ -0,0 +1,35 @@
+package com.youcode.bankify.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Balance of a bank account as of one of its versions; every ledger entry posted against a
+ * later version is added on top of it to get the current balance.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "balance_snapshot")
+public class BalanceSnapshot {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "account_id", nullable = false)
+    private Long accountId;
+
+    @Column(name = "balance", nullable = false)
+    private BigDecimal balance;
+
+    @Column(name = "as_of", nullable = false)
+    private OffsetDateTime asOf;
+
+    @Column(name = "account_version", nullable = false)
+    private Long accountVersion;
+}
@@ -29,4 +29,8 @@ public class BankAccount {
 
     @Column(name = "status", nullable = false)
     private String status;
+
+    @Version
+    @Column(name = "version", nullable = false)
+    private Long version;
 }
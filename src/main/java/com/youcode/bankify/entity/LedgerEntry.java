@@ -0,0 +1,62 @@
+package com.youcode.bankify.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.Immutable;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * One immutable posting of the double-entry ledger.
+ * Positive amounts increase the balance of the posted account, negative amounts decrease it;
+ * the postings of a journal always sum to zero.
+ */
+@Entity
+@Getter
+@Immutable
+@Table(name = "ledger_entry")
+public class LedgerEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "ledger_entry_seq")
+    @SequenceGenerator(name = "ledger_entry_seq", sequenceName = "ledger_entry_seq", allocationSize = 50)
+    private Long id;
+
+    @Column(name = "journal_id", nullable = false, updatable = false)
+    private String journalId;
+
+    @Column(name = "ledger_account", nullable = false, updatable = false)
+    private String ledgerAccount;
+
+    @Column(name = "account_id", updatable = false)
+    private Long accountId;
+
+    @Column(name = "entry_type", nullable = false, updatable = false)
+    private String entryType;
+
+    @Column(name = "amount", nullable = false, updatable = false)
+    private BigDecimal amount;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private OffsetDateTime createdAt;
+
+    /**
+     * Version of the customer account read by the posting transaction, null for house accounts.
+     * Orders the postings of an account against its snapshots regardless of clocks or commit delays.
+     */
+    @Column(name = "account_version", updatable = false)
+    private Long accountVersion;
+
+    protected LedgerEntry() {}
+
+    public LedgerEntry(String journalId, String ledgerAccount, Long accountId, Long accountVersion, String entryType, BigDecimal amount, OffsetDateTime createdAt) {
+        this.journalId = journalId;
+        this.ledgerAccount = ledgerAccount;
+        this.accountId = accountId;
+        this.accountVersion = accountVersion;
+        this.entryType = entryType;
+        this.amount = amount;
+        this.createdAt = createdAt;
+    }
+}
@@ -0,0 +1,40 @@
+package com.youcode.bankify.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.OffsetDateTime;
+
+/**
+ * Progress of a search reindex: the highest transaction id already sent to the index.
+ * A run interrupted by a restart resumes from there instead of starting over.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "search_reindex_checkpoint")
+public class ReindexCheckpoint {
+
+    @Id
+    @Column(name = "name", nullable = false)
+    private String name;
+
+    @Column(name = "last_transaction_id", nullable = false)
+    private Long lastTransactionId;
+
+    @Column(name = "indexed_count", nullable = false)
+    private long indexedCount;
+
+    @Column(name = "status", nullable = false)
+    private String status;
+
+    @Column(name = "started_at", nullable = false)
+    private OffsetDateTime startedAt;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private OffsetDateTime completedAt;
+}
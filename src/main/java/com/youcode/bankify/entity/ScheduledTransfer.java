@@ -15,6 +15,10 @@ import java.time.OffsetDateTime;
 @Setter
 public class ScheduledTransfer {
 
+    public static final String ACTIVE = "ACTIVE";
+    public static final String COMPLETED = "COMPLETED";
+    public static final String FAILED = "FAILED";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -37,4 +41,34 @@ public class ScheduledTransfer {
     @Column
     private OffsetDateTime endDate;
 
+    /**
+     * Node executing this transfer, null when it is not claimed.
+     */
+    @Column(name = "lease_owner")
+    private String leaseOwner;
+
+    @Column(name = "lease_until")
+    private OffsetDateTime leaseUntil;
+
+    /**
+     * ACTIVE while it keeps running, COMPLETED once past its end date, FAILED when its next occurrence cannot be computed.
+     */
+    @Column(nullable = false)
+    private String status = ACTIVE;
+
+    /**
+     * Failed attempts at the current occurrence.
+     */
+    @Column(nullable = false)
+    private int attempts;
+
+    /**
+     * Earliest time the failed occurrence is tried again, null when it has not failed.
+     */
+    @Column(name = "retry_at")
+    private OffsetDateTime retryAt;
+
+    @Column(name = "last_error", length = 1000)
+    private String lastError;
+
 }
@@ -10,7 +10,6 @@ import com.youcode.bankify.util.serializer.LocalDateTimeDeserializer;
 import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
-import org.springframework.data.elasticsearch.annotations.Document;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
@@ -19,7 +18,6 @@ import java.time.OffsetDateTime;
 @Entity
 @Getter
 @Setter
-@Document(indexName = "transactions")
 @JsonIgnoreProperties(ignoreUnknown = true)
 @Table(name = "Transaction")
 public class Transaction {
@@ -27,7 +25,8 @@ public class Transaction {
 
 
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "transaction_seq")
+    @SequenceGenerator(name = "transaction_seq", sequenceName = "transaction_seq", allocationSize = 50)
     private Long id;
 
     @Column( name = "amount", nullable = false)
@@ -42,6 +41,9 @@ public class Transaction {
     @Column(name = "status" , nullable = true)
     private String status;
 
+    @Column(name = "counterparty_account_number")
+    private String counterpartyAccountNumber;
+
     @ManyToOne
     @JoinColumn(name = "bank_account_id", nullable = false)
     private BankAccount bankAccount;
@@ -0,0 +1,34 @@
+package com.youcode.bankify.entity;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+
+/**
+ * Materialized dashboard counters of one user, kept current by the writers that change them.
+ */
+@Entity
+@Getter
+@Setter
+@Table(name = "user_dashboard_summary")
+public class UserDashboardSummary {
+
+    @Id
+    @Column(name = "user_id", nullable = false)
+    private Long userId;
+
+    @Column(name = "total_balance", nullable = false)
+    private BigDecimal totalBalance;
+
+    @Column(name = "active_accounts", nullable = false)
+    private long activeAccounts;
+
+    @Column(name = "pending_transactions", nullable = false)
+    private long pendingTransactions;
+
+    @Column(name = "updated_at", nullable = false)
+    private OffsetDateTime updatedAt;
+}
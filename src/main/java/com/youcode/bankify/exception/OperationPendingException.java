@@ -0,0 +1,40 @@
+package com.youcode.bankify.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Supplier;
+
+/**
+ * The operation was queued but its outcome was not known in time; it may still be applied.
+ * {@code outcome} completes once it is, so the Idempotency-Key can be settled with the real result.
+ */
+@ResponseStatus(HttpStatus.ACCEPTED)
+public class OperationPendingException extends RetryableOperationException {
+
+    private final CompletableFuture<?> outcome;
+    private Supplier<ResponseEntity<?>> appliedResponse;
+
+    public OperationPendingException(String message, CompletableFuture<?> outcome) {
+        super(message);
+        this.outcome = outcome;
+    }
+
+    public CompletableFuture<?> getOutcome() {
+        return outcome;
+    }
+
+    /**
+     * Response to store for the request once the operation has been applied.
+     */
+    public OperationPendingException whenApplied(Supplier<ResponseEntity<?>> response) {
+        this.appliedResponse = response;
+        return this;
+    }
+
+    public Supplier<ResponseEntity<?>> getAppliedResponse() {
+        return appliedResponse;
+    }
+}
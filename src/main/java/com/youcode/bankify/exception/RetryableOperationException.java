@@ -0,0 +1,18 @@
+package com.youcode.bankify.exception;
+
+import org.springframework.http.HttpStatus;
+import org.springframework.web.bind.annotation.ResponseStatus;
+
+/**
+ * The operation was not applied because of a transient condition such as a busy account;
+ * retrying it, with the same Idempotency-Key, is safe.
+ */
+@ResponseStatus(HttpStatus.SERVICE_UNAVAILABLE)
+public class RetryableOperationException extends RuntimeException {
+    public RetryableOperationException(String message) {
+        super(message);
+    }
+    public RetryableOperationException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
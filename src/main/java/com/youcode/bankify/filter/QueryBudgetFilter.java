@@ -0,0 +1,73 @@
+package com.youcode.bankify.filter;
+
+import com.youcode.bankify.util.QueryCounter;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Flags requests issuing more SQL statements than the budget, which is how an N+1 shows up.
+ * Statements run on the request thread are counted, and so are those of work handed to the
+ * dashboard executor or the transfer sequencer. The count is left in the {@link #STATEMENTS_ATTRIBUTE}
+ * request attribute. In tests a breach fails the request while its response is not committed yet,
+ * and is always kept in {@link #getViolations()} so a test can fail on it; elsewhere it is logged.
+ */
+@Slf4j
+public class QueryBudgetFilter extends OncePerRequestFilter {
+
+    public static final String STATEMENTS_ATTRIBUTE = QueryBudgetFilter.class.getName() + ".statements";
+
+    private final int maxStatements;
+    private final boolean failOnExceed;
+    private final List<String> violations = new CopyOnWriteArrayList<>();
+
+    public QueryBudgetFilter(int maxStatements, boolean failOnExceed) {
+        this.maxStatements = maxStatements;
+        this.failOnExceed = failOnExceed;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain) throws ServletException, IOException {
+        QueryCounter.start();
+        int statements;
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            statements = QueryCounter.stop();
+        }
+        request.setAttribute(STATEMENTS_ATTRIBUTE, statements);
+
+        if (statements > maxStatements) {
+            String message = request.getMethod() + " " + request.getRequestURI() + " issued " + statements
+                    + " SQL statements, the query budget is " + maxStatements;
+            if (!failOnExceed) {
+                log.warn(message);
+                return;
+            }
+            violations.add(message);
+            if (!response.isCommitted()) {
+                throw new IllegalStateException(message);
+            }
+            // the body is already on its way to the client; the violation stays recorded for the test
+            log.error(message);
+        }
+    }
+
+    /**
+     * Breaches recorded when failing on them, oldest first.
+     */
+    public List<String> getViolations() {
+        return List.copyOf(violations);
+    }
+
+    public void clearViolations() {
+        violations.clear();
+    }
+}
@@ -0,0 +1,132 @@
+package com.youcode.bankify.repository.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkIngester;
+import co.elastic.clients.elasticsearch._helpers.bulk.BulkListener;
+import co.elastic.clients.elasticsearch.core.BulkRequest;
+import co.elastic.clients.elasticsearch.core.BulkResponse;
+import co.elastic.clients.elasticsearch.core.bulk.BulkResponseItem;
+import co.elastic.clients.elasticsearch.core.bulk.OperationType;
+import com.youcode.bankify.dto.BulkIndexerStats;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Shared bulk writer for the search index, built on the client's {@link BulkIngester}.
+ * Operations are buffered and flushed by count, byte size or age, with a bounded number of
+ * bulk requests in flight; once that bound is reached {@link #index} blocks, which pushes
+ * back on producers while Elasticsearch catches up. Each operation gets its own future.
+ */
+@Slf4j
+@Component
+public class BulkIndexer {
+
+    private final BulkIngester<CompletableFuture<Void>> ingester;
+    private final Map<Long, Long> flushStartedAt = new ConcurrentHashMap<>();
+    private final AtomicLong failedOperations = new AtomicLong();
+    private final AtomicLong flushCount = new AtomicLong();
+    private final AtomicLong totalFlushMillis = new AtomicLong();
+    private volatile long lastFlushMillis;
+
+    public BulkIndexer(ElasticsearchClient elasticsearchClient,
+                       @Value("${bankify.search.bulk.max-operations:1000}") int maxOperations,
+                       @Value("${bankify.search.bulk.max-bytes:5242880}") long maxBytes,
+                       @Value("${bankify.search.bulk.flush-interval-ms:1000}") long flushIntervalMs,
+                       @Value("${bankify.search.bulk.max-concurrent-requests:2}") int maxConcurrentRequests) {
+        this.ingester = BulkIngester.of(b -> b
+                .client(elasticsearchClient)
+                .maxOperations(maxOperations)
+                .maxSize(maxBytes)
+                .flushInterval(flushIntervalMs, TimeUnit.MILLISECONDS)
+                .maxConcurrentRequests(maxConcurrentRequests)
+                .listener(new Listener()));
+    }
+
+    public CompletableFuture<Void> index(String index, String id, Object document) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        ingester.add(op -> op.index(i -> i.index(index).id(id).document(document)), result);
+        return result;
+    }
+
+    public CompletableFuture<Void> delete(String index, String id) {
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        ingester.add(op -> op.delete(d -> d.index(index).id(id)), result);
+        return result;
+    }
+
+    /**
+     * Send whatever is buffered now instead of waiting for the flush interval.
+     */
+    public void flush() {
+        ingester.flush();
+    }
+
+    public BulkIndexerStats getStats() {
+        BulkIndexerStats stats = new BulkIndexerStats();
+        stats.setQueuedOperations(ingester.pendingOperations());
+        stats.setQueuedBytes(ingester.pendingOperationsSize());
+        stats.setInFlightRequests(ingester.pendingRequests());
+        stats.setBulkRequests(ingester.requestCount());
+        stats.setIndexedOperations(ingester.operationsCount());
+        stats.setFailedOperations(failedOperations.get());
+        stats.setLastFlushMillis(lastFlushMillis);
+        long flushes = flushCount.get();
+        stats.setAverageFlushMillis(flushes == 0 ? 0 : totalFlushMillis.get() / flushes);
+        return stats;
+    }
+
+    @PreDestroy
+    public void close() {
+        ingester.close();
+    }
+
+    private class Listener implements BulkListener<CompletableFuture<Void>> {
+
+        @Override
+        public void beforeBulk(long executionId, BulkRequest request, List<CompletableFuture<Void>> contexts) {
+            flushStartedAt.put(executionId, System.nanoTime());
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<CompletableFuture<Void>> contexts, BulkResponse response) {
+            recordFlush(executionId);
+            List<BulkResponseItem> items = response.items();
+            for (int i = 0; i < items.size(); i++) {
+                BulkResponseItem item = items.get(i);
+                boolean missingOnDelete = item.operationType() == OperationType.Delete && item.status() == 404;
+                if (item.error() != null && !missingOnDelete) {
+                    failedOperations.incrementAndGet();
+                    contexts.get(i).completeExceptionally(new RuntimeException(item.error().reason()));
+                } else {
+                    contexts.get(i).complete(null);
+                }
+            }
+        }
+
+        @Override
+        public void afterBulk(long executionId, BulkRequest request, List<CompletableFuture<Void>> contexts, Throwable failure) {
+            recordFlush(executionId);
+            failedOperations.addAndGet(contexts.size());
+            log.warn("Bulk request of {} operations failed: {}", contexts.size(), failure.getMessage());
+            contexts.forEach(context -> context.completeExceptionally(failure));
+        }
+
+        private void recordFlush(long executionId) {
+            Long startedAt = flushStartedAt.remove(executionId);
+            if (startedAt != null) {
+                lastFlushMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startedAt);
+                totalFlushMillis.addAndGet(lastFlushMillis);
+                flushCount.incrementAndGet();
+            }
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package com.youcode.bankify.repository.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import com.youcode.bankify.config.IndexInitializer;
+import com.youcode.bankify.entity.Transaction;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bankify.search.backend", havingValue = "elasticsearch", matchIfMissing = true)
+public class ElasticsearchTransactionIndexWriter implements TransactionIndexWriter {
+
+    private final BulkIndexer bulkIndexer;
+    private final ElasticsearchClient elasticsearchClient;
+    private final IndexInitializer indexInitializer;
+
+    @Value("${bankify.search.reindex.refresh-interval:1s}")
+    private String refreshInterval;
+
+    @Override
+    public CompletableFuture<Void> index(Transaction transaction) {
+        return bulkIndexer.index(TransactionIndices.forTransaction(transaction),
+                transaction.getId().toString(), TransactionDocument.from(transaction));
+    }
+
+    /**
+     * The month of a deleted row is unknown, so its document is removed through the read alias.
+     */
+    @Override
+    public CompletableFuture<Void> delete(Collection<Long> transactionIds) {
+        List<String> ids = transactionIds.stream().map(String::valueOf).toList();
+        try {
+            elasticsearchClient.deleteByQuery(d -> d
+                    .index(TransactionIndices.READ_ALIAS)
+                    .query(q -> q.ids(i -> i.values(ids))));
+            return CompletableFuture.completedFuture(null);
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        bulkIndexer.flush();
+    }
+
+    @Override
+    public boolean requiresFullLoad() {
+        return indexInitializer.isCreatedOnStartup();
+    }
+
+    @Override
+    public void beginBulkLoad() {
+        setRefreshInterval("-1");
+    }
+
+    @Override
+    public void endBulkLoad() {
+        setRefreshInterval(refreshInterval);
+        try {
+            elasticsearchClient.indices().refresh(r -> r.index(TransactionIndices.READ_ALIAS));
+        } catch (IOException e) {
+            throw new RuntimeException("Search index could not be refreshed", e);
+        }
+    }
+
+    private void setRefreshInterval(String interval) {
+        try {
+            elasticsearchClient.indices().putSettings(s -> s
+                    .index(TransactionIndices.READ_ALIAS)
+                    .settings(i -> i.refreshInterval(t -> t.time(interval))));
+        } catch (IOException e) {
+            throw new RuntimeException("Search index refresh interval could not be changed", e);
+        }
+    }
+}
@@ -0,0 +1,109 @@
+package com.youcode.bankify.repository.elasticsearch;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.aggregations.Aggregate;
+import co.elastic.clients.elasticsearch._types.aggregations.CalendarInterval;
+import co.elastic.clients.elasticsearch._types.aggregations.DateHistogramBucket;
+import co.elastic.clients.elasticsearch._types.aggregations.StringTermsBucket;
+import co.elastic.clients.elasticsearch.core.SearchResponse;
+import co.elastic.clients.json.JsonData;
+import com.youcode.bankify.dto.CounterpartyTotal;
+import com.youcode.bankify.dto.MonthlySpending;
+import com.youcode.bankify.dto.SpendingAnalyticsResponse;
+import com.youcode.bankify.util.DateUtils;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregations over the transaction index. Requests are sent with {@code size: 0}, so only
+ * bucket totals travel back, never documents.
+ */
+@Repository
+@RequiredArgsConstructor
+public class TransactionAnalyticsRepository {
+
+    private final ElasticsearchClient elasticsearchClient;
+
+    public SpendingAnalyticsResponse spendingByMonth(Collection<String> accountNumbers, LocalDateTime from,
+                                                     LocalDateTime to, int topCounterparties) throws IOException {
+        List<FieldValue> accounts = accountNumbers.stream().map(FieldValue::of).toList();
+
+        SearchResponse<Void> response = elasticsearchClient.search(s -> s
+                .index(TransactionIndices.forRange(from, to))
+                .ignoreUnavailable(true)
+                .allowNoIndices(true)
+                .size(0)
+                .query(q -> q.bool(b -> b
+                        .filter(f -> f.terms(t -> t.field("accountNumber").terms(v -> v.value(accounts))))
+                        .filter(f -> f.range(r -> r
+                                .field("date")
+                                .format("yyyy-MM-dd'T'HH:mm:ss")
+                                .gte(JsonData.of(DateUtils.formatLocalDateTime(from)))
+                                .lt(JsonData.of(DateUtils.formatLocalDateTime(to)))))))
+                .aggregations("months", a -> a
+                        .dateHistogram(h -> h
+                                .field("date")
+                                .calendarInterval(CalendarInterval.Month)
+                                .format("yyyy-MM"))
+                        .aggregations("by_type", sub -> sub
+                                .terms(t -> t.field("type"))
+                                .aggregations("total", sum -> sum.sum(m -> m.field("amount"))))
+                        .aggregations("by_status", sub -> sub
+                                .terms(t -> t.field("status"))
+                                .aggregations("total", sum -> sum.sum(m -> m.field("amount")))))
+                .aggregations("counterparties", a -> a
+                        .terms(t -> t.field("counterparty").size(topCounterparties))
+                        .aggregations("total", sum -> sum.sum(m -> m.field("amount")))),
+                Void.class);
+
+        SpendingAnalyticsResponse analytics = new SpendingAnalyticsResponse();
+        Aggregate months = response.aggregations().get("months");
+        Aggregate counterparties = response.aggregations().get("counterparties");
+        if (months == null || !months.isDateHistogram()) {
+            // no index matched the range
+            return analytics;
+        }
+        for (DateHistogramBucket bucket : months.dateHistogram().buckets().array()) {
+            MonthlySpending month = new MonthlySpending();
+            month.setMonth(bucket.keyAsString());
+            month.setCount(bucket.docCount());
+            month.setTotalsByType(totalsByKey(bucket.aggregations().get("by_type")));
+            month.setTotalsByStatus(totalsByKey(bucket.aggregations().get("by_status")));
+            analytics.getMonths().add(month);
+        }
+        for (StringTermsBucket bucket : termsBuckets(counterparties)) {
+            CounterpartyTotal counterparty = new CounterpartyTotal();
+            counterparty.setAccountNumber(bucket.key().stringValue());
+            counterparty.setCount(bucket.docCount());
+            counterparty.setTotal(toAmount(bucket.aggregations().get("total")));
+            analytics.getTopCounterparties().add(counterparty);
+        }
+        return analytics;
+    }
+
+    private Map<String, BigDecimal> totalsByKey(Aggregate terms) {
+        Map<String, BigDecimal> totals = new LinkedHashMap<>();
+        for (StringTermsBucket bucket : termsBuckets(terms)) {
+            totals.put(bucket.key().stringValue(), toAmount(bucket.aggregations().get("total")));
+        }
+        return totals;
+    }
+
+    private List<StringTermsBucket> termsBuckets(Aggregate terms) {
+        return terms != null && terms.isSterms() ? terms.sterms().buckets().array() : List.of();
+    }
+
+    private BigDecimal toAmount(Aggregate sum) {
+        return BigDecimal.valueOf(sum.sum().value()).setScale(TransactionDocument.AMOUNT_SCALE, RoundingMode.HALF_UP);
+    }
+}
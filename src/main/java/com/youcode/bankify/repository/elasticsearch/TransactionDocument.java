@@ -0,0 +1,51 @@
+package com.youcode.bankify.repository.elasticsearch;
+
+import com.youcode.bankify.entity.Transaction;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * What the search index stores for a transaction: only the fields we filter on or display.
+ * Amounts are kept at a fixed scale of two decimals and mapped as {@code scaled_float}, so range and
+ * term queries are exact.
+ */
+@Getter
+@Setter
+public class TransactionDocument {
+
+    public static final int AMOUNT_SCALE = 2;
+    public static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd'T'HH:mm:ss.SSSXXX");
+
+    private Long id;
+    private BigDecimal amount;
+    private String type;
+    private String status;
+    private String date;
+    private String accountNumber;
+    private String ownerUsername;
+    private String counterparty;
+
+    public static TransactionDocument from(Transaction transaction) {
+        TransactionDocument document = new TransactionDocument();
+        document.setId(transaction.getId());
+        document.setAmount(transaction.getAmount().setScale(AMOUNT_SCALE, RoundingMode.HALF_UP));
+        document.setType(transaction.getType());
+        document.setStatus(transaction.getStatus());
+        if (transaction.getDate() != null) {
+            document.setDate(transaction.getDate().withOffsetSameInstant(ZoneOffset.UTC).format(DATE_FORMAT));
+        }
+        document.setAccountNumber(transaction.getBankAccount().getAccountNumber());
+        document.setOwnerUsername(transaction.getUser().getUsername());
+        document.setCounterparty(transaction.getCounterpartyAccountNumber());
+        return document;
+    }
+
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(AMOUNT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,84 @@
+package com.youcode.bankify.repository.elasticsearch;
+
+import com.youcode.bankify.dto.TransactionSearchRequest;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.TreeSet;
+
+/**
+ * Normalized search criteria: exact amounts become a closed range, single and multi values are
+ * merged into sorted sets. Two requests asking for the same thing produce equal filters, which is
+ * what the search backends key their compiled query caches on. {@code accountNumbers} restricts the
+ * search to those accounts; it is null for an unscoped search.
+ */
+public record TransactionFilter(BigDecimal minAmount,
+                                BigDecimal maxAmount,
+                                List<String> types,
+                                List<String> statuses,
+                                LocalDateTime startDate,
+                                LocalDateTime endDate,
+                                List<String> accountNumbers) {
+
+    public static TransactionFilter from(TransactionSearchRequest request) {
+        return from(request, null);
+    }
+
+    public static TransactionFilter from(TransactionSearchRequest request, Collection<String> accountNumbers) {
+        BigDecimal min;
+        BigDecimal max;
+        if (request.getAmount() != null) {
+            min = scale(request.getAmount(), RoundingMode.HALF_UP);
+            max = min;
+        } else {
+            // bounds are narrowed to amounts that can actually be stored
+            min = scale(request.getMinAmount(), RoundingMode.CEILING);
+            max = scale(request.getMaxAmount(), RoundingMode.FLOOR);
+        }
+        if (min != null && max != null && min.compareTo(max) > 0) {
+            throw new IllegalArgumentException("minAmount must not be greater than maxAmount");
+        }
+        return new TransactionFilter(
+                min,
+                max,
+                merge(request.getType(), request.getTypes()),
+                merge(request.getStatus(), request.getStatuses()),
+                request.getStartDate(),
+                request.getEndDate(),
+                accountNumbers == null ? null : List.copyOf(new TreeSet<>(accountNumbers)));
+    }
+
+    /**
+     * Stable across nodes and restarts, unlike {@link #hashCode()}; binds search cursors to their filter.
+     */
+    public String fingerprint() {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-256").digest(toString().getBytes(StandardCharsets.UTF_8));
+            return HexFormat.of().formatHex(digest, 0, 8);
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static BigDecimal scale(BigDecimal amount, RoundingMode roundingMode) {
+        return amount == null ? null : amount.setScale(TransactionDocument.AMOUNT_SCALE, roundingMode);
+    }
+
+    private static List<String> merge(String single, List<String> values) {
+        TreeSet<String> merged = new TreeSet<>();
+        if (single != null) {
+            merged.add(single);
+        }
+        if (values != null) {
+            values.stream().filter(value -> value != null && !value.isBlank()).forEach(merged::add);
+        }
+        return List.copyOf(merged);
+    }
+}
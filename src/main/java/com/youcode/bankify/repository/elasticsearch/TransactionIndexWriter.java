@@ -0,0 +1,31 @@
+package com.youcode.bankify.repository.elasticsearch;
+
+import com.youcode.bankify.entity.Transaction;
+
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Write side of the transaction search backend, fed by the outbox relay and the reindex.
+ * Returned futures complete once the change is durable in the backend.
+ */
+public interface TransactionIndexWriter {
+
+    CompletableFuture<Void> index(Transaction transaction);
+
+    CompletableFuture<Void> delete(Collection<Long> transactionIds);
+
+    /**
+     * Push buffered changes now instead of waiting for the next background flush.
+     */
+    void flush();
+
+    /**
+     * Whether the backend started empty and has to be filled with a full reindex.
+     */
+    boolean requiresFullLoad();
+
+    void beginBulkLoad();
+
+    void endBulkLoad();
+}
@@ -0,0 +1,82 @@
+package com.youcode.bankify.repository.elasticsearch;
+
+import com.youcode.bankify.entity.Transaction;
+
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Naming of the monthly transaction indices ({@code transactions-yyyy.MM}) and their aliases.
+ * A document lives in the index of the month of its transaction date (UTC), so later updates of
+ * the same transaction always overwrite the same document.
+ */
+public final class TransactionIndices {
+
+    public static final String READ_ALIAS = "transactions";
+    public static final String WRITE_ALIAS = "transactions-write";
+    public static final String TEMPLATE = "transactions-template";
+    public static final String PATTERN = "transactions-*";
+    /**
+     * Bumped whenever the mapping changes incompatibly; indices built with another version are rebuilt.
+     */
+    public static final int SCHEMA_VERSION = 3;
+    public static final String SCHEMA_VERSION_META = "schema_version";
+
+    private static final String PREFIX = "transactions-";
+    private static final String UNDATED = PREFIX + "undated";
+    private static final DateTimeFormatter MONTH_FORMAT = DateTimeFormatter.ofPattern("yyyy.MM");
+    private static final int MAX_TARGETED_MONTHS = 36;
+
+    private TransactionIndices() {
+    }
+
+    public static String forMonth(YearMonth month) {
+        return PREFIX + month.format(MONTH_FORMAT);
+    }
+
+    public static String forTransaction(Transaction transaction) {
+        if (transaction.getDate() == null) {
+            return UNDATED;
+        }
+        return forMonth(YearMonth.from(transaction.getDate().withOffsetSameInstant(ZoneOffset.UTC)));
+    }
+
+    /**
+     * Month of a monthly index, or null for any other index matching the pattern.
+     */
+    public static YearMonth monthOf(String index) {
+        if (!index.startsWith(PREFIX)) {
+            return null;
+        }
+        try {
+            return YearMonth.parse(index.substring(PREFIX.length()), MONTH_FORMAT);
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Indices overlapping the given range; the read alias when the range is open or too wide
+     * to be worth listing.
+     */
+    public static List<String> forRange(LocalDateTime startDate, LocalDateTime endDate) {
+        if (startDate == null || endDate == null || endDate.isBefore(startDate)) {
+            return List.of(READ_ALIAS);
+        }
+        YearMonth first = YearMonth.from(startDate);
+        YearMonth last = YearMonth.from(endDate);
+        if (first.plusMonths(MAX_TARGETED_MONTHS).isBefore(last)) {
+            return List.of(READ_ALIAS);
+        }
+        List<String> indices = new ArrayList<>();
+        for (YearMonth month = first; !month.isAfter(last); month = month.plusMonths(1)) {
+            indices.add(forMonth(month));
+        }
+        return indices;
+    }
+}
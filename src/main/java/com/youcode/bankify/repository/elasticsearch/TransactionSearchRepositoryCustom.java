@@ -1,11 +1,13 @@
 package com.youcode.bankify.repository.elasticsearch;
 
-import com.youcode.bankify.entity.Transaction;
+import com.youcode.bankify.dto.TransactionSearchRequest;
+import com.youcode.bankify.dto.TransactionSearchResponse;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
-import java.util.List;
+import java.util.Collection;
 
 public interface TransactionSearchRepositoryCustom {
-    List<Transaction> searchByCriteria(BigDecimal amount, String type , String status, LocalDateTime startDate , LocalDateTime endDate);
+    /**
+     * Search transactions of the given accounts, or of every account when {@code accountNumbers} is null.
+     */
+    TransactionSearchResponse searchByCriteria(TransactionSearchRequest request, Collection<String> accountNumbers, int size);
 }
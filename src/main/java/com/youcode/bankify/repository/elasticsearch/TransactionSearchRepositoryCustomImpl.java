@@ -1,74 +1,186 @@
 package com.youcode.bankify.repository.elasticsearch;
 
 import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import co.elastic.clients.elasticsearch._types.ElasticsearchException;
 import co.elastic.clients.elasticsearch._types.FieldValue;
+import co.elastic.clients.elasticsearch._types.SortOrder;
 import co.elastic.clients.elasticsearch.core.SearchRequest;
 import co.elastic.clients.elasticsearch.core.SearchResponse;
 import co.elastic.clients.elasticsearch.core.search.Hit;
 import co.elastic.clients.json.JsonData;
-import com.youcode.bankify.entity.Transaction;
+import com.youcode.bankify.dto.TransactionSearchRequest;
+import com.youcode.bankify.dto.TransactionSearchResponse;
+import com.youcode.bankify.dto.TransactionResponse;
 import co.elastic.clients.elasticsearch._types.query_dsl.Query;
 import com.youcode.bankify.util.DateUtils;
+import com.youcode.bankify.util.SearchCursor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Repository;
 
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
+/**
+ * Transaction search paginated with a point-in-time and {@code search_after} on (date, id),
+ * so every page costs the same however deep the client walks.
+ */
 @Repository
+@ConditionalOnProperty(name = "bankify.search.backend", havingValue = "elasticsearch", matchIfMissing = true)
 public class TransactionSearchRepositoryCustomImpl implements TransactionSearchRepositoryCustom{
 
+    private static final String DATE_FORMAT = "yyyy-MM-dd'T'HH:mm:ss";
+    private static final List<String> RESPONSE_FIELDS = List.of(
+            "amount", "type", "status", "date", "accountNumber", "ownerUsername", "counterparty");
+
     @Autowired
     private ElasticsearchClient elasticsearchClient;
 
+    @Value("${bankify.search.pit-keep-alive:1m}")
+    private String pitKeepAlive;
+
+    @Value("${bankify.search.query-cache-size:256}")
+    private int queryCacheSize;
+
+    /**
+     * Built queries are immutable, so identical filters share one instance instead of rebuilding the tree.
+     */
+    private final Map<TransactionFilter, Query> queryCache = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<TransactionFilter, Query> eldest) {
+                    return size() > queryCacheSize;
+                }
+            });
+
     @Override
-    public List<Transaction> searchByCriteria(BigDecimal amount, String type, String status, LocalDateTime startDate, LocalDateTime endDate){
-        List<Transaction> transactions = new ArrayList<>();
+    public TransactionSearchResponse searchByCriteria(TransactionSearchRequest request, Collection<String> accountNumbers, int size){
+        TransactionFilter filter = TransactionFilter.from(request, accountNumbers);
+        String filterHash = filter.fingerprint();
+        SearchCursor cursor = request.getCursor() == null ? null : SearchCursor.decode(request.getCursor(), filterHash);
+        Query query = compiledQuery(filter);
+        TransactionSearchResponse page = new TransactionSearchResponse();
+        List<TransactionResponse> transactions = new ArrayList<>();
+        page.setTransactions(transactions);
 
         try{
-            List<Query> queries = new ArrayList<>();
-            if(amount != null){
-                queries.add(Query.of(q -> q
-                        .term(t -> t
-                                .field("amount")
-                                .value(FieldValue.of(amount.doubleValue())))));
-            }
-            if(type != null){
-                queries.add(Query.of(q -> q
-                        .term(t -> t
-                                .field("type")
-                                .value(FieldValue.of(type)))));
-            }
-            if(status != null){
-                queries.add(Query.of(q -> q
-                        .term(t -> t
-                                .field("status")
-                                .value(FieldValue.of(status)))));
+
+            String pitId = cursor != null
+                    ? cursor.pitId()
+                    : elasticsearchClient.openPointInTime(o -> o
+                            .index(TransactionIndices.forRange(request.getStartDate(), request.getEndDate()))
+                            .ignoreUnavailable(true)
+                            .keepAlive(t -> t.time(pitKeepAlive))).id();
+
+            SearchRequest.Builder searchBuilder = new SearchRequest.Builder()
+                    .pit(p -> p.id(pitId).keepAlive(t -> t.time(pitKeepAlive)))
+                    .size(size)
+                    .trackTotalHits(t -> t.enabled(false))
+                    .source(src -> src.filter(f -> f.includes(RESPONSE_FIELDS)))
+                    .sort(s -> s.field(f -> f.field("date").order(SortOrder.Desc)))
+                    .sort(s -> s.field(f -> f.field("id").order(SortOrder.Desc)))
+                    .query(query);
+            if (cursor != null) {
+                searchBuilder.searchAfter(FieldValue.of(cursor.date()), FieldValue.of(cursor.id()));
             }
-            if(startDate != null && endDate != null){
-                queries.add(Query.of(q -> q
-                        .range(r -> r
-                                .field("date")
-                                .gte(JsonData.of(DateUtils.formatLocalDateTime(startDate)))
-                                .lte(JsonData.of(DateUtils.formatLocalDateTime(endDate))))));
+
+            SearchResponse<TransactionDocument> searchResponse = elasticsearchClient.search(searchBuilder.build(), TransactionDocument.class);
+            List<Hit<TransactionDocument>> hits = searchResponse.hits().hits();
+            for(Hit<TransactionDocument> hit : hits){
+                transactions.add(toResponse(hit.source()));
             }
 
-            SearchRequest.Builder searchBuilder = new SearchRequest.Builder()
-                    .index("transactions")
-                    .query(q -> q
-                            .bool(b -> b
-                                    .must(queries)));
-
-            SearchResponse<Transaction> searchResponse = elasticsearchClient.search(searchBuilder.build(), Transaction.class);
-            for(Hit<Transaction> hit : searchResponse.hits().hits()){
-                transactions.add(hit.source());
+            // the point-in-time id may change between requests, always hand out the latest one
+            String nextPitId = searchResponse.pitId() != null ? searchResponse.pitId() : pitId;
+            if (hits.size() == size) {
+                List<FieldValue> sort = hits.get(hits.size() - 1).sort();
+                page.setNextCursor(new SearchCursor(filterHash, nextPitId, sort.get(0).longValue(), sort.get(1).longValue()).encode());
+            } else {
+                elasticsearchClient.closePointInTime(c -> c.id(nextPitId));
             }
+        }catch (ElasticsearchException e){
+            if (cursor != null && e.status() == 404) {
+                throw new IllegalArgumentException("Search cursor has expired, start the search again");
+            }
+            e.printStackTrace();
         }catch (Exception e){
             e.printStackTrace();
         }
-        return transactions;
+        return page;
+    }
+
+    private Query compiledQuery(TransactionFilter filter) {
+        Query query = queryCache.get(filter);
+        if (query == null) {
+            query = buildQuery(filter);
+            queryCache.put(filter, query);
+        }
+        return query;
+    }
+
+    /**
+     * All criteria go to filter context: nothing is scored and ES can cache each clause.
+     */
+    private Query buildQuery(TransactionFilter filter) {
+        List<Query> filters = new ArrayList<>();
+        if (filter.minAmount() != null || filter.maxAmount() != null) {
+            filters.add(Query.of(q -> q
+                    .range(r -> {
+                        r.field("amount");
+                        if (filter.minAmount() != null) {
+                            r.gte(JsonData.of(filter.minAmount()));
+                        }
+                        if (filter.maxAmount() != null) {
+                            r.lte(JsonData.of(filter.maxAmount()));
+                        }
+                        return r;
+                    })));
+        }
+        if (filter.accountNumbers() != null) {
+            filters.add(termsQuery("accountNumber", filter.accountNumbers()));
+        }
+        if (!filter.types().isEmpty()) {
+            filters.add(termsQuery("type", filter.types()));
+        }
+        if (!filter.statuses().isEmpty()) {
+            filters.add(termsQuery("status", filter.statuses()));
+        }
+        if (filter.startDate() != null || filter.endDate() != null) {
+            filters.add(Query.of(q -> q
+                    .range(r -> {
+                        r.field("date").format(DATE_FORMAT);
+                        if (filter.startDate() != null) {
+                            r.gte(JsonData.of(DateUtils.formatLocalDateTime(filter.startDate())));
+                        }
+                        if (filter.endDate() != null) {
+                            r.lte(JsonData.of(DateUtils.formatLocalDateTime(filter.endDate())));
+                        }
+                        return r;
+                    })));
+        }
+        return Query.of(q -> q.bool(b -> b.filter(filters)));
+    }
+
+    private Query termsQuery(String field, List<String> values) {
+        List<FieldValue> terms = values.stream().map(FieldValue::of).toList();
+        return Query.of(q -> q.terms(t -> t.field(field).terms(v -> v.value(terms))));
+    }
+
+    private TransactionResponse toResponse(TransactionDocument document) {
+        TransactionResponse dto = new TransactionResponse();
+        dto.setAmount(document.getAmount());
+        dto.setType(document.getType());
+        dto.setStatus(document.getStatus());
+        dto.setDate(document.getDate());
+        dto.setAccountNumber(document.getAccountNumber());
+        dto.setCounterpartyAccountNumber(document.getCounterparty());
+        dto.setOtherPartyUsername(document.getOwnerUsername());
+        return dto;
     }
 }
@@ -1,10 +1,16 @@
 package com.youcode.bankify.repository.jpa;
 
 import com.youcode.bankify.entity.BankAccount;
+import jakarta.persistence.LockModeType;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,4 +21,16 @@ public interface AccountRepository extends JpaRepository<BankAccount,Long> {
     List<BankAccount> findByUserId(Long userId);
     int countByStatus(String status);
     List<BankAccount> findTop5ByOrderByIdDesc();
+    List<BankAccount> findByIdInOrAccountNumberIn(Collection<Long> ids, Collection<String> accountNumbers);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT a FROM BankAccount a WHERE a.id = :id")
+    Optional<BankAccount> lockById(@Param("id") Long id);
+
+    /**
+     * Make every writer that read the current version fail its optimistic check and retry.
+     */
+    @Modifying
+    @Query("UPDATE BankAccount a SET a.version = a.version + 1 WHERE a.id = :id")
+    int incrementVersion(@Param("id") Long id);
 }
@@ -0,0 +1,10 @@
+package com.youcode.bankify.repository.jpa;
+
+import com.youcode.bankify.entity.BalanceSnapshot;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface BalanceSnapshotRepository extends JpaRepository<BalanceSnapshot, Long> {
+    Optional<BalanceSnapshot> findTopByAccountIdOrderByAccountVersionDesc(Long accountId);
+}
@@ -0,0 +1,50 @@
+package com.youcode.bankify.repository.jpa;
+
+import com.youcode.bankify.entity.IdempotencyRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.OffsetDateTime;
+import java.util.Optional;
+
+public interface IdempotencyRecordRepository extends JpaRepository<IdempotencyRecord, Long> {
+    Optional<IdempotencyRecord> findByUserIdAndIdempotencyKey(Long userId, String idempotencyKey);
+
+    @Modifying
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.expiresAt < :now")
+    int deleteExpired(@Param("now") OffsetDateTime now);
+
+    /**
+     * Delete the key only if it is still expired, so a claim completed in the meantime survives.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.expiresAt < :now")
+    int deleteExpired(@Param("id") Long id, @Param("now") OffsetDateTime now);
+
+    /**
+     * Drop a claim whose operation was not applied; a completed key is kept.
+     */
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM IdempotencyRecord r WHERE r.id = :id AND r.status = 'IN_PROGRESS'")
+    int release(@Param("id") Long id);
+
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.expiresAt = :expiresAt WHERE r.id = :id AND r.status = 'IN_PROGRESS'")
+    int extendClaim(@Param("id") Long id, @Param("expiresAt") OffsetDateTime expiresAt);
+
+    /**
+     * Store the response of the key; joins the caller's transaction, and updates nothing once the claim was taken over.
+     */
+    @Modifying
+    @Transactional
+    @Query("UPDATE IdempotencyRecord r SET r.status = 'COMPLETED', r.responseStatus = :status, r.responseBody = :body, " +
+            "r.expiresAt = :expiresAt WHERE r.id = :id")
+    int complete(@Param("id") Long id, @Param("status") Integer status, @Param("body") String body,
+                 @Param("expiresAt") OffsetDateTime expiresAt);
+}
@@ -1,6 +1,8 @@
 package com.youcode.bankify.repository.jpa;
 
+import com.youcode.bankify.dto.InvoiceExportRow;
 import com.youcode.bankify.entity.Invoice;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -12,4 +14,8 @@ public interface InvoiceRepository extends JpaRepository<Invoice,Long> {
     @Query("SELECT COUNT(i) FROM Invoice i WHERE i.status = :status")
     int countByStatus(@Param("status") String status);
 
+    @Query("SELECT new com.youcode.bankify.dto.InvoiceExportRow(i.id, i.invoiceNumber, i.description, i.amount, i.status, i.dueDate, i.user.id) " +
+            "FROM Invoice i WHERE i.id > :afterId ORDER BY i.id")
+    List<InvoiceExportRow> findExportPage(@Param("afterId") Long afterId, Pageable pageable);
+
 }
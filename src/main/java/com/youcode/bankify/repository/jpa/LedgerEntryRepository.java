@@ -0,0 +1,21 @@
+package com.youcode.bankify.repository.jpa;
+
+import com.youcode.bankify.entity.LedgerEntry;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public interface LedgerEntryRepository extends JpaRepository<LedgerEntry, Long> {
+
+    @Query("SELECT COALESCE(SUM(e.amount), 0) FROM LedgerEntry e WHERE e.accountId = :accountId AND e.accountVersion > :afterVersion")
+    BigDecimal sumSince(@Param("accountId") Long accountId, @Param("afterVersion") long afterVersion);
+
+    @Query("SELECT e.accountId FROM LedgerEntry e " +
+            "WHERE e.accountId IS NOT NULL " +
+            "AND e.accountVersion > COALESCE((SELECT MAX(s.accountVersion) FROM BalanceSnapshot s WHERE s.accountId = e.accountId), -1) " +
+            "GROUP BY e.accountId HAVING COUNT(e) >= :threshold")
+    List<Long> findAccountsDueForSnapshot(@Param("threshold") long threshold);
+}
@@ -1,6 +1,8 @@
 package com.youcode.bankify.repository.jpa;
 
+import com.youcode.bankify.dto.LoanExportRow;
 import com.youcode.bankify.entity.Loan;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
@@ -13,4 +15,8 @@ public interface LoanRepository  extends JpaRepository<Loan, Long> {
     @Query("SELECT COUNT(l) FROM Loan l WHERE l.status = :status")
     int countByStatus(@Param("status") String status);
 
+    @Query("SELECT new com.youcode.bankify.dto.LoanExportRow(l.id, l.amount, l.termInMonths, l.status, l.applicationDate, l.user.id) " +
+            "FROM Loan l WHERE l.id > :afterId ORDER BY l.id")
+    List<LoanExportRow> findExportPage(@Param("afterId") Long afterId, Pageable pageable);
+
 }
@@ -0,0 +1,7 @@
+package com.youcode.bankify.repository.jpa;
+
+import com.youcode.bankify.entity.ReindexCheckpoint;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface ReindexCheckpointRepository extends JpaRepository<ReindexCheckpoint, String> {
+}
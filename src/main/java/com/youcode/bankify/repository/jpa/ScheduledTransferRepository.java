@@ -1,16 +1,118 @@
 package com.youcode.bankify.repository.jpa;
 
+import com.youcode.bankify.dto.ScheduledTransferDue;
 import com.youcode.bankify.entity.ScheduledTransfer;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface ScheduledTransferRepository extends JpaRepository<ScheduledTransfer,Long> {
     List<ScheduledTransfer> findByNextExecutionDateBefore(OffsetDateTime now);
+
+    /**
+     * Ids of the next due transfers nobody holds a live lease on, locked for the claiming transaction.
+     * Rows locked by another node's claim are skipped instead of waited for, and so are retired
+     * transfers and failed occurrences still backing off.
+     */
+    @Query(value = "SELECT id FROM scheduled_transfer " +
+            "WHERE status = 'ACTIVE' AND next_execution_date < :now AND id > :afterId " +
+            "AND (retry_at IS NULL OR retry_at <= :now) AND (end_date IS NULL OR next_execution_date <= end_date) " +
+            "AND (lease_until IS NULL OR lease_until < now()) " +
+            "ORDER BY id LIMIT :limit FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> findClaimable(@Param("now") OffsetDateTime now, @Param("afterId") Long afterId, @Param("limit") int limit);
+
+    /**
+     * Same as {@link #findClaimable} for a known set of transfers, as fired by the timing wheel.
+     */
+    @Query(value = "SELECT id FROM scheduled_transfer " +
+            "WHERE id IN (:ids) AND status = 'ACTIVE' AND next_execution_date <= :now " +
+            "AND (retry_at IS NULL OR retry_at <= :now) AND (end_date IS NULL OR next_execution_date <= end_date) " +
+            "AND (lease_until IS NULL OR lease_until < now()) " +
+            "ORDER BY id FOR UPDATE SKIP LOCKED", nativeQuery = true)
+    List<Long> findClaimableIn(@Param("ids") Collection<Long> ids, @Param("now") OffsetDateTime now);
+
+    /**
+     * Due times of the active transfers falling due in {@code (after, until]}, for loading the timing wheel.
+     * A failed occurrence falls due again at its retry time.
+     */
+    @Query("SELECT new com.youcode.bankify.dto.ScheduledTransferDue(s.id, COALESCE(s.retryAt, s.nextExecutionDate)) " +
+            "FROM ScheduledTransfer s WHERE s.status = 'ACTIVE' " +
+            "AND COALESCE(s.retryAt, s.nextExecutionDate) > :after AND COALESCE(s.retryAt, s.nextExecutionDate) <= :until " +
+            "ORDER BY COALESCE(s.retryAt, s.nextExecutionDate)")
+    List<ScheduledTransferDue> findDueBetween(@Param("after") OffsetDateTime after, @Param("until") OffsetDateTime until);
+
+    @Query("SELECT new com.youcode.bankify.dto.ScheduledTransferDue(s.id, COALESCE(s.retryAt, s.nextExecutionDate)) " +
+            "FROM ScheduledTransfer s WHERE s.status = 'ACTIVE' AND COALESCE(s.retryAt, s.nextExecutionDate) <= :until " +
+            "ORDER BY COALESCE(s.retryAt, s.nextExecutionDate)")
+    List<ScheduledTransferDue> findDueUntil(@Param("until") OffsetDateTime until);
+
+    /**
+     * Retry times of the given transfers that are backing off after a failed occurrence.
+     */
+    @Query("SELECT new com.youcode.bankify.dto.ScheduledTransferDue(s.id, s.retryAt) FROM ScheduledTransfer s " +
+            "WHERE s.id IN :ids AND s.status = 'ACTIVE' AND s.retryAt IS NOT NULL")
+    List<ScheduledTransferDue> findRetrying(@Param("ids") Collection<Long> ids);
+
+    /**
+     * Count a failed attempt at the current occurrence and try it again at {@code retryAt}. Also drops the lease.
+     */
+    @Modifying
+    @Query(value = "UPDATE scheduled_transfer SET attempts = attempts + 1, last_error = :error, retry_at = :retryAt, " +
+            "lease_owner = NULL, lease_until = NULL " +
+            "WHERE id = :id AND status = 'ACTIVE'", nativeQuery = true)
+    int recordRetry(@Param("id") Long id, @Param("error") String error, @Param("retryAt") OffsetDateTime retryAt);
+
+    /**
+     * Give up on the current occurrence and move on to the next one, completing the transfer when
+     * that lies past its end date. Also drops the lease.
+     */
+    @Modifying
+    @Query(value = "UPDATE scheduled_transfer SET next_execution_date = :nextExecutionDate, status = :status, " +
+            "attempts = 0, retry_at = NULL, last_error = :error, lease_owner = NULL, lease_until = NULL " +
+            "WHERE id = :id AND status = 'ACTIVE'", nativeQuery = true)
+    int skipOccurrence(@Param("id") Long id, @Param("error") String error,
+                       @Param("nextExecutionDate") OffsetDateTime nextExecutionDate, @Param("status") String status);
+
+    @Modifying
+    @Query(value = "UPDATE scheduled_transfer SET status = 'FAILED', attempts = attempts + 1, last_error = :error, " +
+            "retry_at = NULL, lease_owner = NULL, lease_until = NULL " +
+            "WHERE id = :id AND status = 'ACTIVE'", nativeQuery = true)
+    int markFailed(@Param("id") Long id, @Param("error") String error);
+
+    /**
+     * Retire the active transfers whose next occurrence lies past their end date.
+     */
+    @Modifying
+    @Query(value = "UPDATE scheduled_transfer SET status = 'COMPLETED', retry_at = NULL " +
+            "WHERE status = 'ACTIVE' AND end_date IS NOT NULL AND next_execution_date > end_date", nativeQuery = true)
+    int retireEnded();
+
+    @Modifying
+    @Query(value = "UPDATE scheduled_transfer SET lease_owner = :owner, " +
+            "lease_until = now() + make_interval(secs => :leaseSeconds) WHERE id IN (:ids)", nativeQuery = true)
+    int lease(@Param("ids") Collection<Long> ids, @Param("owner") String owner, @Param("leaseSeconds") long leaseSeconds);
+
+    /**
+     * Lock the given transfers still leased by {@code owner}; a transfer whose lease expired and was
+     * taken over by another node is left out.
+     */
+    @Query(value = "SELECT id FROM scheduled_transfer WHERE id IN (:ids) AND lease_owner = :owner FOR UPDATE", nativeQuery = true)
+    List<Long> lockLeased(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
+
+    @Modifying
+    @Query(value = "UPDATE scheduled_transfer SET lease_owner = NULL, lease_until = NULL " +
+            "WHERE id IN (:ids) AND lease_owner = :owner", nativeQuery = true)
+    int releaseLeases(@Param("ids") Collection<Long> ids, @Param("owner") String owner);
+
+    List<ScheduledTransfer> findByIdInOrderByIdAsc(Collection<Long> ids);
     List<ScheduledTransfer> findByFromAccountIdOrToAccountId(Long fromAccountId,Long toAccount, Pageable pageable);
 }
@@ -0,0 +1,12 @@
+package com.youcode.bankify.repository.jpa;
+
+import com.youcode.bankify.entity.SearchOutboxEvent;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.OffsetDateTime;
+import java.util.List;
+
+public interface SearchOutboxRepository extends JpaRepository<SearchOutboxEvent, Long> {
+    List<SearchOutboxEvent> findByNextAttemptAtLessThanEqualOrderByIdAsc(OffsetDateTime now, Pageable pageable);
+}
@@ -1,22 +1,55 @@
 package com.youcode.bankify.repository.jpa;
 
+import com.youcode.bankify.dto.TransactionExportRow;
 import com.youcode.bankify.entity.Transaction;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
 
+import java.time.OffsetDateTime;
 import java.util.List;
 
 public interface TransactionRepository extends JpaRepository<Transaction,Long> {
+    // no graph here: the dashboard serializes these entities after their session is closed, and a
+    // fetch graph would leave the users' eager roles unloaded. Batch fetching keeps it to a few queries.
     List<Transaction> findByUserIdOrderByDateDesc(Long userId, Pageable pageable);
-    List<Transaction> findByBankAccountId(Long bankAccountId, Pageable pageable);
+
+    // keyset pages of a history ordered by (date desc, id desc): the redundant "t.date <= :date"
+    // bounds the index range scan, the OR only breaks ties on the boundary date.
+    // The graph fetches the account, its owner and the transaction user with the page.
+    @EntityGraph(attributePaths = {"bankAccount.user", "user"})
+    List<Transaction> findByUserIdOrderByDateDescIdDesc(Long userId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"bankAccount.user", "user"})
+    @Query("SELECT t FROM Transaction t WHERE t.user.id = :userId " +
+            "AND t.date <= :date AND (t.date < :date OR t.id < :id) ORDER BY t.date DESC, t.id DESC")
+    List<Transaction> findByUserIdBefore(@Param("userId") Long userId, @Param("date") OffsetDateTime date,
+                                         @Param("id") Long id, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"bankAccount.user", "user"})
+    List<Transaction> findByBankAccountIdOrderByDateDescIdDesc(Long bankAccountId, Pageable pageable);
+
+    @EntityGraph(attributePaths = {"bankAccount.user", "user"})
+    @Query("SELECT t FROM Transaction t WHERE t.bankAccount.id = :bankAccountId " +
+            "AND t.date <= :date AND (t.date < :date OR t.id < :id) ORDER BY t.date DESC, t.id DESC")
+    List<Transaction> findByBankAccountIdBefore(@Param("bankAccountId") Long bankAccountId, @Param("date") OffsetDateTime date,
+                                                @Param("id") Long id, Pageable pageable);
+
     List<Transaction> findByUserId(Long userId);
     @Query("SELECT COUNT(t) FROM Transaction t WHERE t.status = :status")
     int countByStatus(@Param("status") String status);
 
     List<Transaction> findTop5ByOrderByDateDesc();
 
+    List<Transaction> findByIdGreaterThanOrderByIdAsc(Long id, Pageable pageable);
+
+    @Query("SELECT new com.youcode.bankify.dto.TransactionExportRow(t.id, t.amount, t.type, t.status, t.date, " +
+            "a.accountNumber, t.counterpartyAccountNumber, t.user.id) " +
+            "FROM Transaction t JOIN t.bankAccount a WHERE t.id > :afterId ORDER BY t.id")
+    List<TransactionExportRow> findExportPage(@Param("afterId") Long afterId, Pageable pageable);
+
 }
@@ -0,0 +1,37 @@
+package com.youcode.bankify.repository.jpa;
+
+import com.youcode.bankify.entity.UserDashboardSummary;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+
+public interface UserDashboardSummaryRepository extends JpaRepository<UserDashboardSummary, Long> {
+
+    @Modifying(flushAutomatically = true)
+    @Query(value = "UPDATE user_dashboard_summary SET " +
+            "total_balance = total_balance + :balanceDelta, " +
+            "active_accounts = active_accounts + :activeDelta, " +
+            "pending_transactions = pending_transactions + :pendingDelta, " +
+            "updated_at = now() " +
+            "WHERE user_id = :userId", nativeQuery = true)
+    int applyDelta(@Param("userId") Long userId,
+                   @Param("balanceDelta") BigDecimal balanceDelta,
+                   @Param("activeDelta") long activeDelta,
+                   @Param("pendingDelta") long pendingDelta);
+
+    /**
+     * Compute the row from the source tables; a row inserted concurrently wins.
+     */
+    @Modifying(flushAutomatically = true)
+    @Query(value = "INSERT INTO user_dashboard_summary (user_id, total_balance, active_accounts, pending_transactions, updated_at) " +
+            "SELECT :userId, " +
+            "(SELECT COALESCE(SUM(a.balance), 0) FROM bank_account a WHERE a.user_id = :userId), " +
+            "(SELECT COUNT(*) FROM bank_account a WHERE a.user_id = :userId AND UPPER(a.status) = 'ACTIVE'), " +
+            "(SELECT COUNT(*) FROM transaction t WHERE t.user_id = :userId AND UPPER(t.status) = 'PENDING'), " +
+            "now() " +
+            "ON CONFLICT DO NOTHING", nativeQuery = true)
+    int insertFromSource(@Param("userId") Long userId);
+}
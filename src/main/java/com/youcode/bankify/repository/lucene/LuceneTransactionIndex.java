@@ -0,0 +1,352 @@
+package com.youcode.bankify.repository.lucene;
+
+import com.youcode.bankify.dto.TransactionResponse;
+import com.youcode.bankify.dto.TransactionSearchRequest;
+import com.youcode.bankify.dto.TransactionSearchResponse;
+import com.youcode.bankify.entity.Transaction;
+import com.youcode.bankify.repository.elasticsearch.TransactionDocument;
+import com.youcode.bankify.repository.elasticsearch.TransactionFilter;
+import com.youcode.bankify.repository.elasticsearch.TransactionIndexWriter;
+import com.youcode.bankify.repository.elasticsearch.TransactionSearchRepositoryCustom;
+import com.youcode.bankify.util.SearchCursor;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.lucene.document.Document;
+import org.apache.lucene.document.Field;
+import org.apache.lucene.document.LongPoint;
+import org.apache.lucene.document.NumericDocValuesField;
+import org.apache.lucene.document.StoredField;
+import org.apache.lucene.document.StringField;
+import org.apache.lucene.index.DirectoryReader;
+import org.apache.lucene.index.IndexWriter;
+import org.apache.lucene.index.IndexWriterConfig;
+import org.apache.lucene.index.StoredFields;
+import org.apache.lucene.index.Term;
+import org.apache.lucene.search.BooleanClause;
+import org.apache.lucene.search.BooleanQuery;
+import org.apache.lucene.search.FieldDoc;
+import org.apache.lucene.search.IndexSearcher;
+import org.apache.lucene.search.MatchAllDocsQuery;
+import org.apache.lucene.search.Query;
+import org.apache.lucene.search.ScoreDoc;
+import org.apache.lucene.search.SearcherLifetimeManager;
+import org.apache.lucene.search.SearcherManager;
+import org.apache.lucene.search.Sort;
+import org.apache.lucene.search.SortField;
+import org.apache.lucene.search.TermInSetQuery;
+import org.apache.lucene.search.TopDocs;
+import org.apache.lucene.store.Directory;
+import org.apache.lucene.store.FSDirectory;
+import org.apache.lucene.util.BytesRef;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Repository;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Embedded search backend for single-node deployments, enabled with {@code bankify.search.backend=lucene}.
+ * Writes go to a local Lucene index; searches use near-real-time readers refreshed in the background,
+ * and a write is reported durable once a commit that includes it has completed. Cursors pin the reader
+ * they started on, the same way a point-in-time does in Elasticsearch.
+ */
+@Slf4j
+@Repository
+@ConditionalOnProperty(name = "bankify.search.backend", havingValue = "lucene")
+public class LuceneTransactionIndex implements TransactionIndexWriter, TransactionSearchRepositoryCustom {
+
+    private static final String ID_KEY = "id_key";
+    private static final Sort SORT = new Sort(
+            new SortField("date", SortField.Type.LONG, true),
+            new SortField("id", SortField.Type.LONG, true));
+
+    private final Directory directory;
+    private final IndexWriter indexWriter;
+    private final SearcherManager searcherManager;
+    private final SearcherLifetimeManager searcherLifetimeManager = new SearcherLifetimeManager();
+    private final boolean createdEmpty;
+    private final double cursorKeepAliveSeconds;
+    private final Map<TransactionFilter, Query> queryCache;
+    private List<CompletableFuture<Void>> awaitingCommit = new ArrayList<>();
+
+    public LuceneTransactionIndex(@Value("${bankify.search.lucene.path:data/search/transactions}") String path,
+                                  @Value("${bankify.search.lucene.ram-buffer-mb:64}") double ramBufferMb,
+                                  @Value("${bankify.search.lucene.cursor-keep-alive-seconds:60}") double cursorKeepAliveSeconds,
+                                  @Value("${bankify.search.query-cache-size:256}") int queryCacheSize) throws IOException {
+        Path indexPath = Path.of(path);
+        Files.createDirectories(indexPath);
+        this.directory = FSDirectory.open(indexPath);
+        this.createdEmpty = !DirectoryReader.indexExists(directory);
+        this.indexWriter = new IndexWriter(directory, new IndexWriterConfig()
+                .setOpenMode(IndexWriterConfig.OpenMode.CREATE_OR_APPEND)
+                .setRAMBufferSizeMB(ramBufferMb));
+        this.searcherManager = new SearcherManager(indexWriter, null);
+        this.cursorKeepAliveSeconds = cursorKeepAliveSeconds;
+        this.queryCache = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TransactionFilter, Query> eldest) {
+                return size() > queryCacheSize;
+            }
+        });
+        log.info("Lucene transaction index opened at {}", indexPath.toAbsolutePath());
+    }
+
+    @Override
+    public CompletableFuture<Void> index(Transaction transaction) {
+        try {
+            indexWriter.updateDocument(new Term(ID_KEY, transaction.getId().toString()), toLuceneDocument(transaction));
+            return awaitCommit();
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> delete(Collection<Long> transactionIds) {
+        try {
+            indexWriter.deleteDocuments(transactionIds.stream()
+                    .map(id -> new Term(ID_KEY, id.toString()))
+                    .toArray(Term[]::new));
+            return awaitCommit();
+        } catch (IOException | RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void flush() {
+        commit();
+    }
+
+    @Override
+    public boolean requiresFullLoad() {
+        return createdEmpty;
+    }
+
+    @Override
+    public void beginBulkLoad() {
+    }
+
+    @Override
+    public void endBulkLoad() {
+        commit();
+        try {
+            searcherManager.maybeRefreshBlocking();
+        } catch (IOException e) {
+            throw new RuntimeException("Lucene index could not be refreshed", e);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${bankify.search.lucene.refresh-interval-ms:500}")
+    public void refresh() throws IOException {
+        searcherManager.maybeRefresh();
+        searcherLifetimeManager.prune(new SearcherLifetimeManager.PruneByAge(cursorKeepAliveSeconds));
+    }
+
+    @Scheduled(fixedDelayString = "${bankify.search.lucene.commit-interval-ms:5000}")
+    public void backgroundCommit() {
+        if (indexWriter.hasUncommittedChanges()) {
+            commit();
+        }
+    }
+
+    @Override
+    public TransactionSearchResponse searchByCriteria(TransactionSearchRequest request, Collection<String> accountNumbers, int size) {
+        TransactionFilter filter = TransactionFilter.from(request, accountNumbers);
+        String filterHash = filter.fingerprint();
+        SearchCursor cursor = request.getCursor() == null ? null : SearchCursor.decode(request.getCursor(), filterHash);
+        Query query = compiledQuery(filter);
+        TransactionSearchResponse page = new TransactionSearchResponse();
+        List<TransactionResponse> transactions = new ArrayList<>();
+        page.setTransactions(transactions);
+
+        try {
+            long version = cursor != null ? searcherVersion(cursor) : pinCurrentSearcher();
+            IndexSearcher searcher = searcherLifetimeManager.acquire(version);
+            if (searcher == null) {
+                throw new IllegalArgumentException("Search cursor has expired, start the search again");
+            }
+            try {
+                TopDocs top;
+                if (cursor == null) {
+                    top = searcher.search(query, size, SORT);
+                } else {
+                    // ids are unique, so the only tie is the previous last hit; the highest doc id skips it
+                    FieldDoc after = new FieldDoc(searcher.getIndexReader().maxDoc() - 1, Float.NaN,
+                            new Object[]{cursor.date(), cursor.id()});
+                    top = searcher.searchAfter(after, query, size, SORT);
+                }
+
+                StoredFields storedFields = searcher.storedFields();
+                for (ScoreDoc scoreDoc : top.scoreDocs) {
+                    transactions.add(toResponse(storedFields.document(scoreDoc.doc)));
+                }
+                if (top.scoreDocs.length == size) {
+                    FieldDoc last = (FieldDoc) top.scoreDocs[top.scoreDocs.length - 1];
+                    page.setNextCursor(new SearchCursor(filterHash, String.valueOf(version),
+                            (Long) last.fields[0], (Long) last.fields[1]).encode());
+                }
+            } finally {
+                searcherLifetimeManager.release(searcher);
+            }
+        } catch (IOException e) {
+            log.error("Lucene search failed", e);
+        }
+        return page;
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        commit();
+        searcherLifetimeManager.close();
+        searcherManager.close();
+        indexWriter.close();
+        directory.close();
+    }
+
+    private long pinCurrentSearcher() throws IOException {
+        IndexSearcher searcher = searcherManager.acquire();
+        try {
+            return searcherLifetimeManager.record(searcher);
+        } finally {
+            searcherManager.release(searcher);
+        }
+    }
+
+    /**
+     * A cursor that does not name a local searcher, such as a point-in-time id from the Elasticsearch
+     * backend, is treated like one whose searcher was pruned.
+     */
+    private long searcherVersion(SearchCursor cursor) {
+        try {
+            return Long.parseLong(cursor.pitId());
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Search cursor has expired, start the search again");
+        }
+    }
+
+    private synchronized CompletableFuture<Void> awaitCommit() {
+        CompletableFuture<Void> committed = new CompletableFuture<>();
+        awaitingCommit.add(committed);
+        return committed;
+    }
+
+    /**
+     * Commit and complete every write registered before the commit started.
+     */
+    private void commit() {
+        List<CompletableFuture<Void>> covered;
+        synchronized (this) {
+            covered = awaitingCommit;
+            awaitingCommit = new ArrayList<>();
+        }
+        try {
+            indexWriter.commit();
+            covered.forEach(future -> future.complete(null));
+        } catch (IOException | RuntimeException e) {
+            log.warn("Lucene commit failed: {}", e.getMessage());
+            covered.forEach(future -> future.completeExceptionally(e));
+        }
+    }
+
+    private Document toLuceneDocument(Transaction transaction) {
+        TransactionDocument source = TransactionDocument.from(transaction);
+        Document document = new Document();
+        document.add(new StringField(ID_KEY, source.getId().toString(), Field.Store.NO));
+        document.add(new NumericDocValuesField("id", source.getId()));
+        document.add(new StoredField("id", source.getId()));
+        long amount = TransactionDocument.toMinorUnits(source.getAmount());
+        document.add(new LongPoint("amount", amount));
+        document.add(new StoredField("amount", amount));
+        if (transaction.getDate() != null) {
+            long millis = transaction.getDate().toInstant().toEpochMilli();
+            document.add(new LongPoint("date", millis));
+            document.add(new NumericDocValuesField("date", millis));
+            document.add(new StoredField("date", source.getDate()));
+        }
+        addKeyword(document, "type", source.getType());
+        addKeyword(document, "status", source.getStatus());
+        addKeyword(document, "accountNumber", source.getAccountNumber());
+        addKeyword(document, "ownerUsername", source.getOwnerUsername());
+        addKeyword(document, "counterparty", source.getCounterparty());
+        return document;
+    }
+
+    private void addKeyword(Document document, String field, String value) {
+        if (value != null) {
+            document.add(new StringField(field, value, Field.Store.YES));
+        }
+    }
+
+    private Query compiledQuery(TransactionFilter filter) {
+        Query query = queryCache.get(filter);
+        if (query == null) {
+            query = buildQuery(filter);
+            queryCache.put(filter, query);
+        }
+        return query;
+    }
+
+    private Query buildQuery(TransactionFilter filter) {
+        BooleanQuery.Builder query = new BooleanQuery.Builder();
+        boolean filtered = false;
+        if (filter.accountNumbers() != null) {
+            query.add(termsQuery("accountNumber", filter.accountNumbers()), BooleanClause.Occur.FILTER);
+            filtered = true;
+        }
+        if (filter.minAmount() != null || filter.maxAmount() != null) {
+            long min = filter.minAmount() != null ? TransactionDocument.toMinorUnits(filter.minAmount()) : Long.MIN_VALUE;
+            long max = filter.maxAmount() != null ? TransactionDocument.toMinorUnits(filter.maxAmount()) : Long.MAX_VALUE;
+            query.add(LongPoint.newRangeQuery("amount", min, max), BooleanClause.Occur.FILTER);
+            filtered = true;
+        }
+        if (!filter.types().isEmpty()) {
+            query.add(termsQuery("type", filter.types()), BooleanClause.Occur.FILTER);
+            filtered = true;
+        }
+        if (!filter.statuses().isEmpty()) {
+            query.add(termsQuery("status", filter.statuses()), BooleanClause.Occur.FILTER);
+            filtered = true;
+        }
+        if (filter.startDate() != null || filter.endDate() != null) {
+            long start = filter.startDate() != null ? toMillis(filter.startDate()) : Long.MIN_VALUE;
+            long end = filter.endDate() != null ? toMillis(filter.endDate()) : Long.MAX_VALUE;
+            query.add(LongPoint.newRangeQuery("date", start, end), BooleanClause.Occur.FILTER);
+            filtered = true;
+        }
+        return filtered ? query.build() : new MatchAllDocsQuery();
+    }
+
+    private Query termsQuery(String field, List<String> values) {
+        return new TermInSetQuery(field, values.stream().map(BytesRef::new).toList());
+    }
+
+    private long toMillis(LocalDateTime dateTime) {
+        return dateTime.toInstant(ZoneOffset.UTC).toEpochMilli();
+    }
+
+    private TransactionResponse toResponse(Document document) {
+        TransactionResponse dto = new TransactionResponse();
+        dto.setAmount(BigDecimal.valueOf(document.getField("amount").numericValue().longValue(), TransactionDocument.AMOUNT_SCALE));
+        dto.setType(document.get("type"));
+        dto.setStatus(document.get("status"));
+        dto.setDate(document.get("date"));
+        dto.setAccountNumber(document.get("accountNumber"));
+        dto.setCounterpartyAccountNumber(document.get("counterparty"));
+        dto.setOtherPartyUsername(document.get("ownerUsername"));
+        return dto;
+    }
+}
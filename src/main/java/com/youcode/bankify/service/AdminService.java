@@ -1,6 +1,8 @@
 package com.youcode.bankify.service;
 
 
+import com.youcode.bankify.dto.RecentAccountDTO;
+import com.youcode.bankify.dto.RecentUserDTO;
 import com.youcode.bankify.dto.RegisterRequest;
 import com.youcode.bankify.dto.UpdatedUserRequest;
 import com.youcode.bankify.entity.BankAccount;
@@ -9,18 +11,25 @@ import com.youcode.bankify.entity.User;
 import com.youcode.bankify.repository.jpa.AccountRepository;
 import com.youcode.bankify.repository.jpa.RoleRepository;
 import com.youcode.bankify.repository.jpa.UserRepository;
+import com.youcode.bankify.util.RefreshingSnapshot;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDate;
 import java.time.Period;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -31,6 +40,18 @@ public class AdminService {
     private final AccountRepository accountRepository;
     private final RoleRepository roleRepository;
     private final PasswordEncoder passwordEncoder;
+    private final DashboardSummaryService dashboardSummaryService;
+    private final DashboardExecutor dashboardExecutor;
+
+    @Value("${bankify.dashboard.snapshot-max-age-ms:10000}")
+    private long snapshotMaxAgeMs;
+
+    private RefreshingSnapshot<Map<String, Object>> dashboardSnapshot;
+
+    @PostConstruct
+    void initDashboardSnapshot() {
+        dashboardSnapshot = new RefreshingSnapshot<>(this::loadDashboardSummary, snapshotMaxAgeMs);
+    }
 
     public User createUser(RegisterRequest registerRequest){
         User user = new User();
@@ -80,10 +101,12 @@ public class AdminService {
         return userRepository.save(user);
     }
 
+    @Transactional
     public void deleteUser(Long userId){
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
         userRepository.delete(user);
+        dashboardSummaryService.delete(userId);
 
     }
 
@@ -91,31 +114,74 @@ public class AdminService {
         return userRepository.findAll();
     }
 
+    @Transactional
     public BankAccount updateAccountStatus(Long accountId , String status){
         BankAccount account = accountRepository.findById(accountId)
                 .orElseThrow(() -> new RuntimeException("Bank account not found"));
 
+        boolean wasActive = "ACTIVE".equals(account.getStatus());
         account.setStatus(status.toUpperCase());
+        boolean isActive = "ACTIVE".equals(account.getStatus());
+        if (wasActive != isActive) {
+            dashboardSummaryService.apply(DashboardSummaryService.delta()
+                    .activeAccounts(account.getUser().getId(), isActive ? 1 : -1));
+        }
         return accountRepository.save(account);
     }
 
     public List<BankAccount> getAllBankAccounts(){return accountRepository.findAll();}
 
+    /**
+     * Served from a snapshot shared by all admins, at most {@code bankify.dashboard.snapshot-max-age-ms} old.
+     */
     public Map<String, Object> getDashboardSummary() {
-        long totalUsers = userRepository.count();
-        long activeAccounts = accountRepository.countByStatus("ACTIVE");
-        long inactiveAccounts = accountRepository.countByStatus("INACTIVE");
+        return dashboardSnapshot.get();
+    }
 
-        List<User> recentUsers = userRepository.findTop5ByOrderByIdDesc();
-        List<BankAccount> recentAccounts = accountRepository.findTop5ByOrderByIdDesc();
+    @Scheduled(fixedDelayString = "${bankify.dashboard.snapshot-refresh-ms:5000}")
+    public void refreshDashboardSnapshot() {
+        dashboardSnapshot.refresh();
+    }
+
+    private Map<String, Object> loadDashboardSummary() {
+        CompletableFuture<Long> totalUsers = dashboardExecutor.submit(userRepository::count);
+        CompletableFuture<Long> activeAccounts = dashboardExecutor.submit(() -> (long) accountRepository.countByStatus("ACTIVE"));
+        CompletableFuture<Long> inactiveAccounts = dashboardExecutor.submit(() -> (long) accountRepository.countByStatus("INACTIVE"));
+        // mapped on the executor thread: the snapshot outlives any persistence context
+        CompletableFuture<List<RecentUserDTO>> recentUsers = dashboardExecutor.submit(() ->
+                userRepository.findTop5ByOrderByIdDesc().stream().map(this::toRecentUser).collect(Collectors.toList()));
+        CompletableFuture<List<RecentAccountDTO>> recentAccounts = dashboardExecutor.submit(() ->
+                accountRepository.findTop5ByOrderByIdDesc().stream().map(this::toRecentAccount).collect(Collectors.toList()));
 
         Map<String, Object> summary = new HashMap<>();
-        summary.put("totalUsers", totalUsers);
-        summary.put("activeAccounts", activeAccounts);
-        summary.put("inactiveAccounts", inactiveAccounts);
-        summary.put("recentUsers", recentUsers);
-        summary.put("recentAccounts", recentAccounts);
-        return summary;
+        summary.put("totalUsers", DashboardExecutor.await(totalUsers));
+        summary.put("activeAccounts", DashboardExecutor.await(activeAccounts));
+        summary.put("inactiveAccounts", DashboardExecutor.await(inactiveAccounts));
+        summary.put("recentUsers", DashboardExecutor.await(recentUsers));
+        summary.put("recentAccounts", DashboardExecutor.await(recentAccounts));
+        return Collections.unmodifiableMap(summary);
+    }
+
+    private RecentUserDTO toRecentUser(User user) {
+        RecentUserDTO dto = new RecentUserDTO();
+        dto.setId(user.getId());
+        dto.setUsername(user.getUsername());
+        dto.setFirstName(user.getFirstName());
+        dto.setLastName(user.getLastName());
+        dto.setEnabled(user.isEnabled());
+        dto.setRoles(user.getRoles() == null ? Set.of() : user.getRoles().stream().map(Role::getName).collect(Collectors.toSet()));
+        return dto;
+    }
+
+    private RecentAccountDTO toRecentAccount(BankAccount account) {
+        RecentAccountDTO dto = new RecentAccountDTO();
+        dto.setId(account.getId());
+        dto.setAccountNumber(account.getAccountNumber());
+        dto.setBalance(account.getBalance());
+        dto.setStatus(account.getStatus());
+        dto.setUserId(account.getUser().getId());
+        dto.setUsername(account.getUser().getUsername());
+        return dto;
     }
 
 }
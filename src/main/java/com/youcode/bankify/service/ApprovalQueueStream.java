@@ -0,0 +1,100 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.dto.ApprovalQueueEvent;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Supplier;
+
+/**
+ * Pushes approval queue changes to connected employees over server-sent events.
+ * Events are delivered after the publishing transaction commits, on a dedicated thread,
+ * so a slow client never holds up the writer.
+ */
+@Slf4j
+@Component
+public class ApprovalQueueStream {
+
+    private final List<SseEmitter> emitters = new CopyOnWriteArrayList<>();
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "approval-queue-stream");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @Value("${bankify.employee.stream.timeout-ms:1800000}")
+    private long timeoutMs;
+
+    /**
+     * Open a stream starting with the current pending counts; later events carry deltas against them.
+     * The subscriber is registered before the counts are read, so a change committed meanwhile is
+     * still delivered instead of being lost between the snapshot and the first delta.
+     */
+    public SseEmitter subscribe(Supplier<Map<String, Object>> pendingCounts) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        emitter.onCompletion(() -> emitters.remove(emitter));
+        emitter.onTimeout(() -> emitters.remove(emitter));
+        emitter.onError(e -> emitters.remove(emitter));
+        emitters.add(emitter);
+
+        SseEmitter.SseEventBuilder snapshot = SseEmitter.event().name("snapshot").data(pendingCounts.get(), MediaType.APPLICATION_JSON);
+        dispatcher.execute(() -> send(emitter, snapshot));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onApprovalQueueEvent(ApprovalQueueEvent event) {
+        if (!emitters.isEmpty()) {
+            dispatcher.execute(() -> broadcast(SseEmitter.event().name("queue").data(event, MediaType.APPLICATION_JSON)));
+        }
+    }
+
+    /**
+     * Keeps idle connections open through proxies and drops clients that went away.
+     */
+    @Scheduled(fixedDelayString = "${bankify.employee.stream.heartbeat-ms:15000}")
+    public void heartbeat() {
+        if (!emitters.isEmpty()) {
+            dispatcher.execute(() -> broadcast(SseEmitter.event().comment("heartbeat")));
+        }
+    }
+
+    public int getSubscriberCount() {
+        return emitters.size();
+    }
+
+    private void broadcast(SseEmitter.SseEventBuilder event) {
+        for (SseEmitter emitter : emitters) {
+            send(emitter, event);
+        }
+    }
+
+    private void send(SseEmitter emitter, SseEmitter.SseEventBuilder event) {
+        try {
+            emitter.send(event);
+        } catch (IOException | IllegalStateException e) {
+            log.debug("Dropping approval queue subscriber: {}", e.getMessage());
+            emitters.remove(emitter);
+            emitter.completeWithError(e);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        dispatcher.shutdown();
+        emitters.forEach(SseEmitter::complete);
+        emitters.clear();
+    }
+}
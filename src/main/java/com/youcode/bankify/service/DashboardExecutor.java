@@ -0,0 +1,65 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.util.QueryCounter;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Bounded pool running the independent queries of a dashboard concurrently.
+ * When the pool and its queue are full the caller runs the query itself, so a burst of
+ * dashboard refreshes slows down instead of failing or growing the pool.
+ */
+@Component
+public class DashboardExecutor {
+
+    private final ThreadPoolExecutor executor;
+
+    public DashboardExecutor(@Value("${bankify.dashboard.executor.threads:8}") int threads,
+                             @Value("${bankify.dashboard.executor.queue-capacity:100}") int queueCapacity) {
+        AtomicInteger sequence = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "dashboard-query-" + sequence.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Run the query on the pool; its statements count against the caller's query budget.
+     */
+    public <T> CompletableFuture<T> submit(Supplier<T> query) {
+        return CompletableFuture.supplyAsync(QueryCounter.propagate(query), executor);
+    }
+
+    /**
+     * Wait for a submitted query, rethrowing its failure as is.
+     */
+    public static <T> T await(CompletableFuture<T> query) {
+        try {
+            return query.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw e;
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+}
@@ -0,0 +1,92 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.entity.UserDashboardSummary;
+import com.youcode.bankify.repository.jpa.UserDashboardSummaryRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Per-user dashboard counters (total balance, active accounts, pending transactions).
+ * Writers apply deltas in their own transaction; a user without a row gets one computed from the
+ * source tables the first time it is needed.
+ */
+@Service
+@RequiredArgsConstructor
+public class DashboardSummaryService {
+
+    private final UserDashboardSummaryRepository userDashboardSummaryRepository;
+
+    @Transactional
+    public UserDashboardSummary getSummary(Long userId) {
+        return userDashboardSummaryRepository.findById(userId).orElseGet(() -> {
+            userDashboardSummaryRepository.insertFromSource(userId);
+            return userDashboardSummaryRepository.findById(userId)
+                    .orElseThrow(() -> new RuntimeException("Dashboard summary could not be built"));
+        });
+    }
+
+    /**
+     * Apply the changes of the current transaction. When a user has no row yet it is computed from
+     * the source tables instead, which already include the flushed changes; if another transaction
+     * inserted the row first, its snapshot could not see them, so the delta is applied on top.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void apply(Delta delta) {
+        delta.changes.forEach((userId, change) -> {
+            if (userDashboardSummaryRepository.applyDelta(userId, change.balance, change.activeAccounts, change.pendingTransactions) == 0
+                    && userDashboardSummaryRepository.insertFromSource(userId) == 0) {
+                userDashboardSummaryRepository.applyDelta(userId, change.balance, change.activeAccounts, change.pendingTransactions);
+            }
+        });
+    }
+
+    public void delete(Long userId) {
+        userDashboardSummaryRepository.deleteById(userId);
+    }
+
+    public static Delta delta() {
+        return new Delta();
+    }
+
+    /**
+     * Counter changes of one unit of work, merged per user.
+     */
+    public static final class Delta {
+        private final Map<Long, Change> changes = new LinkedHashMap<>();
+
+        public Delta balance(Long userId, BigDecimal amount) {
+            change(userId).balance = change(userId).balance.add(amount);
+            return this;
+        }
+
+        public Delta activeAccounts(Long userId, long count) {
+            change(userId).activeAccounts += count;
+            return this;
+        }
+
+        public Delta pendingTransactions(Long userId, long count) {
+            change(userId).pendingTransactions += count;
+            return this;
+        }
+
+        public boolean isEmpty() {
+            return changes.isEmpty();
+        }
+
+        private Change change(Long userId) {
+            return changes.computeIfAbsent(userId, id -> new Change());
+        }
+    }
+
+    private static final class Change {
+        private BigDecimal balance = BigDecimal.ZERO;
+        private long activeAccounts;
+        private long pendingTransactions;
+    }
+}
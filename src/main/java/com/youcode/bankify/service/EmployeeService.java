@@ -1,6 +1,7 @@
 package com.youcode.bankify.service;
 
 
+import com.youcode.bankify.dto.ApprovalQueueEvent;
 import com.youcode.bankify.dto.RecentApprovalDTO;
 import com.youcode.bankify.entity.BankAccount;
 import com.youcode.bankify.entity.Invoice;
@@ -10,15 +11,23 @@ import com.youcode.bankify.repository.jpa.AccountRepository;
 import com.youcode.bankify.repository.jpa.InvoiceRepository;
 import com.youcode.bankify.repository.jpa.LoanRepository;
 import com.youcode.bankify.repository.jpa.TransactionRepository;
+import com.youcode.bankify.util.RefreshingSnapshot;
+import jakarta.annotation.PostConstruct;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -29,64 +38,121 @@ public class EmployeeService {
     private final TransactionRepository transactionRepository;
     private final LoanRepository loanRepository;
     private final InvoiceRepository invoiceRepository;
+    private final SearchOutboxService searchOutboxService;
+    private final DashboardSummaryService dashboardSummaryService;
+    private final DashboardExecutor dashboardExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+
+    @Value("${bankify.dashboard.snapshot-max-age-ms:10000}")
+    private long snapshotMaxAgeMs;
+
+    private RefreshingSnapshot<Map<String, Object>> dashboardSnapshot;
+
+    @PostConstruct
+    void initDashboardSnapshot() {
+        dashboardSnapshot = new RefreshingSnapshot<>(this::loadDashboardSummary, snapshotMaxAgeMs);
+    }
 
     public List<BankAccount> getCustomerAccounts(){
         return accountRepository.findAll();
     }
 
+    @Transactional
     public void approveTransaction(Long transactionId){
         Transaction transaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
+        settlePending(transaction);
         transaction.setStatus("APPROVED");
         transactionRepository.save(transaction);
+        searchOutboxService.enqueue(List.of(transaction));
     }
 
+    @Transactional
     public void rejectTransaction(Long transactionId){
         Transaction transaction = transactionRepository.findById(transactionId)
                 .orElseThrow(() -> new RuntimeException("Transaction not found"));
+        settlePending(transaction);
         transaction.setStatus("REJECTED");
         transactionRepository.save(transaction);
+        searchOutboxService.enqueue(List.of(transaction));
+    }
+
+    private void settlePending(Transaction transaction) {
+        if ("PENDING".equals(transaction.getStatus())) {
+            dashboardSummaryService.apply(DashboardSummaryService.delta()
+                    .pendingTransactions(transaction.getUser().getId(), -1));
+            eventPublisher.publishEvent(ApprovalQueueEvent.resolved(transaction));
+        }
     }
 
     public void approveLoan(Long loanId) {
-        Loan loan = loanRepository.findById(loanId)
-                .orElseThrow(() -> new RuntimeException("Loan not found"));
-        loan.setStatus("APPROVED");
-        loanRepository.save(loan);
+        updateLoanStatus(loanId, "APPROVED");
     }
 
     public void rejectLoan(Long loanId) {
-        Loan loan = loanRepository.findById(loanId)
-                .orElseThrow(() -> new RuntimeException("Loan not found"));
-        loan.setStatus("REJECTED");
-        loanRepository.save(loan);
+        updateLoanStatus(loanId, "REJECTED");
     }
 
     public void approveInvoice(Long invoiceId) {
-        Invoice invoice = invoiceRepository.findById(invoiceId)
-                .orElseThrow(() -> new RuntimeException("Invoice not found"));
-        invoice.setStatus("APPROVED");
-        invoiceRepository.save(invoice);
+        updateInvoiceStatus(invoiceId, "APPROVED");
     }
 
     public void rejectInvoice(Long invoiceId) {
+        updateInvoiceStatus(invoiceId, "REJECTED");
+    }
+
+    private void updateLoanStatus(Long loanId, String status) {
+        Loan loan = loanRepository.findById(loanId)
+                .orElseThrow(() -> new RuntimeException("Loan not found"));
+        boolean wasPending = "PENDING".equals(loan.getStatus());
+        loan.setStatus(status);
+        loanRepository.save(loan);
+        if (wasPending) {
+            eventPublisher.publishEvent(ApprovalQueueEvent.resolved(loan));
+        }
+    }
+
+    private void updateInvoiceStatus(Long invoiceId, String status) {
         Invoice invoice = invoiceRepository.findById(invoiceId)
                 .orElseThrow(() -> new RuntimeException("Invoice not found"));
-        invoice.setStatus("REJECTED");
+        boolean wasPending = "PENDING".equals(invoice.getStatus());
+        invoice.setStatus(status);
         invoiceRepository.save(invoice);
+        if (wasPending) {
+            eventPublisher.publishEvent(ApprovalQueueEvent.resolved(invoice));
+        }
     }
 
+    /**
+     * The counters are the same for every employee, so all of them share one snapshot.
+     */
     public Map<String,Object> getEmployeeDashboardSummary(Long employeeId) {
-        int pendingTransactions = transactionRepository.countByStatus("PENDING");
-        int pendingLoans = loanRepository.countByStatus("PENDING");
-        int pendingInvoices = invoiceRepository.countByStatus("PENDING");
+        return dashboardSnapshot.get();
+    }
+
+    /**
+     * Pending counts read now rather than from the snapshot, as the base of the approval stream.
+     */
+    public Map<String,Object> getCurrentPendingCounts() {
+        return dashboardSnapshot.refresh();
+    }
+
+    @Scheduled(fixedDelayString = "${bankify.dashboard.snapshot-refresh-ms:5000}")
+    public void refreshDashboardSnapshot() {
+        dashboardSnapshot.refresh();
+    }
+
+    private Map<String,Object> loadDashboardSummary() {
+        CompletableFuture<Integer> pendingTransactions = dashboardExecutor.submit(() -> transactionRepository.countByStatus("PENDING"));
+        CompletableFuture<Integer> pendingLoans = dashboardExecutor.submit(() -> loanRepository.countByStatus("PENDING"));
+        CompletableFuture<Integer> pendingInvoices = dashboardExecutor.submit(() -> invoiceRepository.countByStatus("PENDING"));
 
         Map<String,Object> summary = new HashMap<>();
-        summary.put("pendingTransactions", pendingTransactions);
-        summary.put("pendingLoans", pendingLoans);
-        summary.put("pendingInvoices", pendingInvoices);
+        summary.put("pendingTransactions", DashboardExecutor.await(pendingTransactions));
+        summary.put("pendingLoans", DashboardExecutor.await(pendingLoans));
+        summary.put("pendingInvoices", DashboardExecutor.await(pendingInvoices));
 
-        return summary;
+        return Collections.unmodifiableMap(summary);
     }
 
     public List<Map<String,Object>> getRecentTransactions() {
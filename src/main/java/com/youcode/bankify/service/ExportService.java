@@ -0,0 +1,172 @@
+package com.youcode.bankify.service;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.io.SerializedString;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.youcode.bankify.dto.InvoiceExportRow;
+import com.youcode.bankify.dto.LoanExportRow;
+import com.youcode.bankify.dto.TransactionExportRow;
+import com.youcode.bankify.repository.jpa.InvoiceRepository;
+import com.youcode.bankify.repository.jpa.LoanRepository;
+import com.youcode.bankify.repository.jpa.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+
+/**
+ * Streams whole tables to a client without holding them in memory.
+ * Rows are read as projections in keyset pages ({@code id > last id}) and written to the output
+ * stream page by page, so memory stays bounded by the page size whatever the table size.
+ */
+@Service
+@RequiredArgsConstructor
+public class ExportService {
+
+    public enum Format {
+        NDJSON("application/x-ndjson", "ndjson"),
+        CSV("text/csv", "csv");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format parse(String value) {
+            try {
+                return Format.valueOf(value.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unsupported export format: " + value + ", expected ndjson or csv");
+            }
+        }
+    }
+
+    private static final String[] TRANSACTION_COLUMNS =
+            {"id", "amount", "type", "status", "date", "accountNumber", "counterpartyAccountNumber", "userId"};
+    private static final String[] LOAN_COLUMNS =
+            {"id", "amount", "termInMonths", "status", "applicationDate", "userId"};
+    private static final String[] INVOICE_COLUMNS =
+            {"id", "invoiceNumber", "description", "amount", "status", "dueDate", "userId"};
+
+    private final TransactionRepository transactionRepository;
+    private final LoanRepository loanRepository;
+    private final InvoiceRepository invoiceRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${bankify.export.page-size:1000}")
+    private int pageSize;
+
+    public void exportTransactions(Format format, OutputStream out) throws IOException {
+        export(format, out, TRANSACTION_COLUMNS,
+                afterId -> transactionRepository.findExportPage(afterId, PageRequest.of(0, pageSize)),
+                TransactionExportRow::id,
+                row -> new Object[]{row.id(), row.amount(), row.type(), row.status(), row.date(),
+                        row.accountNumber(), row.counterpartyAccountNumber(), row.userId()});
+    }
+
+    public void exportLoans(Format format, OutputStream out) throws IOException {
+        export(format, out, LOAN_COLUMNS,
+                afterId -> loanRepository.findExportPage(afterId, PageRequest.of(0, pageSize)),
+                LoanExportRow::id,
+                row -> new Object[]{row.id(), row.amount(), row.termInMonths(), row.status(),
+                        row.applicationDate(), row.userId()});
+    }
+
+    public void exportInvoices(Format format, OutputStream out) throws IOException {
+        export(format, out, INVOICE_COLUMNS,
+                afterId -> invoiceRepository.findExportPage(afterId, PageRequest.of(0, pageSize)),
+                InvoiceExportRow::id,
+                row -> new Object[]{row.id(), row.invoiceNumber(), row.description(), row.amount(),
+                        row.status(), row.dueDate(), row.userId()});
+    }
+
+    private <T> void export(Format format, OutputStream out, String[] columns, Function<Long, List<T>> pageAfter,
+                            Function<T, Long> idOf, Function<T, Object[]> values) throws IOException {
+        if (format == Format.NDJSON) {
+            writeNdjson(out, pageAfter, idOf);
+        } else {
+            writeCsv(out, columns, pageAfter, idOf, values);
+        }
+    }
+
+    private <T> void writeNdjson(OutputStream out, Function<Long, List<T>> pageAfter, Function<T, Long> idOf) throws IOException {
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(out);
+        generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+        generator.setRootValueSeparator(new SerializedString("\n"));
+
+        long lastId = 0;
+        List<T> page;
+        do {
+            page = pageAfter.apply(lastId);
+            for (T row : page) {
+                generator.writeObject(row);
+                lastId = idOf.apply(row);
+            }
+            generator.flush();
+        } while (page.size() == pageSize);
+
+        if (lastId > 0) {
+            generator.writeRaw('\n');
+        }
+        generator.close();
+    }
+
+    private <T> void writeCsv(OutputStream out, String[] columns, Function<Long, List<T>> pageAfter,
+                              Function<T, Long> idOf, Function<T, Object[]> values) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8));
+        writeCsvLine(writer, columns);
+
+        long lastId = 0;
+        List<T> page;
+        do {
+            page = pageAfter.apply(lastId);
+            for (T row : page) {
+                writeCsvLine(writer, values.apply(row));
+                lastId = idOf.apply(row);
+            }
+            writer.flush();
+        } while (page.size() == pageSize);
+    }
+
+    private void writeCsvLine(Writer writer, Object[] values) throws IOException {
+        for (int i = 0; i < values.length; i++) {
+            if (i > 0) {
+                writer.write(',');
+            }
+            writer.write(csvField(values[i]));
+        }
+        writer.write("\r\n");
+    }
+
+    private String csvField(Object value) {
+        if (value == null) {
+            return "";
+        }
+        String text = value.toString();
+        if (text.indexOf(',') < 0 && text.indexOf('"') < 0 && text.indexOf('\n') < 0 && text.indexOf('\r') < 0) {
+            return text;
+        }
+        return '"' + text.replace("\"", "\"\"") + '"';
+    }
+}
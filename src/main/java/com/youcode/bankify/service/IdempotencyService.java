@@ -0,0 +1,281 @@
+package com.youcode.bankify.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.youcode.bankify.dto.ErrorResponse;
+import com.youcode.bankify.entity.IdempotencyRecord;
+import com.youcode.bankify.exception.OperationPendingException;
+import com.youcode.bankify.exception.RetryableOperationException;
+import com.youcode.bankify.repository.jpa.IdempotencyRecordRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.OffsetDateTime;
+import java.util.Collections;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletionException;
+import java.util.function.Supplier;
+
+/**
+ * Deduplicates client retries carrying an {@code Idempotency-Key} header.
+ * Completed responses are kept in a bounded LRU in front of the {@code idempotency_keys} table;
+ * a repeated request is answered from there without running the balance logic again.
+ * Only final outcomes are stored: a transient failure releases the key, and a claim left behind
+ * by a request that never finished can be taken over once its short lease runs out. A request
+ * whose operation is still queued keeps its claim until the operation settles it.
+ * <p>
+ * The claim is bound to the request thread while the action runs, and {@link TransferEngine} marks it
+ * COMPLETED in the same database transaction as the balance change. A claim that was taken over is
+ * gone by then, so the stale request rolls back instead of moving the money a second time.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class IdempotencyService {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+
+    private static final String IN_PROGRESS = "IN_PROGRESS";
+    private static final String COMPLETED = "COMPLETED";
+
+    private final IdempotencyRecordRepository idempotencyRecordRepository;
+    private final ObjectMapper objectMapper;
+
+    @Value("${bankify.idempotency.ttl-hours:24}")
+    private long ttlHours;
+
+    @Value("${bankify.idempotency.cache-size:10000}")
+    private int cacheSize;
+
+    @Value("${bankify.idempotency.claim-lease-seconds:30}")
+    private long claimLeaseSeconds;
+
+    private static final ThreadLocal<Claim> CURRENT = new ThreadLocal<>();
+
+    private final Map<String, StoredResponse> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(256, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, StoredResponse> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+
+    /**
+     * Run the action once per (user, key); later calls with the same key get the stored response.
+     * {@code appliedResponse} is what gets stored when the balance change commits, before the action returns.
+     */
+    public ResponseEntity<?> execute(String key, Long userId, String scope, Object request,
+                                     Supplier<ResponseEntity<?>> appliedResponse, Supplier<ResponseEntity<?>> action) {
+        if (key == null || key.isBlank()) {
+            return action.get();
+        }
+
+        String cacheKey = userId + ":" + key;
+        String requestHash = hash(scope, request);
+
+        StoredResponse cached = cache.get(cacheKey);
+        if (cached != null && cached.expiresAt().isAfter(OffsetDateTime.now())) {
+            return replay(cached, scope, requestHash);
+        }
+
+        Optional<IdempotencyRecord> existing = idempotencyRecordRepository.findByUserIdAndIdempotencyKey(userId, key);
+        if (existing.isPresent()) {
+            IdempotencyRecord record = existing.get();
+            if (record.getExpiresAt().isBefore(OffsetDateTime.now())) {
+                // only if it is still expired: the request holding it may have completed it meanwhile
+                if (idempotencyRecordRepository.deleteExpired(record.getId(), OffsetDateTime.now()) == 0) {
+                    return error(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still being processed");
+                }
+            } else if (COMPLETED.equals(record.getStatus())) {
+                StoredResponse stored = toStoredResponse(record);
+                cache.put(cacheKey, stored);
+                return replay(stored, scope, requestHash);
+            } else {
+                return error(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still being processed");
+            }
+        }
+
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setIdempotencyKey(key);
+        record.setUserId(userId);
+        record.setScope(scope);
+        record.setRequestHash(requestHash);
+        record.setStatus(IN_PROGRESS);
+        record.setCreatedAt(OffsetDateTime.now());
+        record.setExpiresAt(record.getCreatedAt().plusSeconds(claimLeaseSeconds));
+        try {
+            record = idempotencyRecordRepository.saveAndFlush(record);
+        } catch (DataIntegrityViolationException e) {
+            return error(HttpStatus.CONFLICT, "A request with this Idempotency-Key is still being processed");
+        }
+
+        ResponseEntity<?> applied = appliedResponse.get();
+        Claim claim = new Claim(record.getId(), applied.getStatusCode().value(), toJson(applied.getBody()));
+        ResponseEntity<?> response;
+        CURRENT.set(claim);
+        try {
+            response = action.get();
+        } catch (OperationPendingException e) {
+            awaitOutcome(record, cacheKey, e);
+            throw e;
+        } catch (RuntimeException e) {
+            idempotencyRecordRepository.release(record.getId());
+            throw e;
+        } finally {
+            CURRENT.remove();
+        }
+        if (!isFinal(response.getStatusCode().value())) {
+            idempotencyRecordRepository.release(record.getId());
+            return response;
+        }
+
+        complete(record, cacheKey, response);
+        return response;
+    }
+
+    /**
+     * The claim of the idempotent request running on this thread, or null outside of one.
+     */
+    public static Claim currentClaim() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Store the response the claim's request gets once its balance change is applied; must run inside
+     * the transaction making that change. Fails when the claim was taken over, so that transaction rolls back.
+     */
+    public void markApplied(Claim claim) {
+        int updated = idempotencyRecordRepository.complete(claim.recordId(), claim.appliedStatus(), claim.appliedBody(),
+                OffsetDateTime.now().plusHours(ttlHours));
+        if (updated == 0) {
+            throw new RetryableOperationException("Idempotency-Key was taken over by a retry, the operation was not applied");
+        }
+    }
+
+    private void complete(IdempotencyRecord record, String cacheKey, ResponseEntity<?> response) {
+        record.setStatus(COMPLETED);
+        record.setExpiresAt(OffsetDateTime.now().plusHours(ttlHours));
+        record.setResponseStatus(response.getStatusCode().value());
+        record.setResponseBody(toJson(response.getBody()));
+        if (idempotencyRecordRepository.complete(record.getId(), record.getResponseStatus(), record.getResponseBody(), record.getExpiresAt()) == 0) {
+            log.warn("Idempotency key {} was taken over before its response could be stored", record.getIdempotencyKey());
+            return;
+        }
+        cache.put(cacheKey, toStoredResponse(record));
+    }
+
+    /**
+     * Keep the key claimed for the whole TTL, since the operation may still be applied; once it
+     * settles, store its real response, or release the key if it was not applied for a transient reason.
+     */
+    private void awaitOutcome(IdempotencyRecord record, String cacheKey, OperationPendingException pending) {
+        idempotencyRecordRepository.extendClaim(record.getId(), OffsetDateTime.now().plusHours(ttlHours));
+        pending.getOutcome().whenCompleteAsync((result, failure) -> {
+            try {
+                Throwable cause = failure instanceof CompletionException && failure.getCause() != null ? failure.getCause() : failure;
+                if (cause == null) {
+                    complete(record, cacheKey, pending.getAppliedResponse() != null
+                            ? pending.getAppliedResponse().get()
+                            : ResponseEntity.ok().build());
+                } else if (cause instanceof RetryableOperationException || cause instanceof DataAccessException) {
+                    idempotencyRecordRepository.release(record.getId());
+                } else {
+                    complete(record, cacheKey, error(HttpStatus.BAD_REQUEST, cause.getMessage()));
+                }
+            } catch (RuntimeException e) {
+                log.error("Idempotency key {} could not be settled", record.getIdempotencyKey(), e);
+            }
+        });
+    }
+
+    @Scheduled(fixedDelayString = "${bankify.idempotency.purge-interval-ms:600000}")
+    @Transactional
+    public void purgeExpiredKeys() {
+        OffsetDateTime now = OffsetDateTime.now();
+        int deleted = idempotencyRecordRepository.deleteExpired(now);
+        synchronized (cache) {
+            cache.values().removeIf(stored -> stored.expiresAt().isBefore(now));
+        }
+        if (deleted > 0) {
+            log.info("Purged {} expired idempotency keys", deleted);
+        }
+    }
+
+    /**
+     * Successes and client errors that a retry would reproduce; timeouts, conflicts,
+     * rate limits and server errors may go differently next time.
+     */
+    static boolean isFinal(int status) {
+        if (status >= 200 && status < 300) {
+            return true;
+        }
+        return status >= 400 && status < 500 && status != 408 && status != 409 && status != 423 && status != 425 && status != 429;
+    }
+
+    private ResponseEntity<?> replay(StoredResponse stored, String scope, String requestHash) {
+        if (!stored.scope().equals(scope) || !stored.requestHash().equals(requestHash)) {
+            return error(HttpStatus.UNPROCESSABLE_ENTITY, "Idempotency-Key was already used for a different request");
+        }
+        try {
+            Object body = stored.body() == null ? null : objectMapper.readValue(stored.body(), Object.class);
+            return ResponseEntity.status(stored.status())
+                    .header(REPLAYED_HEADER, "true")
+                    .contentType(MediaType.APPLICATION_JSON)
+                    .body(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Stored idempotent response could not be read", e);
+        }
+    }
+
+    private ResponseEntity<?> error(HttpStatus status, String message) {
+        ErrorResponse error = new ErrorResponse(message);
+        error.setStatus(status.value());
+        return ResponseEntity.status(status).body(error);
+    }
+
+    private StoredResponse toStoredResponse(IdempotencyRecord record) {
+        return new StoredResponse(record.getScope(), record.getRequestHash(), record.getResponseStatus(), record.getResponseBody(), record.getExpiresAt());
+    }
+
+    private String toJson(Object body) {
+        try {
+            return body == null ? null : objectMapper.writeValueAsString(body);
+        } catch (JsonProcessingException e) {
+            throw new RuntimeException("Response could not be stored for idempotent replay", e);
+        }
+    }
+
+    private String hash(String scope, Object request) {
+        try {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            digest.update(scope.getBytes(StandardCharsets.UTF_8));
+            digest.update(objectMapper.writeValueAsBytes(request));
+            return HexFormat.of().formatHex(digest.digest());
+        } catch (NoSuchAlgorithmException | JsonProcessingException e) {
+            throw new RuntimeException("Request could not be fingerprinted", e);
+        }
+    }
+
+    /**
+     * An IN_PROGRESS key held by a request, with the response to store for it once its operation is applied.
+     */
+    public record Claim(Long recordId, int appliedStatus, String appliedBody) {}
+
+    private record StoredResponse(String scope, String requestHash, int status, String body, OffsetDateTime expiresAt) {}
+}
@@ -1,5 +1,6 @@
 package com.youcode.bankify.service;
 
+import com.youcode.bankify.dto.ApprovalQueueEvent;
 import com.youcode.bankify.dto.InvoiceRequestDTO;
 import com.youcode.bankify.dto.InvoiceResponseDTO;
 import com.youcode.bankify.entity.Invoice;
@@ -7,6 +8,7 @@ import com.youcode.bankify.entity.User;
 import com.youcode.bankify.repository.jpa.InvoiceRepository;
 import com.youcode.bankify.repository.jpa.UserRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.util.List;
@@ -21,6 +23,9 @@ public class InvoiceService {
     @Autowired
     private UserRepository userRepository;
 
+    @Autowired
+    private ApplicationEventPublisher eventPublisher;
+
     public Invoice createInvoice(InvoiceRequestDTO request, Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -33,7 +38,9 @@ public class InvoiceService {
         invoice.setDueDate(request.getDueDate());
         invoice.setUser(user);
 
-        return invoiceRepository.save(invoice);
+        Invoice savedInvoice = invoiceRepository.save(invoice);
+        eventPublisher.publishEvent(ApprovalQueueEvent.pending(savedInvoice));
+        return savedInvoice;
     }
 
     public List<InvoiceResponseDTO> getInvoices(Long userId) {
@@ -53,8 +60,13 @@ public class InvoiceService {
     public Invoice updateInvoiceStatus(Long invoiceId, String status) {
         Invoice invoice = invoiceRepository.findById(invoiceId)
                 .orElseThrow(() -> new RuntimeException("Invoice not found"));
+        boolean wasPending = "PENDING".equals(invoice.getStatus());
         invoice.setStatus(status);
-        return invoiceRepository.save(invoice);
+        Invoice savedInvoice = invoiceRepository.save(invoice);
+        if (wasPending && !"PENDING".equals(status)) {
+            eventPublisher.publishEvent(ApprovalQueueEvent.resolved(savedInvoice));
+        }
+        return savedInvoice;
     }
 
 
@@ -0,0 +1,153 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.entity.BalanceSnapshot;
+import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.entity.LedgerEntry;
+import com.youcode.bankify.repository.jpa.AccountRepository;
+import com.youcode.bankify.repository.jpa.BalanceSnapshotRepository;
+import com.youcode.bankify.repository.jpa.LedgerEntryRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Append-only double-entry ledger.
+ * Every balance movement is written as a journal of postings summing to zero, and the balance
+ * of an account is its latest snapshot plus the postings made against later versions of the account.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class LedgerService {
+
+    public static final String CUSTOMER = "CUSTOMER";
+    public static final String CASH = "CASH";
+    public static final String FEE_INCOME = "FEE_INCOME";
+
+    private final LedgerEntryRepository ledgerEntryRepository;
+    private final BalanceSnapshotRepository balanceSnapshotRepository;
+    private final AccountRepository accountRepository;
+    private final TransferEngine transferEngine;
+
+    @Value("${bankify.ledger.snapshot-threshold:100}")
+    private long snapshotThreshold;
+
+    public void postOpeningBalance(BankAccount account, BigDecimal amount) {
+        post("OPENING", List.of(
+                customer(account, amount),
+                house(CASH, amount.negate())));
+    }
+
+    public void postDeposit(BankAccount account, BigDecimal amount) {
+        post("DEPOSIT", List.of(
+                customer(account, amount),
+                house(CASH, amount.negate())));
+    }
+
+    public void postWithdrawal(BankAccount account, BigDecimal amount) {
+        post("WITHDRAWAL", List.of(
+                customer(account, amount.negate()),
+                house(CASH, amount)));
+    }
+
+    public void postTransfer(BankAccount fromAccount, BankAccount toAccount, BigDecimal amount, BigDecimal fee) {
+        post("TRANSFER", List.of(
+                customer(fromAccount, amount.add(fee).negate()),
+                customer(toAccount, amount),
+                house(FEE_INCOME, fee)));
+    }
+
+    /**
+     * One journal for several transfers between two accounts, each side posted at its net amount.
+     */
+    public void postNetTransfer(BankAccount account, BigDecimal accountNet, BankAccount counterparty, BigDecimal counterpartyNet, BigDecimal fees) {
+        post("NET_TRANSFER", List.of(
+                customer(account, accountNet),
+                customer(counterparty, counterpartyNet),
+                house(FEE_INCOME, fees)));
+    }
+
+    /**
+     * Current ledger balance: latest snapshot plus the postings made since.
+     */
+    public BigDecimal getBalance(Long accountId) {
+        Optional<BalanceSnapshot> snapshot = balanceSnapshotRepository.findTopByAccountIdOrderByAccountVersionDesc(accountId);
+        BigDecimal base = snapshot.map(BalanceSnapshot::getBalance).orElse(BigDecimal.ZERO);
+        long afterVersion = snapshot.map(BalanceSnapshot::getAccountVersion).orElse(-1L);
+        return base.add(ledgerEntryRepository.sumSince(accountId, afterVersion));
+    }
+
+    /**
+     * Roll accounts with enough new postings into a fresh snapshot.
+     */
+    @Scheduled(fixedDelayString = "${bankify.ledger.snapshot-interval-ms:300000}")
+    public void snapshotBalances() {
+        List<Long> accountIds = ledgerEntryRepository.findAccountsDueForSnapshot(snapshotThreshold);
+
+        int written = 0;
+        for (Long accountId : accountIds) {
+            try {
+                transferEngine.execute(List.of(accountId), () -> snapshot(accountId));
+                written++;
+            } catch (RuntimeException e) {
+                log.warn("Ledger snapshot of account {} skipped: {}", accountId, e.getMessage());
+            }
+        }
+
+        if (written > 0) {
+            log.info("Ledger snapshots written for {} accounts", written);
+        }
+    }
+
+    /**
+     * Runs under the account stripe with the account row locked. Every committed posting was made
+     * against the version read here or an earlier one; bumping the version makes a writer still
+     * holding that version fail its optimistic check and post again against a later one, so no
+     * posting can land behind the snapshot.
+     */
+    private void snapshot(Long accountId) {
+        BankAccount account = accountRepository.lockById(accountId)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        long version = account.getVersion();
+
+        BalanceSnapshot snapshot = new BalanceSnapshot();
+        snapshot.setAccountId(accountId);
+        snapshot.setBalance(getBalance(accountId));
+        snapshot.setAsOf(OffsetDateTime.now());
+        snapshot.setAccountVersion(version);
+        balanceSnapshotRepository.save(snapshot);
+        accountRepository.incrementVersion(accountId);
+    }
+
+    private void post(String entryType, List<Entry> entries) {
+        BigDecimal total = entries.stream().map(Entry::amount).reduce(BigDecimal.ZERO, BigDecimal::add);
+        if (total.signum() != 0) {
+            throw new IllegalStateException("Unbalanced " + entryType + " journal: " + total);
+        }
+
+        String journalId = UUID.randomUUID().toString();
+        OffsetDateTime now = OffsetDateTime.now();
+        ledgerEntryRepository.saveAll(entries.stream()
+                .filter(entry -> entry.amount().signum() != 0)
+                .map(entry -> new LedgerEntry(journalId, entry.ledgerAccount(), entry.accountId(), entry.accountVersion(), entryType, entry.amount(), now))
+                .toList());
+    }
+
+    private Entry customer(BankAccount account, BigDecimal amount) {
+        return new Entry(CUSTOMER, account.getId(), account.getVersion(), amount);
+    }
+
+    private Entry house(String ledgerAccount, BigDecimal amount) {
+        return new Entry(ledgerAccount, null, null, amount);
+    }
+
+    private record Entry(String ledgerAccount, Long accountId, Long accountVersion, BigDecimal amount) {}
+}
@@ -1,5 +1,6 @@
 package com.youcode.bankify.service;
 
+import com.youcode.bankify.dto.ApprovalQueueEvent;
 import com.youcode.bankify.dto.LoanRequestDTO;
 import com.youcode.bankify.dto.LoanResponseDTO;
 import com.youcode.bankify.entity.Loan;
@@ -8,6 +9,7 @@ import com.youcode.bankify.repository.jpa.LoanRepository;
 import com.youcode.bankify.repository.jpa.UserRepository;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
@@ -20,6 +22,7 @@ public class LoanService {
 
     private final LoanRepository loanRepository;
     private final UserRepository userRepository;
+    private final ApplicationEventPublisher eventPublisher;
 
     public Loan applyForLoan(LoanRequestDTO request, Long userId) {
         User user = userRepository.findById(userId)
@@ -36,7 +39,9 @@ public class LoanService {
         loan.setApplicationDate(LocalDateTime.now());
         loan.setUser(user);
 
-        return loanRepository.save(loan);
+        Loan savedLoan = loanRepository.save(loan);
+        eventPublisher.publishEvent(ApprovalQueueEvent.pending(savedLoan));
+        return savedLoan;
     }
 
     public List<LoanResponseDTO> getLoans(Long userId) {
@@ -55,7 +60,12 @@ public class LoanService {
     public Loan approveOrRejectLoan(Long loanId, String status) {
         Loan loan = loanRepository.findById(loanId)
                 .orElseThrow(() -> new RuntimeException("Loan not found"));
+        boolean wasPending = "PENDING".equals(loan.getStatus());
         loan.setStatus(status);
-        return loanRepository.save(loan);
+        Loan savedLoan = loanRepository.save(loan);
+        if (wasPending && !"PENDING".equals(status)) {
+            eventPublisher.publishEvent(ApprovalQueueEvent.resolved(savedLoan));
+        }
+        return savedLoan;
     }
 }
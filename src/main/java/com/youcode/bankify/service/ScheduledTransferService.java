@@ -1,23 +1,63 @@
 package com.youcode.bankify.service;
 
+import com.youcode.bankify.dto.ScheduledRunStats;
 import com.youcode.bankify.dto.ScheduledTransferResponse;
-import com.youcode.bankify.dto.TransferRequest;
 import com.youcode.bankify.entity.BankAccount;
 import com.youcode.bankify.entity.ScheduledTransfer;
 import com.youcode.bankify.repository.jpa.AccountRepository;
 import com.youcode.bankify.repository.jpa.ScheduledTransferRepository;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+/**
+ * Executes due standing orders.
+ * Due transfers are claimed in chunks through a lease ({@code SELECT ... FOR UPDATE SKIP LOCKED}),
+ * so any number of nodes can run the job at the same time and each transfer executes once.
+ * Each chunk is split into partitions that share no account, which run in parallel on a worker
+ * pool without contending for account locks. A partition commits in small batches, and the
+ * transfers of one account keep their id order inside it. The next chunk starts once the current
+ * one has committed.
+ * A failed occurrence stays due and is retried with exponential backoff until it runs out of
+ * attempts; it is then skipped and the transfer waits for its next occurrence, so one bad day does
+ * not end a standing order. Transfers past their end date are retired.
+ * With {@code bankify.scheduled-transfer.netting.enabled}, the transfers between two accounts in
+ * both directions are committed in one batch and settled on their net amounts.
+ */
+@Slf4j
 @Service
 @RequiredArgsConstructor
 public class ScheduledTransferService {
@@ -25,32 +65,409 @@ public class ScheduledTransferService {
     private final ScheduledTransferRepository scheduledTransferRepository;
     private final AccountRepository accountRepository;
     private final UserService userService;
+    private final TransferEngine transferEngine;
+    private final TransactionTemplate transactionTemplate;
 
-    @Scheduled(cron = "0 0 0 * * *")
+    @Value("${bankify.scheduled-transfer.chunk-size:500}")
+    private int chunkSize;
+
+    @Value("${bankify.scheduled-transfer.commit-size:50}")
+    private int commitSize;
+
+    @Value("${bankify.scheduled-transfer.workers:4}")
+    private int workers;
+
+    @Value("${bankify.scheduled-transfer.lease-seconds:300}")
+    private long leaseSeconds;
+
+    @Value("${bankify.scheduled-transfer.netting.enabled:false}")
+    private boolean netting;
+
+    @Value("${bankify.scheduled-transfer.retry.max-attempts:5}")
+    private int maxAttempts;
+
+    @Value("${bankify.scheduled-transfer.retry.base-seconds:300}")
+    private long retryBaseSeconds;
+
+    @Value("${bankify.scheduled-transfer.retry.max-backoff-seconds:21600}")
+    private long retryMaxBackoffSeconds;
+
+    /**
+     * Identifies this instance in the lease columns; defaults to the host name plus a random suffix.
+     */
+    @Value("${bankify.node-id:}")
+    private String nodeId;
+
+    private ExecutorService workerPool;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private volatile ScheduledRunStats lastRun;
+
+    @PostConstruct
+    void startWorkers() {
+        if (nodeId == null || nodeId.isBlank()) {
+            nodeId = hostName() + "-" + UUID.randomUUID().toString().substring(0, 8);
+        }
+        AtomicInteger sequence = new AtomicInteger();
+        workerPool = Executors.newFixedThreadPool(workers, runnable -> {
+            Thread thread = new Thread(runnable, "scheduled-transfer-" + sequence.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void stopWorkers() {
+        workerPool.shutdown();
+    }
+
+    private static String hostName() {
+        try {
+            return InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            return "bankify";
+        }
+    }
+
+    @Scheduled(cron = "${bankify.scheduled-transfer.cron:0 0 0 * * *}")
     public void executeScheduledTransfers(){
+        if (!running.compareAndSet(false, true)) {
+            log.warn("Scheduled transfer run skipped, the previous run is still in progress");
+            return;
+        }
+        ScheduledRunStats stats = new ScheduledRunStats();
+        stats.setStartedAt(OffsetDateTime.now());
+        stats.setRunning(true);
+        stats.setWorkers(workers);
+        lastRun = stats;
+        try {
+            stats.setRetired(transactionTemplate.execute(status -> scheduledTransferRepository.retireEnded()));
+            runDueTransfers(stats.getStartedAt(), stats);
+        } finally {
+            stats.setFinishedAt(OffsetDateTime.now());
+            stats.setDurationMillis(Duration.between(stats.getStartedAt(), stats.getFinishedAt()).toMillis());
+            stats.setRunning(false);
+            running.set(false);
+            log.info("Scheduled transfer run finished: {} due, {} succeeded, {} failed, {} retired, {} chunks in {} ms",
+                    stats.getDueTransfers(), stats.getSucceeded(), stats.getFailed(), stats.getRetired(), stats.getChunks(), stats.getDurationMillis());
+        }
+    }
+
+    /**
+     * Statistics of the current or last run, null before the first run.
+     */
+    public ScheduledRunStats getLastRun() {
+        return lastRun;
+    }
+
+    private void runDueTransfers(OffsetDateTime now, ScheduledRunStats stats) {
+        long lastId = 0;
+        while (true) {
+            List<ScheduledTransfer> chunk = claimChunk(now, lastId);
+            if (chunk.isEmpty()) {
+                break;
+            }
+            lastId = chunk.get(chunk.size() - 1).getId();
+            int succeeded = executeChunk(chunk);
+
+            stats.setChunks(stats.getChunks() + 1);
+            stats.setDueTransfers(stats.getDueTransfers() + chunk.size());
+            stats.setSucceeded(stats.getSucceeded() + succeeded);
+            stats.setFailed(stats.getFailed() + chunk.size() - succeeded);
+        }
+    }
+
+    /**
+     * Execute the given transfers if they are due and nobody else has claimed them, as fired by
+     * {@link StandingOrderScheduler}; returns how many were executed.
+     */
+    public int executeDue(Collection<Long> transferIds) {
         OffsetDateTime now = OffsetDateTime.now();
-        List<ScheduledTransfer> transfersToExecute = scheduledTransferRepository.findByNextExecutionDateBefore(now);
+        List<ScheduledTransfer> claimed = claim(() -> scheduledTransferRepository.findClaimableIn(transferIds, now));
+        return claimed.isEmpty() ? 0 : executeChunk(claimed);
+    }
+
+    /**
+     * Run the partitions of a claimed chunk concurrently on the worker pool; returns how many transfers succeeded.
+     */
+    private int executeChunk(List<ScheduledTransfer> chunk) {
+        List<CompletableFuture<Integer>> partitions = new ArrayList<>();
+        for (List<ScheduledTransfer> partition : partitionByAccount(chunk)) {
+            partitions.add(CompletableFuture.supplyAsync(() -> executePartition(partition), workerPool));
+        }
+        int succeeded = partitions.stream().mapToInt(CompletableFuture::join).sum();
+        releaseLeases(chunk);
+        return succeeded;
+    }
 
-        for(ScheduledTransfer transfer : transfersToExecute){
-            try{
-                TransferRequest transferRequest = new TransferRequest();
-                transferRequest.setFromAccount(transfer.getFromAccountId());
-                var toAcc = accountRepository.findById(transfer.getToAccountId())
-                        .orElseThrow(() -> new IllegalArgumentException("Account not found"));
+    /**
+     * Lease the next due transfers to this node. Rows another node is claiming right now are
+     * skipped, and a lease left behind by a crashed node is taken over once it expires.
+     */
+    private List<ScheduledTransfer> claimChunk(OffsetDateTime now, long afterId) {
+        return claim(() -> scheduledTransferRepository.findClaimable(now, afterId, chunkSize));
+    }
 
-                transferRequest.setToAccountNumber(toAcc.getAccountNumber());
-                transferRequest.setAmount(transfer.getAmount().doubleValue());
-                transferRequest.setTransactionType("PERMANENT");
+    private List<ScheduledTransfer> claim(Supplier<List<Long>> claimable) {
+        return transactionTemplate.execute(status -> {
+            List<Long> ids = claimable.get();
+            if (ids.isEmpty()) {
+                return List.<ScheduledTransfer>of();
+            }
+            scheduledTransferRepository.lease(ids, nodeId, leaseSeconds);
+            return scheduledTransferRepository.findByIdInOrderByIdAsc(ids);
+        });
+    }
 
-                userService.transferFundsForScheduledJob(transferRequest);
+    /**
+     * Executed transfers already dropped their lease on commit; this frees the failed ones
+     * so the next run can pick them up.
+     */
+    private void releaseLeases(List<ScheduledTransfer> chunk) {
+        List<Long> ids = chunk.stream().map(ScheduledTransfer::getId).collect(Collectors.toList());
+        transactionTemplate.executeWithoutResult(status -> scheduledTransferRepository.releaseLeases(ids, nodeId));
+    }
 
-                transfer.setNextExecutionDate(calculateNextExecutionDate(transfer));
-                scheduledTransferRepository.save(transfer);
-            }catch (Exception e){
-                System.out.println("Error executing transfer: " +e.getMessage());
+    /**
+     * Split a chunk into at most {@code workers} partitions sharing no account. Transfers linked by an
+     * account, directly or through other transfers, stay in one partition, so partitions never wait on
+     * each other's account locks, debits and credits alike. The groups of linked transfers are spread
+     * largest first over the least loaded partition.
+     */
+    private List<List<ScheduledTransfer>> partitionByAccount(List<ScheduledTransfer> chunk) {
+        Map<Long, Long> roots = new HashMap<>();
+        for (ScheduledTransfer transfer : chunk) {
+            Long from = findRoot(roots, transfer.getFromAccountId());
+            Long to = findRoot(roots, transfer.getToAccountId());
+            if (!from.equals(to)) {
+                roots.put(to, from);
             }
         }
+        Map<Long, List<ScheduledTransfer>> linked = new LinkedHashMap<>();
+        for (ScheduledTransfer transfer : chunk) {
+            linked.computeIfAbsent(findRoot(roots, transfer.getFromAccountId()), root -> new ArrayList<>()).add(transfer);
+        }
+
+        List<List<ScheduledTransfer>> groups = new ArrayList<>(linked.values());
+        groups.sort(Comparator.comparingInt(List<ScheduledTransfer>::size).reversed());
+        List<List<ScheduledTransfer>> partitions = new ArrayList<>();
+        for (List<ScheduledTransfer> group : groups) {
+            if (partitions.size() < workers) {
+                partitions.add(new ArrayList<>(group));
+            } else {
+                partitions.stream().min(Comparator.comparingInt(List::size)).orElseThrow().addAll(group);
+            }
+        }
+        return partitions;
     }
+
+    private static Long findRoot(Map<Long, Long> roots, Long accountId) {
+        Long root = accountId;
+        while (roots.containsKey(root)) {
+            root = roots.get(root);
+        }
+        // point the whole path at the root so later lookups are short
+        Long current = accountId;
+        while (!current.equals(root)) {
+            Long next = roots.get(current);
+            roots.put(current, root);
+            current = next;
+        }
+        return root;
+    }
+
+    /**
+     * Apply a partition in transactions of about {@code bankify.scheduled-transfer.commit-size}
+     * transfers, so account locks are held briefly; returns how many transfers succeeded.
+     */
+    private int executePartition(List<ScheduledTransfer> partition) {
+        int succeeded = 0;
+        for (List<ScheduledTransfer> batch : commitBatches(partition)) {
+            succeeded += executeBatch(batch);
+        }
+        return succeeded;
+    }
+
+    /**
+     * With netting, the transfers between the same two accounts stay in one batch so they can be netted.
+     */
+    private List<List<ScheduledTransfer>> commitBatches(List<ScheduledTransfer> partition) {
+        Map<Object, List<ScheduledTransfer>> units = new LinkedHashMap<>();
+        for (ScheduledTransfer transfer : partition) {
+            Object key = netting
+                    ? List.of(Math.min(transfer.getFromAccountId(), transfer.getToAccountId()),
+                              Math.max(transfer.getFromAccountId(), transfer.getToAccountId()))
+                    : transfer.getId();
+            units.computeIfAbsent(key, unit -> new ArrayList<>()).add(transfer);
+        }
+
+        List<List<ScheduledTransfer>> batches = new ArrayList<>();
+        List<ScheduledTransfer> batch = new ArrayList<>();
+        for (List<ScheduledTransfer> unit : units.values()) {
+            if (!batch.isEmpty() && batch.size() + unit.size() > commitSize) {
+                batches.add(batch);
+                batch = new ArrayList<>();
+            }
+            batch.addAll(unit);
+        }
+        if (!batch.isEmpty()) {
+            batches.add(batch);
+        }
+        return batches;
+    }
+
+    /**
+     * Apply one batch in a single transaction; returns how many transfers succeeded.
+     * If the shared transaction cannot commit, its transfers are retried one by one so a
+     * single bad transfer does not hold back the others.
+     */
+    private int executeBatch(List<ScheduledTransfer> batch) {
+        try {
+            return commit(batch);
+        } catch (RuntimeException e) {
+            if (batch.size() == 1) {
+                Long transferId = batch.get(0).getId();
+                log.warn("Scheduled transfer {} failed: {}", transferId, e.getMessage());
+                transactionTemplate.executeWithoutResult(status -> recordFailure(batch.get(0), e.getMessage()));
+                return 0;
+            }
+            log.warn("Batch of {} scheduled transfers failed, retrying them one by one: {}", batch.size(), e.getMessage());
+            int succeeded = 0;
+            for (ScheduledTransfer transfer : batch) {
+                succeeded += executeBatch(List.of(transfer));
+            }
+            return succeeded;
+        }
+    }
+
+    private int commit(List<ScheduledTransfer> partition) {
+        Set<Long> accountIds = new HashSet<>();
+        Map<ScheduledTransfer, ScheduleState> loaded = new HashMap<>();
+        Map<Long, OffsetDateTime> nextExecutionDates = new HashMap<>();
+        for (ScheduledTransfer transfer : partition) {
+            accountIds.add(transfer.getFromAccountId());
+            accountIds.add(transfer.getToAccountId());
+            loaded.put(transfer, ScheduleState.of(transfer));
+            nextExecutionDates.put(transfer.getId(), calculateNextExecutionDate(transfer));
+        }
+
+        Map<Long, String> failures = new HashMap<>();
+        try {
+            transferEngine.execute(accountIds, () -> {
+                // an attempt retried after a version conflict starts from the rows as they were loaded
+                loaded.forEach((transfer, state) -> state.restore(transfer));
+                failures.clear();
+                // a transfer whose lease expired meanwhile may be running on another node
+                Set<Long> leased = new HashSet<>(scheduledTransferRepository.lockLeased(nextExecutionDates.keySet(), nodeId));
+                List<ScheduledTransfer> owned = new ArrayList<>();
+                for (ScheduledTransfer transfer : partition) {
+                    if (leased.contains(transfer.getId())) {
+                        owned.add(transfer);
+                    } else {
+                        failures.put(transfer.getId(), "Lease expired before the transfer could run");
+                    }
+                }
+                if (!owned.isEmpty()) {
+                    failures.putAll(userService.applyScheduledTransfers(owned, netting));
+                }
+
+                List<ScheduledTransfer> executed = new ArrayList<>();
+                for (ScheduledTransfer transfer : owned) {
+                    String failure = failures.get(transfer.getId());
+                    if (failure != null) {
+                        recordFailure(transfer, failure);
+                        continue;
+                    }
+                    OffsetDateTime nextExecutionDate = nextExecutionDates.get(transfer.getId());
+                    transfer.setNextExecutionDate(nextExecutionDate);
+                    transfer.setAttempts(0);
+                    transfer.setRetryAt(null);
+                    transfer.setLastError(null);
+                    if (transfer.getEndDate() != null && nextExecutionDate.isAfter(transfer.getEndDate())) {
+                        transfer.setStatus(ScheduledTransfer.COMPLETED);
+                    }
+                    transfer.setLeaseOwner(null);
+                    transfer.setLeaseUntil(null);
+                    executed.add(transfer);
+                }
+                scheduledTransferRepository.saveAll(executed);
+            });
+        } catch (RuntimeException e) {
+            // rolled back: undo every change to the entities before the transfers are retried one by one
+            loaded.forEach((transfer, state) -> state.restore(transfer));
+            throw e;
+        }
+
+        failures.forEach((transferId, reason) -> log.warn("Scheduled transfer {} failed: {}", transferId, reason));
+        return partition.size() - failures.size();
+    }
+
+    /**
+     * Must run inside a transaction; a transfer that is no longer ACTIVE is left alone.
+     * The occurrence is retried after a backoff until it has failed {@code maxAttempts} times, then
+     * skipped. Only a transfer whose next occurrence cannot be computed is marked FAILED.
+     */
+    private void recordFailure(ScheduledTransfer transfer, String reason) {
+        String error = reason == null ? "Unknown error" : reason;
+        int attempts = transfer.getAttempts() + 1;
+        if (attempts < maxAttempts) {
+            OffsetDateTime retryAt = OffsetDateTime.now()
+                    .plusSeconds(backoffSeconds(transfer.getAttempts(), retryBaseSeconds, retryMaxBackoffSeconds));
+            scheduledTransferRepository.recordRetry(transfer.getId(), truncate(error), retryAt);
+            return;
+        }
+
+        OffsetDateTime nextExecutionDate;
+        try {
+            nextExecutionDate = calculateNextExecutionDate(transfer);
+        } catch (IllegalArgumentException e) {
+            scheduledTransferRepository.markFailed(transfer.getId(), truncate(e.getMessage() + ": " + error));
+            return;
+        }
+        String status = transfer.getEndDate() != null && nextExecutionDate.isAfter(transfer.getEndDate())
+                ? ScheduledTransfer.COMPLETED
+                : ScheduledTransfer.ACTIVE;
+        log.warn("Scheduled transfer {} skipped its occurrence of {} after {} failed attempts",
+                transfer.getId(), transfer.getNextExecutionDate(), attempts);
+        scheduledTransferRepository.skipOccurrence(transfer.getId(),
+                truncate("Occurrence of " + transfer.getNextExecutionDate() + " skipped after " + attempts + " failed attempts: " + error),
+                nextExecutionDate, status);
+    }
+
+    /**
+     * The fields {@link #commit} changes on a transfer, so a rolled-back commit can put them back.
+     */
+    private record ScheduleState(OffsetDateTime nextExecutionDate, String status, int attempts, OffsetDateTime retryAt,
+                                 String lastError, String leaseOwner, OffsetDateTime leaseUntil) {
+
+        static ScheduleState of(ScheduledTransfer transfer) {
+            return new ScheduleState(transfer.getNextExecutionDate(), transfer.getStatus(), transfer.getAttempts(),
+                    transfer.getRetryAt(), transfer.getLastError(), transfer.getLeaseOwner(), transfer.getLeaseUntil());
+        }
+
+        void restore(ScheduledTransfer transfer) {
+            transfer.setNextExecutionDate(nextExecutionDate);
+            transfer.setStatus(status);
+            transfer.setAttempts(attempts);
+            transfer.setRetryAt(retryAt);
+            transfer.setLastError(lastError);
+            transfer.setLeaseOwner(leaseOwner);
+            transfer.setLeaseUntil(leaseUntil);
+        }
+    }
+
+    /**
+     * Delay before retrying an occurrence that has already failed {@code failedAttempts} times:
+     * {@code baseSeconds} doubled per earlier failure, capped at {@code maxBackoffSeconds}.
+     */
+    static long backoffSeconds(int failedAttempts, long baseSeconds, long maxBackoffSeconds) {
+        int doublings = Math.min(Math.max(failedAttempts, 0), 30);
+        return Math.min(maxBackoffSeconds, baseSeconds << doublings);
+    }
+
+    private static String truncate(String error) {
+        return error.length() > 1000 ? error.substring(0, 1000) : error;
+    }
+
     private OffsetDateTime calculateNextExecutionDate(ScheduledTransfer transfer){
         OffsetDateTime nextExecutionDate = transfer.getNextExecutionDate();
 
@@ -71,21 +488,36 @@ public class ScheduledTransferService {
     public List<ScheduledTransferResponse> getScheduledTransfersByAccountId(Long accountId , int page , int size) {
         Pageable pageable = PageRequest.of(page, size);
         List<ScheduledTransfer> scheduledTransfers = scheduledTransferRepository.findByFromAccountIdOrToAccountId(accountId, accountId , pageable);
-        return scheduledTransfers.stream().map(this::mapToScheduledTransferResponse).collect(Collectors.toList());
+
+        // both sides of every transfer on the page in one query
+        Set<Long> accountIds = new HashSet<>();
+        for (ScheduledTransfer transfer : scheduledTransfers) {
+            accountIds.add(transfer.getFromAccountId());
+            accountIds.add(transfer.getToAccountId());
+        }
+        Map<Long, BankAccount> accounts = accountsById(accountIds);
+        return scheduledTransfers.stream()
+                .map(transfer -> mapToScheduledTransferResponse(transfer, accounts))
+                .collect(Collectors.toList());
+    }
+
+    private Map<Long, BankAccount> accountsById(Set<Long> accountIds) {
+        return accountRepository.findAllById(accountIds).stream()
+                .collect(Collectors.toMap(BankAccount::getId, Function.identity()));
     }
 
-    private ScheduledTransferResponse mapToScheduledTransferResponse(ScheduledTransfer transfer) {
+    private ScheduledTransferResponse mapToScheduledTransferResponse(ScheduledTransfer transfer, Map<Long, BankAccount> accounts) {
         ScheduledTransferResponse dto = new ScheduledTransferResponse();
         dto.setId(transfer.getId());
         dto.setFromAccountId(transfer.getFromAccountId());
 
-        BankAccount fromAccount = accountRepository.findById(transfer.getFromAccountId())
+        BankAccount fromAccount = Optional.ofNullable(accounts.get(transfer.getFromAccountId()))
                 .orElseThrow(() -> new RuntimeException("From account not found"));
         dto.setFromAccountNumber(fromAccount.getAccountNumber());
 
         dto.setToAccountId(transfer.getToAccountId());
 
-        BankAccount toAccount = accountRepository.findById(transfer.getToAccountId())
+        BankAccount toAccount = Optional.ofNullable(accounts.get(transfer.getToAccountId()))
                 .orElseThrow(() -> new RuntimeException("To account not found"));
         dto.setToAccountNumber(toAccount.getAccountNumber());
 
@@ -93,6 +525,10 @@ public class ScheduledTransferService {
         dto.setFrequency(transfer.getFrequency());
         dto.setNextExecutionDate(transfer.getNextExecutionDate());
         dto.setEndDate(transfer.getEndDate());
+        dto.setStatus(transfer.getStatus());
+        dto.setAttempts(transfer.getAttempts());
+        dto.setRetryAt(transfer.getRetryAt());
+        dto.setLastError(transfer.getLastError());
         return dto;
     }
 }
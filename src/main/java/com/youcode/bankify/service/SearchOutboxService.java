@@ -0,0 +1,146 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.entity.SearchOutboxEvent;
+import com.youcode.bankify.entity.Transaction;
+import com.youcode.bankify.repository.elasticsearch.TransactionIndexWriter;
+import com.youcode.bankify.repository.jpa.SearchOutboxRepository;
+import com.youcode.bankify.repository.jpa.TransactionRepository;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * Transactional outbox between Postgres and the search index.
+ * Writers enqueue an event next to the transaction row; the relay drains events in id order
+ * and indexes the current state of each transaction in bulk, so a retried or duplicated event
+ * never moves a document backwards.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchOutboxService {
+
+    private static final long MAX_BACKOFF_SECONDS = 300;
+
+    private final SearchOutboxRepository searchOutboxRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionIndexWriter transactionIndexWriter;
+
+    @Value("${bankify.search.outbox.batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Must be called inside the transaction that wrote the transactions.
+     */
+    public void enqueue(Collection<Transaction> transactions) {
+        OffsetDateTime now = OffsetDateTime.now();
+        List<SearchOutboxEvent> events = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            SearchOutboxEvent event = new SearchOutboxEvent();
+            event.setTransactionId(transaction.getId());
+            event.setCreatedAt(now);
+            event.setNextAttemptAt(now);
+            events.add(event);
+        }
+        searchOutboxRepository.saveAll(events);
+    }
+
+    @Scheduled(fixedDelayString = "${bankify.search.outbox.poll-interval-ms:1000}")
+    public void relay() {
+        int drained;
+        do {
+            drained = relayBatch();
+        } while (drained == batchSize);
+    }
+
+    private int relayBatch() {
+        List<SearchOutboxEvent> events = searchOutboxRepository.findByNextAttemptAtLessThanEqualOrderByIdAsc(
+                OffsetDateTime.now(), PageRequest.of(0, batchSize));
+        if (events.isEmpty()) {
+            return 0;
+        }
+
+        // one bulk item per transaction, in the order of its latest event
+        Map<Long, List<SearchOutboxEvent>> eventsByTransaction = new LinkedHashMap<>();
+        for (SearchOutboxEvent event : events) {
+            eventsByTransaction.remove(event.getTransactionId());
+            eventsByTransaction.computeIfAbsent(event.getTransactionId(), id -> new ArrayList<>());
+        }
+        for (SearchOutboxEvent event : events) {
+            eventsByTransaction.get(event.getTransactionId()).add(event);
+        }
+        Map<Long, Transaction> transactions = transactionRepository.findAllById(eventsByTransaction.keySet()).stream()
+                .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+
+        Map<Long, CompletableFuture<Void>> outcomes = new LinkedHashMap<>();
+        List<Long> deletedIds = new ArrayList<>();
+        for (Long transactionId : eventsByTransaction.keySet()) {
+            Transaction transaction = transactions.get(transactionId);
+            if (transaction == null) {
+                deletedIds.add(transactionId);
+            } else {
+                outcomes.put(transactionId, transactionIndexWriter.index(transaction));
+            }
+        }
+        if (!deletedIds.isEmpty()) {
+            CompletableFuture<Void> deleted = transactionIndexWriter.delete(deletedIds);
+            deletedIds.forEach(id -> outcomes.put(id, deleted));
+        }
+        transactionIndexWriter.flush();
+
+        Map<Long, String> failures = new HashMap<>();
+        outcomes.forEach((transactionId, outcome) -> {
+            try {
+                outcome.join();
+            } catch (CompletionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                failures.put(transactionId, String.valueOf(cause.getMessage()));
+            }
+        });
+
+        List<SearchOutboxEvent> delivered = new ArrayList<>();
+        List<SearchOutboxEvent> retried = new ArrayList<>();
+        OffsetDateTime now = OffsetDateTime.now();
+        eventsByTransaction.forEach((transactionId, transactionEvents) -> {
+            String error = failures.get(transactionId);
+            if (error == null) {
+                delivered.addAll(transactionEvents);
+                return;
+            }
+            for (SearchOutboxEvent event : transactionEvents) {
+                event.setAttempts(event.getAttempts() + 1);
+                event.setNextAttemptAt(now.plusSeconds(backoffSeconds(event.getAttempts())));
+                event.setLastError(error.length() > 1000 ? error.substring(0, 1000) : error);
+                retried.add(event);
+            }
+        });
+        searchOutboxRepository.deleteAllInBatch(delivered);
+        searchOutboxRepository.saveAll(retried);
+
+        if (!failures.isEmpty()) {
+            log.warn("Search outbox: {} transactions failed to index and will be retried", failures.size());
+            // stop draining until the next poll instead of spinning on a failing cluster
+            return 0;
+        }
+        return events.size();
+    }
+
+    private long backoffSeconds(int attempts) {
+        return Math.min(MAX_BACKOFF_SECONDS, 1L << Math.min(attempts, 16));
+    }
+}
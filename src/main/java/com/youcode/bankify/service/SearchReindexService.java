@@ -0,0 +1,173 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.entity.ReindexCheckpoint;
+import com.youcode.bankify.entity.Transaction;
+import com.youcode.bankify.repository.elasticsearch.TransactionIndexWriter;
+import com.youcode.bankify.repository.jpa.ReindexCheckpointRepository;
+import com.youcode.bankify.repository.jpa.TransactionRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Rebuilds the search index from Postgres.
+ * Transactions are streamed in id order in keyset chunks and bulk-loaded into the search backend;
+ * after each chunk is acknowledged its last id is checkpointed, so an interrupted run resumes
+ * where it stopped. Changes made meanwhile still reach the index through the outbox.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+public class SearchReindexService {
+
+    public static final String TRANSACTIONS = "transactions";
+
+    private static final String RUNNING = "RUNNING";
+    private static final String COMPLETED = "COMPLETED";
+
+    private final ReindexCheckpointRepository reindexCheckpointRepository;
+    private final TransactionRepository transactionRepository;
+    private final TransactionIndexWriter transactionIndexWriter;
+
+    private final ExecutorService executor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "search-reindex");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final AtomicBoolean running = new AtomicBoolean();
+
+    @Value("${bankify.search.reindex.chunk-size:1000}")
+    private int chunkSize;
+
+    /**
+     * Resume an interrupted run, or fill an index that was just created.
+     * An index that survived the restart with a completed checkpoint is left alone.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void resumeOnStartup() {
+        Optional<ReindexCheckpoint> checkpoint = reindexCheckpointRepository.findById(TRANSACTIONS);
+        if (checkpoint.isPresent() && RUNNING.equals(checkpoint.get().getStatus())) {
+            log.info("Resuming search reindex after transaction {}", checkpoint.get().getLastTransactionId());
+            submit(false);
+        } else if (checkpoint.isEmpty() || transactionIndexWriter.requiresFullLoad()) {
+            log.info("Search index has never been loaded, starting a full reindex");
+            submit(true);
+        }
+    }
+
+    /**
+     * Start a full rebuild in the background; returns false if a run is already in progress.
+     */
+    public boolean startFullRebuild() {
+        return submit(true);
+    }
+
+    public Optional<ReindexCheckpoint> getCheckpoint() {
+        return reindexCheckpointRepository.findById(TRANSACTIONS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+
+    private boolean submit(boolean fromScratch) {
+        if (!running.compareAndSet(false, true)) {
+            return false;
+        }
+        try {
+            ReindexCheckpoint checkpoint = fromScratch
+                    ? newCheckpoint()
+                    : reindexCheckpointRepository.findById(TRANSACTIONS).orElseGet(this::newCheckpoint);
+            executor.execute(() -> {
+                try {
+                    reindex(checkpoint);
+                } catch (Exception e) {
+                    log.error("Search reindex stopped at transaction {}, it will resume from there",
+                            checkpoint.getLastTransactionId(), e);
+                } finally {
+                    running.set(false);
+                }
+            });
+            return true;
+        } catch (RuntimeException e) {
+            running.set(false);
+            throw e;
+        }
+    }
+
+    private ReindexCheckpoint newCheckpoint() {
+        ReindexCheckpoint checkpoint = new ReindexCheckpoint();
+        checkpoint.setName(TRANSACTIONS);
+        checkpoint.setLastTransactionId(0L);
+        checkpoint.setIndexedCount(0);
+        checkpoint.setStatus(RUNNING);
+        checkpoint.setStartedAt(OffsetDateTime.now());
+        checkpoint.setUpdatedAt(checkpoint.getStartedAt());
+        return reindexCheckpointRepository.save(checkpoint);
+    }
+
+    private void reindex(ReindexCheckpoint checkpoint) {
+        transactionIndexWriter.beginBulkLoad();
+        try {
+            // the next chunk is read from Postgres while the previous one is being indexed
+            Chunk inFlight = null;
+            long afterId = checkpoint.getLastTransactionId();
+            while (true) {
+                List<Transaction> transactions = transactionRepository.findByIdGreaterThanOrderByIdAsc(
+                        afterId, PageRequest.of(0, chunkSize));
+                Chunk chunk = transactions.isEmpty() ? null : send(transactions);
+                if (inFlight != null) {
+                    commit(checkpoint, inFlight);
+                }
+                if (chunk == null) {
+                    break;
+                }
+                afterId = chunk.lastId();
+                inFlight = chunk;
+            }
+
+            checkpoint.setStatus(COMPLETED);
+            checkpoint.setCompletedAt(OffsetDateTime.now());
+            checkpoint.setUpdatedAt(checkpoint.getCompletedAt());
+            reindexCheckpointRepository.save(checkpoint);
+            log.info("Search reindex completed, {} transactions indexed", checkpoint.getIndexedCount());
+        } finally {
+            transactionIndexWriter.endBulkLoad();
+        }
+    }
+
+    private Chunk send(List<Transaction> transactions) {
+        List<CompletableFuture<Void>> outcomes = new ArrayList<>(transactions.size());
+        for (Transaction transaction : transactions) {
+            outcomes.add(transactionIndexWriter.index(transaction));
+        }
+        transactionIndexWriter.flush();
+        return new Chunk(transactions.get(transactions.size() - 1).getId(), transactions.size(),
+                CompletableFuture.allOf(outcomes.toArray(CompletableFuture[]::new)));
+    }
+
+    private void commit(ReindexCheckpoint checkpoint, Chunk chunk) {
+        chunk.outcome().join();
+        checkpoint.setLastTransactionId(chunk.lastId());
+        checkpoint.setIndexedCount(checkpoint.getIndexedCount() + chunk.size());
+        checkpoint.setUpdatedAt(OffsetDateTime.now());
+        reindexCheckpointRepository.save(checkpoint);
+    }
+
+    private record Chunk(long lastId, int size, CompletableFuture<Void> outcome) {}
+}
@@ -0,0 +1,165 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.dto.ScheduledTransferDue;
+import com.youcode.bankify.repository.jpa.ScheduledTransferRepository;
+import com.youcode.bankify.util.HierarchicalTimingWheel;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Fires standing orders close to their {@code nextExecutionDate} instead of once a day.
+ * The transfers falling due in the next window are loaded into a hierarchical timing wheel and
+ * handed to {@link ScheduledTransferService#executeDue} as the wheel expires them, which claims
+ * them through the same leases as the nightly run. The first load after a start also picks up
+ * everything already past due, so windows missed while the node was down are caught up.
+ * A transfer that fails is put back into the wheel at its retry time.
+ * The nightly run stays as a sweep for transfers that were created or moved inside a window
+ * that was already loaded.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bankify.scheduled-transfer.wheel.enabled", havingValue = "true", matchIfMissing = true)
+public class StandingOrderScheduler {
+
+    private final ScheduledTransferRepository scheduledTransferRepository;
+    private final ScheduledTransferService scheduledTransferService;
+
+    @Value("${bankify.scheduled-transfer.wheel.tick-ms:1000}")
+    private long tickMs;
+
+    @Value("${bankify.scheduled-transfer.wheel.window-minutes:60}")
+    private long windowMinutes;
+
+    @Value("${bankify.scheduled-transfer.wheel.refill-interval-ms:60000}")
+    private long refillIntervalMs;
+
+    @Value("${bankify.scheduled-transfer.chunk-size:500}")
+    private int chunkSize;
+
+    private final Object lock = new Object();
+    private final Set<Long> scheduled = new HashSet<>();
+    private final List<Long> fired = new ArrayList<>();
+    private HierarchicalTimingWheel<Long> wheel;
+    private volatile OffsetDateTime loadedUntil;
+
+    // the clock thread only moves the wheel; loading it and running what it fires happen on their own
+    // threads, so neither a slow query nor a slow run delays ticks
+    private final ScheduledExecutorService clock = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "standing-order-wheel");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ScheduledExecutorService loader = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "standing-order-refill");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final ExecutorService dispatcher = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "standing-order-dispatch");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        wheel = new HierarchicalTimingWheel<>(tickMs, 64, 3, System.currentTimeMillis());
+        loader.scheduleWithFixedDelay(this::refill, 0, refillIntervalMs, TimeUnit.MILLISECONDS);
+        clock.scheduleAtFixedRate(this::tick, tickMs, tickMs, TimeUnit.MILLISECONDS);
+        log.info("Standing order timing wheel started, window {} minutes", windowMinutes);
+    }
+
+    @PreDestroy
+    public void stop() {
+        clock.shutdownNow();
+        loader.shutdownNow();
+        dispatcher.shutdown();
+    }
+
+    /**
+     * Load the transfers falling due between the end of the last window and the end of the next one.
+     */
+    private void refill() {
+        try {
+            OffsetDateTime until = OffsetDateTime.now().plusMinutes(windowMinutes);
+            List<ScheduledTransferDue> due = loadedUntil == null
+                    ? scheduledTransferRepository.findDueUntil(until)
+                    : scheduledTransferRepository.findDueBetween(loadedUntil, until);
+            schedule(due);
+            loadedUntil = until;
+            if (!due.isEmpty()) {
+                log.debug("Loaded {} standing orders due until {}", due.size(), until);
+            }
+        } catch (RuntimeException e) {
+            log.warn("Standing order wheel refill failed: {}", e.getMessage());
+        }
+    }
+
+    private void schedule(List<ScheduledTransferDue> due) {
+        synchronized (lock) {
+            for (ScheduledTransferDue transfer : due) {
+                if (scheduled.add(transfer.id())) {
+                    wheel.schedule(transfer.id(), transfer.dueAt().toInstant().toEpochMilli());
+                }
+            }
+        }
+    }
+
+    private void tick() {
+        List<Long> expired;
+        synchronized (lock) {
+            wheel.advance(System.currentTimeMillis(), fired::add);
+            if (fired.isEmpty()) {
+                return;
+            }
+            expired = new ArrayList<>(fired);
+            fired.clear();
+            scheduled.removeAll(expired);
+        }
+        dispatcher.execute(() -> execute(expired));
+    }
+
+    private void execute(List<Long> transferIds) {
+        for (int start = 0; start < transferIds.size(); start += chunkSize) {
+            List<Long> chunk = transferIds.subList(start, Math.min(start + chunkSize, transferIds.size()));
+            try {
+                int executed = scheduledTransferService.executeDue(chunk);
+                log.debug("Timing wheel fired {} standing orders, {} executed", chunk.size(), executed);
+                if (executed < chunk.size()) {
+                    rescheduleRetries(chunk);
+                }
+            } catch (RuntimeException e) {
+                log.warn("Standing orders {} could not be executed: {}", chunk, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Retry times inside the loaded window would be missed by the next refill, so they go straight
+     * back into the wheel; later ones are loaded with their window.
+     */
+    private void rescheduleRetries(List<Long> transferIds) {
+        OffsetDateTime now = OffsetDateTime.now();
+        OffsetDateTime until = loadedUntil;
+        List<ScheduledTransferDue> retries = scheduledTransferRepository.findRetrying(transferIds).stream()
+                .filter(retry -> retry.dueAt().isAfter(now) && until != null && !retry.dueAt().isAfter(until))
+                .toList();
+        schedule(retries);
+    }
+}
@@ -0,0 +1,87 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.dto.SpendingAnalyticsResponse;
+import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.repository.elasticsearch.TransactionAnalyticsRepository;
+import com.youcode.bankify.repository.jpa.AccountRepository;
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Monthly spending analytics for a user's accounts, computed by the search cluster.
+ * Results are cached per user and month range for a short TTL, since dashboards poll them.
+ */
+@Service
+@RequiredArgsConstructor
+public class TransactionAnalyticsService {
+
+    private static final int MAX_MONTHS = 36;
+
+    private final TransactionAnalyticsRepository transactionAnalyticsRepository;
+    private final AccountRepository accountRepository;
+
+    @Value("${bankify.analytics.cache-ttl-seconds:60}")
+    private long cacheTtlSeconds;
+
+    @Value("${bankify.analytics.cache-size:1000}")
+    private int cacheSize;
+
+    @Value("${bankify.analytics.top-counterparties:10}")
+    private int topCounterparties;
+
+    private final Map<String, CachedAnalytics> cache = Collections.synchronizedMap(
+            new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, CachedAnalytics> eldest) {
+                    return size() > cacheSize;
+                }
+            });
+
+    /**
+     * Totals per month between {@code from} and {@code to} inclusive; defaults to the last twelve months.
+     */
+    public SpendingAnalyticsResponse getSpendingAnalytics(Long userId, YearMonth from, YearMonth to) {
+        YearMonth end = to != null ? to : YearMonth.now(ZoneOffset.UTC);
+        YearMonth start = from != null ? from : end.minusMonths(11);
+        if (start.isAfter(end) || start.plusMonths(MAX_MONTHS).isBefore(end)) {
+            throw new IllegalArgumentException("Range must cover between 1 and " + MAX_MONTHS + " months");
+        }
+
+        String cacheKey = userId + ":" + start + ":" + end;
+        CachedAnalytics cached = cache.get(cacheKey);
+        if (cached != null && cached.expiresAt().isAfter(Instant.now())) {
+            return cached.analytics();
+        }
+
+        List<String> accountNumbers = accountRepository.findByUserId(userId).stream()
+                .map(BankAccount::getAccountNumber)
+                .toList();
+        SpendingAnalyticsResponse analytics;
+        if (accountNumbers.isEmpty()) {
+            analytics = new SpendingAnalyticsResponse();
+        } else {
+            try {
+                analytics = transactionAnalyticsRepository.spendingByMonth(accountNumbers,
+                        start.atDay(1).atStartOfDay(), end.plusMonths(1).atDay(1).atStartOfDay(), topCounterparties);
+            } catch (IOException e) {
+                throw new RuntimeException("Spending analytics are unavailable", e);
+            }
+        }
+        analytics.setFrom(start.toString());
+        analytics.setTo(end.toString());
+        cache.put(cacheKey, new CachedAnalytics(analytics, Instant.now().plusSeconds(cacheTtlSeconds)));
+        return analytics;
+    }
+
+    private record CachedAnalytics(SpendingAnalyticsResponse analytics, Instant expiresAt) {}
+}
@@ -0,0 +1,57 @@
+package com.youcode.bankify.service;
+
+import co.elastic.clients.elasticsearch.ElasticsearchClient;
+import com.youcode.bankify.config.IndexInitializer;
+import com.youcode.bankify.repository.elasticsearch.TransactionIndices;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.time.YearMonth;
+import java.time.ZoneOffset;
+
+/**
+ * Keeps the monthly transaction indices rolled over and, when a retention is configured,
+ * deletes the indices of months past it. Postgres stays the system of record, so expired
+ * months can always be brought back with a reindex.
+ */
+@Slf4j
+@Service
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "bankify.search.backend", havingValue = "elasticsearch", matchIfMissing = true)
+public class TransactionIndexRolloverService {
+
+    private final IndexInitializer indexInitializer;
+    private final ElasticsearchClient elasticsearchClient;
+
+    @Value("${bankify.search.retention-months:0}")
+    private int retentionMonths;
+
+    @Scheduled(cron = "${bankify.search.rollover-cron:0 0 * * * *}")
+    public void rolloverAndExpire() {
+        try {
+            indexInitializer.rollover();
+            if (retentionMonths > 0) {
+                deleteExpiredIndices();
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn("Transaction index rollover failed: {}", e.getMessage());
+        }
+    }
+
+    private void deleteExpiredIndices() throws IOException {
+        YearMonth oldestKept = YearMonth.now(ZoneOffset.UTC).minusMonths(retentionMonths);
+        for (String index : elasticsearchClient.indices()
+                .get(g -> g.index(TransactionIndices.PATTERN).allowNoIndices(true)).result().keySet()) {
+            YearMonth month = TransactionIndices.monthOf(index);
+            if (month != null && month.isBefore(oldestKept)) {
+                elasticsearchClient.indices().delete(d -> d.index(index));
+                log.info("Deleted transaction index {} past the {} month retention", index, retentionMonths);
+            }
+        }
+    }
+}
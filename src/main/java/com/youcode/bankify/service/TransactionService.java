@@ -1,17 +1,22 @@
 package com.youcode.bankify.service;
 
+import com.youcode.bankify.dto.TransactionHistoryPage;
 import com.youcode.bankify.dto.TransactionResponse;
+import com.youcode.bankify.dto.TransactionSearchRequest;
+import com.youcode.bankify.dto.TransactionSearchResponse;
+import com.youcode.bankify.entity.BankAccount;
 import com.youcode.bankify.entity.Transaction;
-import com.youcode.bankify.repository.elasticsearch.TransactionSearchRepository;
+import com.youcode.bankify.repository.elasticsearch.TransactionSearchRepositoryCustom;
+import com.youcode.bankify.repository.jpa.AccountRepository;
 import com.youcode.bankify.repository.jpa.TransactionRepository;
+import com.youcode.bankify.util.HistoryCursor;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -19,18 +24,55 @@ import java.util.stream.Collectors;
 @RequiredArgsConstructor
 public class TransactionService {
 
-    private final TransactionSearchRepository transactionSearchRepository;
+    private final TransactionSearchRepositoryCustom transactionSearchRepository;
     private final TransactionRepository transactionRepository;
+    private final AccountRepository accountRepository;
 
 
-    public List<Transaction> searchTransactions(BigDecimal amount, String type, String status, LocalDateTime startDate, LocalDateTime endDate) {
-        return transactionSearchRepository.searchByCriteria(amount, type, status, startDate, endDate);
+    @Value("${bankify.search.page.default-size:20}")
+    private int defaultPageSize;
+
+    @Value("${bankify.search.page.max-size:500}")
+    private int maxPageSize;
+
+    /**
+     * Search the transactions of the user's accounts, or of every account when {@code userId} is null.
+     */
+    public TransactionSearchResponse searchTransactions(TransactionSearchRequest searchRequest, Long userId) {
+        int size = searchRequest.getSize() == null ? defaultPageSize : searchRequest.getSize();
+        if (size <= 0 || size > maxPageSize) {
+            throw new IllegalArgumentException("Page size must be between 1 and " + maxPageSize);
+        }
+        List<String> accountNumbers = null;
+        if (userId != null) {
+            accountNumbers = accountRepository.findByUserId(userId).stream()
+                    .map(BankAccount::getAccountNumber)
+                    .toList();
+            if (accountNumbers.isEmpty()) {
+                TransactionSearchResponse empty = new TransactionSearchResponse();
+                empty.setTransactions(List.of());
+                return empty;
+            }
+        }
+        return transactionSearchRepository.searchByCriteria(searchRequest, accountNumbers, size);
     }
 
-    public List<TransactionResponse> getTransactionsByAccountId(Long accountId , int page , int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        List<Transaction> transactions = transactionRepository.findByBankAccountId(accountId, pageable);
-        return transactions.stream().map(this::mapToTransactionResponse).collect(Collectors.toList());
+    /**
+     * Newest first, paginated by cursor so every page costs the same as the first.
+     */
+    public TransactionHistoryPage getTransactionsByAccountId(Long accountId , String cursor , int size) {
+        Pageable pageable = PageRequest.of(0, size);
+        List<Transaction> transactions;
+        if (cursor == null || cursor.isBlank()) {
+            transactions = transactionRepository.findByBankAccountIdOrderByDateDescIdDesc(accountId, pageable);
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            transactions = transactionRepository.findByBankAccountIdBefore(accountId, after.date(), after.id(), pageable);
+        }
+        TransactionHistoryPage page = new TransactionHistoryPage();
+        page.setTransactions(transactions.stream().map(this::mapToTransactionResponse).collect(Collectors.toList()));
+        page.setNextCursor(HistoryCursor.nextCursor(transactions, size));
+        return page;
     }
 
     private TransactionResponse mapToTransactionResponse(Transaction transaction) {
@@ -39,6 +81,8 @@ public class TransactionService {
         dto.setDate(transaction.getDate().toString());
         dto.setType(transaction.getType());
         dto.setStatus(transaction.getStatus());
+        dto.setAccountNumber(transaction.getBankAccount().getAccountNumber());
+        dto.setCounterpartyAccountNumber(transaction.getCounterpartyAccountNumber());
         dto.setOtherPartyUsername(
                 transaction.getType().equalsIgnoreCase("DEBIT") ?
                         transaction.getBankAccount().getUser().getUsername() :
@@ -0,0 +1,65 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.exception.RetryableOperationException;
+import com.youcode.bankify.util.AccountLockManager;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+
+/**
+ * Runs balance-changing work under the account stripes and inside its own database transaction.
+ * The in-JVM locks serialize work on the same accounts within this node; the {@code @Version}
+ * check on {@code BankAccount} catches writers on other nodes, in which case the work is retried.
+ * An Idempotency-Key claim is marked COMPLETED in that same transaction, so the key and the balance
+ * change commit or roll back together.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class TransferEngine {
+
+    private final AccountLockManager accountLockManager;
+    private final TransactionTemplate transactionTemplate;
+    private final IdempotencyService idempotencyService;
+
+    @Value("${bankify.transfer.max-attempts:3}")
+    private int maxAttempts;
+
+    /**
+     * Run the work for the idempotent request on this thread, if any.
+     */
+    public void execute(Collection<Long> accountIds, Runnable work) {
+        execute(accountIds, IdempotencyService.currentClaim(), work);
+    }
+
+    public void execute(Collection<Long> accountIds, IdempotencyService.Claim claim, Runnable work) {
+        accountLockManager.withLocks(accountIds, () -> {
+            executeWithRetry(claim, work);
+            return null;
+        });
+    }
+
+    private void executeWithRetry(IdempotencyService.Claim claim, Runnable work) {
+        for (int attempt = 1; ; attempt++) {
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    work.run();
+                    if (claim != null) {
+                        idempotencyService.markApplied(claim);
+                    }
+                });
+                return;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt >= maxAttempts) {
+                    throw new RetryableOperationException("Transfer could not be completed due to concurrent updates, please retry");
+                }
+                log.debug("Optimistic lock conflict on attempt {}, retrying", attempt);
+            }
+        }
+    }
+}
@@ -0,0 +1,276 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.dto.TransferRequest;
+import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.exception.OperationPendingException;
+import com.youcode.bankify.repository.jpa.AccountRepository;
+import com.youcode.bankify.util.MpscRingBuffer;
+import com.youcode.bankify.util.QueryCounter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Single-writer execution mode for transfers, enabled with {@code bankify.transfer.mode=sequenced}.
+ * Commands are published to a pre-allocated ring buffer of the partition owning the source account,
+ * and that partition's writer thread applies them in groups: one lock acquisition and one database
+ * transaction per group, so a hot account is debited by exactly one thread without lock convoys.
+ * Credits may land on accounts owned by other partitions; those are still guarded by the account
+ * stripes and the version check of {@link TransferEngine}.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "bankify.transfer.mode", havingValue = "sequenced")
+public class TransferSequencer {
+
+    private final UserService userService;
+    private final TransferEngine transferEngine;
+    private final IdempotencyService idempotencyService;
+    private final AccountRepository accountRepository;
+    private final Partition[] partitions;
+    private final long timeoutMs;
+
+    public TransferSequencer(UserService userService,
+                             TransferEngine transferEngine,
+                             IdempotencyService idempotencyService,
+                             AccountRepository accountRepository,
+                             @Value("${bankify.transfer.sequencer.partitions:4}") int partitionCount,
+                             @Value("${bankify.transfer.sequencer.ring-size:1024}") int ringSize,
+                             @Value("${bankify.transfer.sequencer.max-group-size:64}") int maxGroupSize,
+                             @Value("${bankify.transfer.sequencer.timeout-ms:10000}") long timeoutMs) {
+        this.userService = userService;
+        this.transferEngine = transferEngine;
+        this.idempotencyService = idempotencyService;
+        this.accountRepository = accountRepository;
+        this.timeoutMs = timeoutMs;
+        this.partitions = new Partition[partitionCount];
+        for (int i = 0; i < partitionCount; i++) {
+            partitions[i] = new Partition(i, ringSize, maxGroupSize);
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        for (Partition partition : partitions) {
+            partition.thread.start();
+        }
+        log.info("Transfer sequencer started with {} partitions", partitions.length);
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        for (Partition partition : partitions) {
+            partition.running = false;
+        }
+        for (Partition partition : partitions) {
+            partition.thread.join(timeoutMs);
+        }
+    }
+
+    /**
+     * Queue the transfer on its partition and wait for the writer to commit it.
+     */
+    public void submit(TransferRequest transferRequest, Long userId) {
+        if (transferRequest.getFromAccount() == null) {
+            throw new RuntimeException("From account not found");
+        }
+        CompletableFuture<Void> outcome = new CompletableFuture<>();
+        Partition partition = partitions[Math.floorMod(transferRequest.getFromAccount(), partitions.length)];
+        QueryCounter.Count queries = QueryCounter.current();
+        IdempotencyService.Claim claim = IdempotencyService.currentClaim();
+        partition.ring.publish(slot -> slot.set(transferRequest, userId, outcome, queries, claim));
+
+        try {
+            outcome.get(timeoutMs, TimeUnit.MILLISECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new RuntimeException(e.getCause());
+        } catch (TimeoutException e) {
+            // the command stays in the ring and may still commit
+            throw new OperationPendingException("Transfer is still being processed, retry with the same Idempotency-Key to get its outcome", outcome);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Interrupted while waiting for the transfer", e);
+        }
+    }
+
+    /**
+     * Statements of a command count against the query budget of the request that submitted it; the
+     * shared lookups and the group's transaction count against every request in the group.
+     */
+    private void commitGroup(TransferCommand[] group, int size) {
+        RuntimeException[] failures = new RuntimeException[size];
+        List<QueryCounter.Count> counts = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            counts.add(group[i].queries);
+        }
+        try {
+            QueryCounter.charge(QueryCounter.Count.shared(counts), () -> executeGroup(group, size, failures));
+        } catch (RuntimeException e) {
+            // something poisoned the shared transaction: fall back to one transaction per command
+            log.warn("Group commit of {} transfers failed, retrying them one by one: {}", size, e.getMessage());
+            for (int i = 0; i < size; i++) {
+                TransferCommand command = group[i];
+                failures[i] = QueryCounter.charge(command.queries, () -> commitAlone(command));
+            }
+        }
+
+        for (int i = 0; i < size; i++) {
+            if (failures[i] == null) {
+                group[i].outcome.complete(null);
+            } else {
+                group[i].outcome.completeExceptionally(failures[i]);
+            }
+            group[i].clear();
+        }
+    }
+
+    private void executeGroup(TransferCommand[] group, int size, RuntimeException[] failures) {
+        Map<String, Long> toAccountIds = resolveToAccountIds(group, size);
+        Set<Long> accountIds = new HashSet<>(toAccountIds.values());
+        for (int i = 0; i < size; i++) {
+            accountIds.add(group[i].request.getFromAccount());
+        }
+
+        transferEngine.execute(accountIds, () -> {
+            Arrays.fill(failures, null);
+            for (int i = 0; i < size; i++) {
+                TransferCommand command = group[i];
+                try {
+                    QueryCounter.charge(command.queries, () -> applyCommand(command, toAccountIds));
+                } catch (RuntimeException e) {
+                    failures[i] = e;
+                }
+            }
+            // a lost claim fails the whole group, whose commands are then committed one by one
+            for (int i = 0; i < size; i++) {
+                if (failures[i] == null && group[i].claim != null) {
+                    idempotencyService.markApplied(group[i].claim);
+                }
+            }
+        });
+    }
+
+    private RuntimeException commitAlone(TransferCommand command) {
+        try {
+            Map<String, Long> toAccountIds = resolveToAccountIds(new TransferCommand[]{command}, 1);
+            transferEngine.execute(
+                    Arrays.asList(command.request.getFromAccount(), toAccountIds.get(command.request.getToAccountNumber())),
+                    command.claim,
+                    () -> applyCommand(command, toAccountIds));
+            return null;
+        } catch (RuntimeException e) {
+            return e;
+        }
+    }
+
+    private void applyCommand(TransferCommand command, Map<String, Long> toAccountIds) {
+        Long toAccountId = toAccountIds.get(command.request.getToAccountNumber());
+        if (toAccountId == null) {
+            throw new RuntimeException("To account not found");
+        }
+        userService.applyTransfer(command.request, command.userId, toAccountId);
+    }
+
+    private Map<String, Long> resolveToAccountIds(TransferCommand[] group, int size) {
+        Set<Long> fromAccountIds = new HashSet<>();
+        Set<String> toAccountNumbers = new HashSet<>();
+        for (int i = 0; i < size; i++) {
+            fromAccountIds.add(group[i].request.getFromAccount());
+            if (group[i].request.getToAccountNumber() != null) {
+                toAccountNumbers.add(group[i].request.getToAccountNumber());
+            }
+        }
+        Map<String, Long> ids = new HashMap<>();
+        for (BankAccount account : accountRepository.findByIdInOrAccountNumberIn(fromAccountIds, toAccountNumbers)) {
+            if (toAccountNumbers.contains(account.getAccountNumber())) {
+                ids.put(account.getAccountNumber(), account.getId());
+            }
+        }
+        return ids;
+    }
+
+    private static final class TransferCommand {
+        private TransferRequest request;
+        private Long userId;
+        private CompletableFuture<Void> outcome;
+        private QueryCounter.Count queries;
+        private IdempotencyService.Claim claim;
+
+        void set(TransferRequest request, Long userId, CompletableFuture<Void> outcome, QueryCounter.Count queries,
+                 IdempotencyService.Claim claim) {
+            this.request = request;
+            this.userId = userId;
+            this.outcome = outcome;
+            this.queries = queries;
+            this.claim = claim;
+        }
+
+        void clear() {
+            set(null, null, null, null, null);
+        }
+    }
+
+    private final class Partition implements Runnable {
+        private final MpscRingBuffer<TransferCommand> ring;
+        private final TransferCommand[] group;
+        private final Thread thread;
+        private volatile boolean running = true;
+        private int groupSize;
+
+        Partition(int index, int ringSize, int maxGroupSize) {
+            this.ring = new MpscRingBuffer<>(ringSize, TransferCommand::new);
+            this.group = new TransferCommand[maxGroupSize];
+            for (int i = 0; i < maxGroupSize; i++) {
+                group[i] = new TransferCommand();
+            }
+            this.thread = new Thread(this, "transfer-sequencer-" + index);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public void run() {
+            while (running || ring.size() > 0) {
+                groupSize = 0;
+                int drained = ring.drain(slot -> {
+                    group[groupSize++].set(slot.request, slot.userId, slot.outcome, slot.queries, slot.claim);
+                    slot.clear();
+                }, group.length);
+
+                if (drained == 0) {
+                    LockSupport.parkNanos(50_000);
+                    continue;
+                }
+                try {
+                    commitGroup(group, drained);
+                } catch (RuntimeException e) {
+                    log.error("Transfer sequencer partition {} failed to commit a group", thread.getName(), e);
+                    for (int i = 0; i < drained; i++) {
+                        if (group[i].outcome != null) {
+                            group[i].outcome.completeExceptionally(e);
+                            group[i].clear();
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
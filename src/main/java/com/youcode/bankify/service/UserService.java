@@ -1,6 +1,10 @@
 package com.youcode.bankify.service;
 
 import com.youcode.bankify.dto.AccountCreationDTO;
+import com.youcode.bankify.dto.ApprovalQueueEvent;
+import com.youcode.bankify.dto.BatchTransferResponse;
+import com.youcode.bankify.dto.BatchTransferResult;
+import com.youcode.bankify.dto.TransactionHistoryPage;
 import com.youcode.bankify.dto.TransactionResponse;
 import com.youcode.bankify.dto.TransferRequest;
 import com.youcode.bankify.dto.UserProfileUpdateDTO;
@@ -8,28 +12,42 @@ import com.youcode.bankify.entity.BankAccount;
 import com.youcode.bankify.entity.ScheduledTransfer;
 import com.youcode.bankify.entity.Transaction;
 import com.youcode.bankify.entity.User;
+import com.youcode.bankify.entity.UserDashboardSummary;
 import com.youcode.bankify.repository.jpa.AccountRepository;
 import com.youcode.bankify.repository.jpa.ScheduledTransferRepository;
 import com.youcode.bankify.repository.jpa.TransactionRepository;
 import com.youcode.bankify.repository.jpa.UserRepository;
-import com.youcode.bankify.repository.elasticsearch.TransactionSearchRepository;
+import com.youcode.bankify.util.HistoryCursor;
 import com.youcode.bankify.util.JwtUtil;
+import com.youcode.bankify.util.SingleFlight;
 import lombok.RequiredArgsConstructor;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.security.core.Authentication;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.OffsetDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 
 @Service
@@ -40,9 +58,23 @@ public class UserService {
     private final TransactionRepository transactionRepository;
     private final UserRepository userRepository;
     private final ScheduledTransferRepository scheduledTransferRepository;
-    private final TransactionSearchRepository transactionSearchRepository;
+    private final SearchOutboxService searchOutboxService;
+    private final TransferEngine transferEngine;
+    private final LedgerService ledgerService;
+    private final DashboardSummaryService dashboardSummaryService;
+    private final DashboardExecutor dashboardExecutor;
+    private final ApplicationEventPublisher eventPublisher;
+    private final ObjectProvider<TransferSequencer> transferSequencer;
     private final JwtUtil jwtUtil;
 
+    @Value("${bankify.transfer.batch.max-size:1000}")
+    private int batchMaxSize;
+
+    @Value("${bankify.transfer.batch.chunk-size:100}")
+    private int batchChunkSize;
+
+    private final SingleFlight<Long, Map<String, Object>> dashboardFlight = new SingleFlight<>();
+
 
 
     /**
@@ -66,6 +98,7 @@ public class UserService {
     /**
      * Create a new bank account for the user.
      */
+    @Transactional
     public BankAccount createBankAccount(AccountCreationDTO accountCreationDTO, Long userId) {
         User user = userRepository.findById(userId)
                 .orElseThrow(() -> new RuntimeException("User not found"));
@@ -95,16 +128,30 @@ public class UserService {
 
         account.setAccountNumber(accountNumber);
         account.setBalance(BigDecimal.valueOf(100));
-        return accountRepository.save(account);
+        BankAccount savedAccount = accountRepository.save(account);
+        ledgerService.postOpeningBalance(savedAccount, savedAccount.getBalance());
+        dashboardSummaryService.apply(DashboardSummaryService.delta()
+                .balance(user.getId(), savedAccount.getBalance())
+                .activeAccounts(user.getId(), 1));
+        return savedAccount;
     }
 
     /**
-     * Retrieve transaction history for the user.
+     * Newest first, paginated by cursor so every page costs the same as the first.
      */
-    public List<TransactionResponse> getTransactionHistory(Long userId, int page, int size) {
-        Pageable pageable = PageRequest.of(page, size);
-        List<Transaction> transactions = transactionRepository.findByUserIdOrderByDateDesc(userId, pageable);
-        return transactions.stream().map(this::mapToTransactionResponse).collect(Collectors.toList());
+    public TransactionHistoryPage getTransactionHistory(Long userId, String cursor, int size) {
+        Pageable pageable = PageRequest.of(0, size);
+        List<Transaction> transactions;
+        if (cursor == null || cursor.isBlank()) {
+            transactions = transactionRepository.findByUserIdOrderByDateDescIdDesc(userId, pageable);
+        } else {
+            HistoryCursor after = HistoryCursor.decode(cursor);
+            transactions = transactionRepository.findByUserIdBefore(userId, after.date(), after.id(), pageable);
+        }
+        TransactionHistoryPage page = new TransactionHistoryPage();
+        page.setTransactions(transactions.stream().map(this::mapToTransactionResponse).collect(Collectors.toList()));
+        page.setNextCursor(HistoryCursor.nextCursor(transactions, size));
+        return page;
     }
 
     /**
@@ -135,35 +182,290 @@ public class UserService {
                 .orElseThrow(() -> new RuntimeException("User not found"));
         Long userId = user.getId();
 
+        TransferSequencer sequencer = transferSequencer.getIfAvailable();
+        if (sequencer != null) {
+            sequencer.submit(transferRequest, userId);
+            return;
+        }
+
+        Long toAccountId = accountRepository.findByAccountNumber(transferRequest.getToAccountNumber())
+                .orElseThrow(() -> new RuntimeException("To account not found"))
+                .getId();
+
+        transferEngine.execute(Arrays.asList(transferRequest.getFromAccount(), toAccountId),
+                () -> applyTransfer(transferRequest, userId, toAccountId));
+    }
+
+    /**
+     * Check and apply a user's transfer.
+     * Callers must hold the account locks and an open transaction, see {@link TransferEngine}.
+     */
+    public void applyTransfer(TransferRequest transferRequest, Long userId, Long toAccountId) {
         BigDecimal transactionFee = calculateTransactionFee(transferRequest.getTransactionType(), transferRequest.getAmount());
         BigDecimal totalDebitAmount = BigDecimal.valueOf(transferRequest.getAmount()).add(transactionFee);
+
         BankAccount fromAccount = getAccountWithBalanceCheck(transferRequest.getFromAccount(), totalDebitAmount, userId);
-        BankAccount toAccount = accountRepository.findByAccountNumber(transferRequest.getToAccountNumber())
+        BankAccount toAccount = accountRepository.findById(toAccountId)
                 .orElseThrow(() -> new RuntimeException("To account not found"));
 
         processTransfer(fromAccount, toAccount, BigDecimal.valueOf(transferRequest.getAmount()), transactionFee);
     }
 
-    public void transferFundsForScheduledJob(TransferRequest transferRequest) {
-        BigDecimal transactionFee = calculateTransactionFee(
-                transferRequest.getTransactionType(),
-                transferRequest.getAmount()
-        );
-        BigDecimal totalDebitAmount = BigDecimal.valueOf(transferRequest.getAmount()).add(transactionFee);
+    /**
+     * Execute many classic or instant transfers from the user's accounts.
+     * The batch is validated up front, referenced accounts are loaded with one query per chunk,
+     * and each chunk is applied in a single database transaction with batched inserts.
+     */
+    public BatchTransferResponse transferFundsBatch(List<TransferRequest> transfers, Long userId) {
+        if (transfers == null || transfers.isEmpty()) {
+            throw new RuntimeException("Batch must contain at least one transfer");
+        }
+        if (transfers.size() > batchMaxSize) {
+            throw new RuntimeException("Batch cannot contain more than " + batchMaxSize + " transfers");
+        }
 
-        BankAccount fromAccount = accountRepository.findById(transferRequest.getFromAccount())
-                .orElseThrow(() -> new RuntimeException("From account not found"));
+        BatchTransferResult[] results = new BatchTransferResult[transfers.size()];
 
-        if(fromAccount.getBalance().compareTo(totalDebitAmount) < 0){
-            throw new RuntimeException("Insufficient funds for scheduled transfer");
+        Set<Long> fromAccountIds = new HashSet<>();
+        Set<String> toAccountNumbers = new HashSet<>();
+        for (TransferRequest transfer : transfers) {
+            if (transfer != null) {
+                if (transfer.getFromAccount() != null) fromAccountIds.add(transfer.getFromAccount());
+                if (transfer.getToAccountNumber() != null) toAccountNumbers.add(transfer.getToAccountNumber());
+            }
+        }
+        List<BankAccount> referencedAccounts = accountRepository.findByIdInOrAccountNumberIn(fromAccountIds, toAccountNumbers);
+        Map<Long, BankAccount> accountsById = referencedAccounts.stream()
+                .collect(Collectors.toMap(BankAccount::getId, account -> account));
+        Map<String, Long> accountIdsByNumber = referencedAccounts.stream()
+                .collect(Collectors.toMap(BankAccount::getAccountNumber, BankAccount::getId));
+
+        List<Integer> validIndexes = new ArrayList<>();
+        for (int i = 0; i < transfers.size(); i++) {
+            String error = validateBatchItem(transfers.get(i), accountsById, accountIdsByNumber, userId);
+            if (error != null) {
+                results[i] = new BatchTransferResult(i, "FAILED", error);
+            } else {
+                validIndexes.add(i);
+            }
         }
 
-        BankAccount toAccount = accountRepository.findByAccountNumber(transferRequest.getToAccountNumber())
-                .orElseThrow(() -> new RuntimeException("To account not found"));
+        for (int start = 0; start < validIndexes.size(); start += batchChunkSize) {
+            List<Integer> chunk = validIndexes.subList(start, Math.min(start + batchChunkSize, validIndexes.size()));
+            processBatchChunk(chunk, transfers, accountIdsByNumber, results);
+        }
 
-        processTransfer(fromAccount, toAccount, BigDecimal.valueOf(transferRequest.getAmount()), transactionFee);
+        BatchTransferResponse response = new BatchTransferResponse();
+        response.setResults(Arrays.asList(results));
+        response.setTotal(results.length);
+        response.setSucceeded((int) Arrays.stream(results).filter(result -> "SUCCESS".equals(result.getStatus())).count());
+        response.setFailed(results.length - response.getSucceeded());
+        return response;
     }
 
+    private String validateBatchItem(TransferRequest transfer, Map<Long, BankAccount> accountsById, Map<String, Long> accountIdsByNumber, Long userId) {
+        if (transfer == null) {
+            return "Transfer is empty";
+        }
+        String type = transfer.getTransactionType() == null ? "" : transfer.getTransactionType().toUpperCase();
+        if (!type.equals("CLASSIC") && !type.equals("INSTANT")) {
+            return "Only CLASSIC and INSTANT transfers can be batched";
+        }
+        if (transfer.getAmount() <= 0) {
+            return "Amount must be positive";
+        }
+        BankAccount fromAccount = accountsById.get(transfer.getFromAccount());
+        if (fromAccount == null) {
+            return "From account not found";
+        }
+        if (!fromAccount.getUser().getId().equals(userId)) {
+            return "You are not authorized to transfer from this account";
+        }
+        Long toAccountId = accountIdsByNumber.get(transfer.getToAccountNumber());
+        if (toAccountId == null) {
+            return "To account not found";
+        }
+        if (toAccountId.equals(fromAccount.getId())) {
+            return "Cannot transfer to the same account";
+        }
+        return null;
+    }
+
+    private void processBatchChunk(List<Integer> chunk, List<TransferRequest> transfers, Map<String, Long> accountIdsByNumber, BatchTransferResult[] results) {
+        Set<Long> accountIds = new HashSet<>();
+        for (int index : chunk) {
+            accountIds.add(transfers.get(index).getFromAccount());
+            accountIds.add(accountIdsByNumber.get(transfers.get(index).getToAccountNumber()));
+        }
+
+        try {
+            transferEngine.execute(accountIds, () -> {
+                List<Transaction> recorded = new ArrayList<>();
+                DashboardSummaryService.Delta summaryDelta = DashboardSummaryService.delta();
+                Map<Long, BankAccount> accounts = accountRepository.findAllById(accountIds).stream()
+                        .collect(Collectors.toMap(BankAccount::getId, account -> account));
+
+                for (int index : chunk) {
+                    TransferRequest transfer = transfers.get(index);
+                    BankAccount fromAccount = accounts.get(transfer.getFromAccount());
+                    BankAccount toAccount = accounts.get(accountIdsByNumber.get(transfer.getToAccountNumber()));
+                    BigDecimal transferAmount = BigDecimal.valueOf(transfer.getAmount());
+                    BigDecimal transactionFee = calculateTransactionFee(transfer.getTransactionType(), transfer.getAmount());
+
+                    if (fromAccount.getBalance().compareTo(transferAmount.add(transactionFee)) < 0) {
+                        results[index] = new BatchTransferResult(index, "FAILED", "Insufficient funds, including transaction fee");
+                        continue;
+                    }
+
+                    String status = applyChunkTransfer(fromAccount, toAccount, transferAmount, transactionFee, recorded, summaryDelta);
+                    results[index] = new BatchTransferResult(index, "SUCCESS", status);
+                }
+
+                flushChunk(recorded, summaryDelta);
+            });
+        } catch (RuntimeException e) {
+            for (int index : chunk) {
+                results[index] = new BatchTransferResult(index, "FAILED", e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Move the balances of one transfer of a chunk and collect its records; returns the transfer status.
+     */
+    private String applyChunkTransfer(BankAccount fromAccount, BankAccount toAccount, BigDecimal transferAmount, BigDecimal transactionFee,
+                                      List<Transaction> recorded, DashboardSummaryService.Delta summaryDelta) {
+        fromAccount.setBalance(fromAccount.getBalance().subtract(transferAmount.add(transactionFee)));
+        toAccount.setBalance(toAccount.getBalance().add(transferAmount));
+        ledgerService.postTransfer(fromAccount, toAccount, transferAmount, transactionFee);
+
+        String status = resolveTransferStatus(transferAmount);
+        recorded.add(buildTransaction(fromAccount, toAccount, transferAmount, "DEBIT", status));
+        recorded.add(buildTransaction(toAccount, fromAccount, transferAmount, "CREDIT", status));
+        transferDelta(summaryDelta, fromAccount, toAccount, transferAmount, transactionFee, status);
+        return status;
+    }
+
+    private void flushChunk(List<Transaction> recorded, DashboardSummaryService.Delta summaryDelta) {
+        transactionRepository.saveAll(recorded);
+        searchOutboxService.enqueue(recorded);
+        dashboardSummaryService.apply(summaryDelta);
+        recorded.forEach(this::publishIfPending);
+    }
+
+    /**
+     * Apply a partition of due standing orders in the given order, with one batched write at the end.
+     * Returns the reason of every transfer that could not be applied, by scheduled transfer id.
+     * Callers must hold the locks of all referenced accounts and an open transaction, see {@link TransferEngine}.
+     */
+    public Map<Long, String> applyScheduledTransfers(List<ScheduledTransfer> transfers) {
+        return applyScheduledTransfers(transfers, false);
+    }
+
+    /**
+     * With {@code netting}, the transfers between the same two accounts, in either direction, are
+     * settled as one balance movement per account and one ledger journal, as long as the net debit
+     * can be covered; each transfer still records its own transactions. A pair that cannot be
+     * covered on a net basis is applied transfer by transfer.
+     */
+    public Map<Long, String> applyScheduledTransfers(List<ScheduledTransfer> transfers, boolean netting) {
+        Set<Long> accountIds = new HashSet<>();
+        for (ScheduledTransfer transfer : transfers) {
+            accountIds.add(transfer.getFromAccountId());
+            accountIds.add(transfer.getToAccountId());
+        }
+        Map<Long, BankAccount> accounts = accountRepository.findAllById(accountIds).stream()
+                .collect(Collectors.toMap(BankAccount::getId, account -> account));
+
+        Map<Long, String> failures = new HashMap<>();
+        List<Transaction> recorded = new ArrayList<>();
+        DashboardSummaryService.Delta summaryDelta = DashboardSummaryService.delta();
+        Collection<List<ScheduledTransfer>> groups = netting ? groupByAccountPair(transfers) : List.of(transfers);
+        for (List<ScheduledTransfer> group : groups) {
+            if (group.size() > 1 && netting && applyNetted(group, accounts, recorded, summaryDelta)) {
+                continue;
+            }
+            for (ScheduledTransfer transfer : group) {
+                String failure = applyScheduledTransfer(transfer, accounts, recorded, summaryDelta);
+                if (failure != null) {
+                    failures.put(transfer.getId(), failure);
+                }
+            }
+        }
+
+        flushChunk(recorded, summaryDelta);
+        return failures;
+    }
+
+    private String applyScheduledTransfer(ScheduledTransfer transfer, Map<Long, BankAccount> accounts,
+                                          List<Transaction> recorded, DashboardSummaryService.Delta summaryDelta) {
+        BankAccount fromAccount = accounts.get(transfer.getFromAccountId());
+        BankAccount toAccount = accounts.get(transfer.getToAccountId());
+        if (fromAccount == null || toAccount == null) {
+            return fromAccount == null ? "From account not found" : "To account not found";
+        }
+        BigDecimal transactionFee = calculateTransactionFee("PERMANENT", transfer.getAmount().doubleValue());
+        if (fromAccount.getBalance().compareTo(transfer.getAmount().add(transactionFee)) < 0) {
+            return "Insufficient funds for scheduled transfer";
+        }
+        applyChunkTransfer(fromAccount, toAccount, transfer.getAmount(), transactionFee, recorded, summaryDelta);
+        return null;
+    }
+
+    private Collection<List<ScheduledTransfer>> groupByAccountPair(List<ScheduledTransfer> transfers) {
+        Map<List<Long>, List<ScheduledTransfer>> groups = new LinkedHashMap<>();
+        for (ScheduledTransfer transfer : transfers) {
+            Long low = Math.min(transfer.getFromAccountId(), transfer.getToAccountId());
+            Long high = Math.max(transfer.getFromAccountId(), transfer.getToAccountId());
+            groups.computeIfAbsent(List.of(low, high), key -> new ArrayList<>()).add(transfer);
+        }
+        return groups.values();
+    }
+
+    /**
+     * Settle the transfers of one account pair on their net amounts; returns false, without
+     * touching anything, when an account is missing or cannot cover its net debit.
+     */
+    private boolean applyNetted(List<ScheduledTransfer> transfers, Map<Long, BankAccount> accounts,
+                                List<Transaction> recorded, DashboardSummaryService.Delta summaryDelta) {
+        Map<Long, BigDecimal> net = new HashMap<>();
+        List<BigDecimal> fees = new ArrayList<>(transfers.size());
+        BigDecimal totalFees = BigDecimal.ZERO;
+        for (ScheduledTransfer transfer : transfers) {
+            BigDecimal transactionFee = calculateTransactionFee("PERMANENT", transfer.getAmount().doubleValue());
+            fees.add(transactionFee);
+            totalFees = totalFees.add(transactionFee);
+            net.merge(transfer.getFromAccountId(), transfer.getAmount().add(transactionFee).negate(), BigDecimal::add);
+            net.merge(transfer.getToAccountId(), transfer.getAmount(), BigDecimal::add);
+        }
+        // a transfer from an account to itself has no pair to net against
+        if (net.size() != 2) {
+            return false;
+        }
+        for (Map.Entry<Long, BigDecimal> position : net.entrySet()) {
+            BankAccount account = accounts.get(position.getKey());
+            if (account == null || account.getBalance().add(position.getValue()).signum() < 0) {
+                return false;
+            }
+        }
+
+        BankAccount first = accounts.get(transfers.get(0).getFromAccountId());
+        BankAccount second = accounts.get(transfers.get(0).getToAccountId());
+        first.setBalance(first.getBalance().add(net.get(first.getId())));
+        second.setBalance(second.getBalance().add(net.get(second.getId())));
+        ledgerService.postNetTransfer(first, net.get(first.getId()), second, net.get(second.getId()), totalFees);
+
+        for (int i = 0; i < transfers.size(); i++) {
+            ScheduledTransfer transfer = transfers.get(i);
+            BankAccount fromAccount = accounts.get(transfer.getFromAccountId());
+            BankAccount toAccount = accounts.get(transfer.getToAccountId());
+            String status = resolveTransferStatus(transfer.getAmount());
+            recorded.add(buildTransaction(fromAccount, toAccount, transfer.getAmount(), "DEBIT", status));
+            recorded.add(buildTransaction(toAccount, fromAccount, transfer.getAmount(), "CREDIT", status));
+            transferDelta(summaryDelta, fromAccount, toAccount, transfer.getAmount(), fees.get(i), status);
+        }
+        return true;
+    }
 
     public void schedulePermanentTransfer(TransferRequest transferRequest, Long userId) {
         BankAccount fromAccount = accountRepository.findById(transferRequest.getFromAccount())
@@ -181,6 +483,10 @@ public class UserService {
         scheduledTransfer.setAmount(BigDecimal.valueOf(transferRequest.getAmount()));
         scheduledTransfer.setFrequency(transferRequest.getFrequency().toUpperCase());
         scheduledTransfer.setNextExecutionDate(OffsetDateTime.of(calculateInitialExecutionDate(transferRequest.getFrequency()), OffsetDateTime.now().getOffset()));
+        if (transferRequest.getEndDate() != null && transferRequest.getEndDate().isBefore(scheduledTransfer.getNextExecutionDate())) {
+            throw new IllegalArgumentException("End date must not be before the first execution");
+        }
+        scheduledTransfer.setEndDate(transferRequest.getEndDate());
 
         scheduledTransferRepository.save(scheduledTransfer);
     }
@@ -189,38 +495,46 @@ public class UserService {
      * Deposit money into an account.
      */
     public void depositMoney(Long userId, Long accountId, BigDecimal amount) {
-        BankAccount account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new RuntimeException("Account not found"));
+        transferEngine.execute(Collections.singletonList(accountId), () -> {
+            BankAccount account = accountRepository.findById(accountId)
+                    .orElseThrow(() -> new RuntimeException("Account not found"));
 
-        if (!account.getUser().getId().equals(userId)) {
-            throw new RuntimeException("You are not authorized to deposit to this account");
-        }
+            if (!account.getUser().getId().equals(userId)) {
+                throw new RuntimeException("You are not authorized to deposit to this account");
+            }
 
-        account.setBalance(account.getBalance().add(amount));
-        accountRepository.save(account);
+            account.setBalance(account.getBalance().add(amount));
+            accountRepository.save(account);
+            ledgerService.postDeposit(account, amount);
+            dashboardSummaryService.apply(DashboardSummaryService.delta().balance(userId, amount));
 
-        recordTransaction(account, amount, "CREDIT", "APPROVED");
+            recordTransaction(account, null, amount, "CREDIT", "APPROVED");
+        });
     }
 
     /**
      * Withdraw money from an account.
      */
     public void withdrawMoney(Long userId, Long accountId, BigDecimal amount) {
-        BankAccount account = accountRepository.findById(accountId)
-                .orElseThrow(() -> new RuntimeException("Account not found"));
+        transferEngine.execute(Collections.singletonList(accountId), () -> {
+            BankAccount account = accountRepository.findById(accountId)
+                    .orElseThrow(() -> new RuntimeException("Account not found"));
 
-        if (!account.getUser().getId().equals(userId)) {
-            throw new RuntimeException("You are not authorized to withdraw from this account");
-        }
+            if (!account.getUser().getId().equals(userId)) {
+                throw new RuntimeException("You are not authorized to withdraw from this account");
+            }
 
-        if (account.getBalance().compareTo(amount) < 0) {
-            throw new RuntimeException("Insufficient funds for withdrawal");
-        }
+            if (account.getBalance().compareTo(amount) < 0) {
+                throw new RuntimeException("Insufficient funds for withdrawal");
+            }
 
-        account.setBalance(account.getBalance().subtract(amount));
-        accountRepository.save(account);
+            account.setBalance(account.getBalance().subtract(amount));
+            accountRepository.save(account);
+            ledgerService.postWithdrawal(account, amount);
+            dashboardSummaryService.apply(DashboardSummaryService.delta().balance(userId, amount.negate()));
 
-        recordTransaction(account, amount, "DEBIT", "APPROVED");
+            recordTransaction(account, null, amount, "DEBIT", "APPROVED");
+        });
     }
 
     /**
@@ -261,6 +575,7 @@ public class UserService {
         BigDecimal transferAmount = BigDecimal.valueOf(amount);
         switch (transactionType.toUpperCase()) {
             case "CLASSIC":
+            case "PERMANENT":
                 return transferAmount.multiply(BigDecimal.valueOf(0.01));
             case "INSTANT":
                 return transferAmount.multiply(BigDecimal.valueOf(0.02));
@@ -286,6 +601,7 @@ public class UserService {
 
     /**
      * Process the fund transfer between accounts.
+     * Must run inside {@link TransferEngine#execute} so both accounts are locked.
      */
     private void processTransfer(BankAccount fromAccount, BankAccount toAccount, BigDecimal transferAmount, BigDecimal transactionFee) {
         fromAccount.setBalance(fromAccount.getBalance().subtract(transferAmount.add(transactionFee)));
@@ -293,26 +609,64 @@ public class UserService {
 
         accountRepository.save(fromAccount);
         accountRepository.save(toAccount);
+        ledgerService.postTransfer(fromAccount, toAccount, transferAmount, transactionFee);
+
+        String status = resolveTransferStatus(transferAmount);
+
+        recordTransaction(fromAccount, toAccount, transferAmount, "DEBIT", status);
+        recordTransaction(toAccount, fromAccount, transferAmount, "CREDIT", status);
+        dashboardSummaryService.apply(transferDelta(DashboardSummaryService.delta(),
+                fromAccount, toAccount, transferAmount, transactionFee, status));
+    }
 
-        String status = transferAmount.compareTo(BigDecimal.valueOf(5000)) > 0 ? "PENDING" : "APPROVED";
+    /**
+     * Dashboard counter changes of one transfer: both legs count as pending for their owner.
+     */
+    private DashboardSummaryService.Delta transferDelta(DashboardSummaryService.Delta delta, BankAccount fromAccount, BankAccount toAccount,
+                                                        BigDecimal transferAmount, BigDecimal transactionFee, String status) {
+        Long fromUserId = fromAccount.getUser().getId();
+        Long toUserId = toAccount.getUser().getId();
+        delta.balance(fromUserId, transferAmount.add(transactionFee).negate())
+                .balance(toUserId, transferAmount);
+        if ("PENDING".equals(status)) {
+            delta.pendingTransactions(fromUserId, 1).pendingTransactions(toUserId, 1);
+        }
+        return delta;
+    }
 
-        recordTransaction(fromAccount, transferAmount, "DEBIT", status);
-        recordTransaction(toAccount, transferAmount, "CREDIT", status);
+    /**
+     * Transfers above 5000 need an employee approval.
+     */
+    private String resolveTransferStatus(BigDecimal transferAmount) {
+        return transferAmount.compareTo(BigDecimal.valueOf(5000)) > 0 ? "PENDING" : "APPROVED";
     }
 
     /**
-     * Record a transaction in the database and Elasticsearch.
+     * Record a transaction in the database and queue it for the search index.
      */
-    private void recordTransaction(BankAccount account, BigDecimal amount, String type, String status) {
+    private void recordTransaction(BankAccount account, BankAccount counterparty, BigDecimal amount, String type, String status) {
+        Transaction transaction = buildTransaction(account, counterparty, amount, type, status);
+        transactionRepository.save(transaction);
+        searchOutboxService.enqueue(List.of(transaction));
+        publishIfPending(transaction);
+    }
+
+    private void publishIfPending(Transaction transaction) {
+        if ("PENDING".equals(transaction.getStatus())) {
+            eventPublisher.publishEvent(ApprovalQueueEvent.pending(transaction));
+        }
+    }
+
+    private Transaction buildTransaction(BankAccount account, BankAccount counterparty, BigDecimal amount, String type, String status) {
         Transaction transaction = new Transaction();
         transaction.setAmount(amount);
         transaction.setType(type);
         transaction.setDate(OffsetDateTime.now());
         transaction.setBankAccount(account);
         transaction.setUser(account.getUser());
+        transaction.setCounterpartyAccountNumber(counterparty == null ? null : counterparty.getAccountNumber());
         transaction.setStatus(status);
-        transactionRepository.save(transaction);
-        transactionSearchRepository.save(transaction);
+        return transaction;
     }
 
     /**
@@ -344,6 +698,8 @@ public class UserService {
         dto.setDate(transaction.getDate().format(formatter));
         dto.setType(transaction.getType());
         dto.setStatus(transaction.getStatus());
+        dto.setAccountNumber(transaction.getBankAccount().getAccountNumber());
+        dto.setCounterpartyAccountNumber(transaction.getCounterpartyAccountNumber());
         dto.setOtherPartyUsername(
                 transaction.getType().equalsIgnoreCase("DEBIT") ?
                         transaction.getBankAccount().getUser().getUsername() :
@@ -365,26 +721,44 @@ public class UserService {
         }
     }
 
-    public Map<String, Object> getDashboardSummary(Long userId) {
-        BigDecimal totalBalance = accountRepository.findByUserId(userId).stream()
-                .map(BankAccount::getBalance)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+    /**
+     * Compare the stored balance of an account with the one derived from the ledger.
+     */
+    public Map<String, Object> getLedgerBalance(Long accountId, Long userId) {
+        BankAccount account = accountRepository.findById(accountId)
+                .orElseThrow(() -> new RuntimeException("Account not found"));
+        if (!account.getUser().getId().equals(userId)) {
+            throw new RuntimeException("Unauthorized access to the account");
+        }
+
+        BigDecimal ledgerBalance = ledgerService.getBalance(accountId);
 
-        long activeAccounts = accountRepository.findByUserId(userId).stream()
-                .filter(account -> "ACTIVE".equalsIgnoreCase(account.getStatus()))
-                .count();
+        Map<String, Object> result = new HashMap<>();
+        result.put("accountId", accountId);
+        result.put("balance", account.getBalance());
+        result.put("ledgerBalance", ledgerBalance);
+        result.put("reconciled", account.getBalance().compareTo(ledgerBalance) == 0);
+        return result;
+    }
 
-        long pendingTransactions = transactionRepository.findByUserId(userId).stream()
-                .filter(transaction -> "PENDING".equalsIgnoreCase(transaction.getStatus()))
-                .count();
+    /**
+     * Concurrent requests of the same user share one computation.
+     */
+    public Map<String, Object> getDashboardSummary(Long userId) {
+        return dashboardFlight.execute(userId, () -> loadDashboardSummary(userId));
+    }
 
-        List<Transaction> recentTransactions = transactionRepository.findByUserIdOrderByDateDesc(userId, PageRequest.of(0,4));
+    private Map<String, Object> loadDashboardSummary(Long userId) {
+        CompletableFuture<UserDashboardSummary> summaryQuery = dashboardExecutor.submit(() -> dashboardSummaryService.getSummary(userId));
+        CompletableFuture<List<Transaction>> recentQuery = dashboardExecutor.submit(
+                () -> transactionRepository.findByUserIdOrderByDateDesc(userId, PageRequest.of(0,4)));
+        UserDashboardSummary summary = DashboardExecutor.await(summaryQuery);
 
         Map<String, Object> dashboardSummary = new HashMap<>();
-        dashboardSummary.put("totalBalance", totalBalance);
-        dashboardSummary.put("activeAccounts", activeAccounts);
-        dashboardSummary.put("pendingTransactions", pendingTransactions);
-        dashboardSummary.put("recentTransactions", recentTransactions);
+        dashboardSummary.put("totalBalance", summary.getTotalBalance());
+        dashboardSummary.put("activeAccounts", summary.getActiveAccounts());
+        dashboardSummary.put("pendingTransactions", summary.getPendingTransactions());
+        dashboardSummary.put("recentTransactions", DashboardExecutor.await(recentQuery));
 
         return dashboardSummary;
     }
@@ -0,0 +1,72 @@
+package com.youcode.bankify.util;
+
+import com.youcode.bankify.exception.RetryableOperationException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Collection;
+import java.util.Objects;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-JVM locks keyed by bank account id.
+ * Stripes are always acquired in ascending index order, so two transfers touching
+ * the same accounts can never deadlock, while transfers on unrelated accounts
+ * only contend when they hash to the same stripe.
+ */
+@Component
+public class AccountLockManager {
+
+    private final ReentrantLock[] stripes;
+    private final long lockTimeoutMs;
+
+    public AccountLockManager(@Value("${bankify.transfer.lock-stripes:256}") int stripeCount,
+                              @Value("${bankify.transfer.lock-timeout-ms:5000}") long lockTimeoutMs) {
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            // fair locks so same-account transfers are served in arrival order
+            stripes[i] = new ReentrantLock(true);
+        }
+        this.lockTimeoutMs = lockTimeoutMs;
+    }
+
+    /**
+     * Run the action while holding the stripes of every given account.
+     */
+    public <T> T withLocks(Collection<Long> accountIds, Supplier<T> action) {
+        int[] order = accountIds.stream()
+                .filter(Objects::nonNull)
+                .mapToInt(this::stripeOf)
+                .distinct()
+                .sorted()
+                .toArray();
+
+        int acquired = 0;
+        try {
+            for (int index : order) {
+                if (!stripes[index].tryLock(lockTimeoutMs, TimeUnit.MILLISECONDS)) {
+                    throw new RetryableOperationException("Account is busy, please retry the operation");
+                }
+                acquired++;
+            }
+            return action.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RetryableOperationException("Interrupted while waiting for account lock", e);
+        } finally {
+            for (int i = acquired - 1; i >= 0; i--) {
+                stripes[order[i]].unlock();
+            }
+        }
+    }
+
+    public int stripeOf(Long accountId) {
+        return Math.floorMod(accountId, stripes.length);
+    }
+
+    public int getStripeCount() {
+        return stripes.length;
+    }
+}
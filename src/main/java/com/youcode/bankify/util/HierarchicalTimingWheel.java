@@ -0,0 +1,115 @@
+package com.youcode.bankify.util;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Hierarchical timing wheel: level 0 has one slot per tick, every higher level has slots
+ * {@code wheelSize} times wider. An entry sits in the coarsest level that can still tell its slot
+ * apart and moves down a level each time the clock reaches the start of its slot, so scheduling
+ * and expiring are O(1) however many entries are pending. Entries further out than the top level
+ * wait in an overflow list. Not thread-safe; callers serialize access.
+ */
+public class HierarchicalTimingWheel<T> {
+
+    private final long tickMs;
+    private final int wheelSize;
+    private final long[] slotTicks;
+    private final List<List<Entry<T>>[]> levels = new ArrayList<>();
+    private final List<Entry<T>> overflow = new ArrayList<>();
+    private final List<Entry<T>> due = new ArrayList<>();
+    private long currentTick;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public HierarchicalTimingWheel(long tickMs, int wheelSize, int levelCount, long startMs) {
+        if (tickMs <= 0 || wheelSize < 2 || levelCount < 1) {
+            throw new IllegalArgumentException("Invalid timing wheel geometry");
+        }
+        this.tickMs = tickMs;
+        this.wheelSize = wheelSize;
+        this.slotTicks = new long[levelCount + 1];
+        slotTicks[0] = 1;
+        for (int level = 1; level <= levelCount; level++) {
+            slotTicks[level] = Math.multiplyExact(slotTicks[level - 1], wheelSize);
+        }
+        for (int level = 0; level < levelCount; level++) {
+            List<Entry<T>>[] slots = new List[wheelSize];
+            for (int slot = 0; slot < wheelSize; slot++) {
+                slots[slot] = new ArrayList<>();
+            }
+            levels.add(slots);
+        }
+        this.currentTick = startMs / tickMs;
+    }
+
+    /**
+     * Schedule an item to expire at {@code deadlineMs}; a deadline already past expires on the next advance.
+     */
+    public void schedule(T item, long deadlineMs) {
+        place(new Entry<>(item, Math.floorDiv(deadlineMs + tickMs - 1, tickMs)));
+        size++;
+    }
+
+    /**
+     * Move the clock to {@code nowMs} and hand every item whose deadline has passed to {@code expired}.
+     */
+    public void advance(long nowMs, Consumer<T> expired) {
+        long targetTick = nowMs / tickMs;
+        drainDue(expired);
+        while (currentTick < targetTick) {
+            currentTick++;
+            if (currentTick % slotTicks[levels.size()] == 0) {
+                List<Entry<T>> waiting = new ArrayList<>(overflow);
+                overflow.clear();
+                waiting.forEach(this::place);
+            }
+            for (int level = levels.size() - 1; level >= 1; level--) {
+                if (currentTick % slotTicks[level] == 0) {
+                    List<Entry<T>> slot = levels.get(level)[slotIndex(currentTick, level)];
+                    List<Entry<T>> cascading = new ArrayList<>(slot);
+                    slot.clear();
+                    cascading.forEach(this::place);
+                }
+            }
+            List<Entry<T>> slot = levels.get(0)[slotIndex(currentTick, 0)];
+            due.addAll(slot);
+            slot.clear();
+            drainDue(expired);
+        }
+    }
+
+    public int size() {
+        return size;
+    }
+
+    private void place(Entry<T> entry) {
+        long delta = entry.tick() - currentTick;
+        if (delta <= 0) {
+            due.add(entry);
+            return;
+        }
+        for (int level = 0; level < levels.size(); level++) {
+            if (delta < slotTicks[level + 1]) {
+                levels.get(level)[slotIndex(entry.tick(), level)].add(entry);
+                return;
+            }
+        }
+        overflow.add(entry);
+    }
+
+    private int slotIndex(long tick, int level) {
+        return (int) Math.floorMod(tick / slotTicks[level], (long) wheelSize);
+    }
+
+    private void drainDue(Consumer<T> expired) {
+        for (Entry<T> entry : due) {
+            size--;
+            expired.accept(entry.item());
+        }
+        due.clear();
+    }
+
+    private record Entry<T>(T item, long tick) {}
+}
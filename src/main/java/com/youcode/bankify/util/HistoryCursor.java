@@ -0,0 +1,46 @@
+package com.youcode.bankify.util;
+
+import com.youcode.bankify.entity.Transaction;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.Base64;
+import java.util.List;
+
+/**
+ * Position in a transaction history ordered by (date desc, id desc): the sort values of the
+ * last row returned. Handed to clients as an opaque base64 token.
+ */
+public record HistoryCursor(OffsetDateTime date, long id) {
+
+    private static final String SEPARATOR = "|";
+
+    /**
+     * Cursor after the last row of a page, or null when the page was not full and is the last one.
+     */
+    public static String nextCursor(List<Transaction> page, int size) {
+        if (page.isEmpty() || page.size() < size) {
+            return null;
+        }
+        Transaction last = page.get(page.size() - 1);
+        return new HistoryCursor(last.getDate(), last.getId()).encode();
+    }
+
+    public String encode() {
+        String raw = date + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static HistoryCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int separator = raw.lastIndexOf(SEPARATOR);
+            return new HistoryCursor(
+                    OffsetDateTime.parse(raw.substring(0, separator)),
+                    Long.parseLong(raw.substring(separator + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException | DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid history cursor");
+        }
+    }
+}
@@ -0,0 +1,77 @@
+package com.youcode.bankify.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+/**
+ * Pre-allocated, lock-free ring buffer for many producers and a single consumer.
+ * Producers claim a sequence, fill the slot in place and publish it; the consumer drains
+ * published slots in sequence order. Slots are reused, so nothing is allocated per entry.
+ */
+public class MpscRingBuffer<E> {
+
+    private final Object[] slots;
+    private final AtomicLongArray published;
+    private final int capacity;
+    private final int mask;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final AtomicLong consumed = new AtomicLong(-1);
+
+    public MpscRingBuffer(int capacity, Supplier<E> slotFactory) {
+        if (capacity <= 0 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two: " + capacity);
+        }
+        this.capacity = capacity;
+        this.mask = capacity - 1;
+        this.slots = new Object[capacity];
+        this.published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            slots[i] = slotFactory.get();
+            published.set(i, -1);
+        }
+    }
+
+    /**
+     * Claim the next slot, let the translator fill it and publish it.
+     * Parks while the ring is full, which back-pressures producers.
+     */
+    public void publish(Consumer<E> translator) {
+        long sequence = claimed.incrementAndGet();
+        while (sequence - capacity > consumed.get()) {
+            LockSupport.parkNanos(1_000);
+        }
+        int index = (int) (sequence & mask);
+        translator.accept(slot(index));
+        published.set(index, sequence);
+    }
+
+    /**
+     * Hand up to {@code max} published slots to the handler in sequence order.
+     * Slots are released to producers once the handler returns, so it must copy what it needs.
+     */
+    public int drain(Consumer<E> handler, int max) {
+        long next = consumed.get() + 1;
+        int count = 0;
+        while (count < max && published.get((int) (next & mask)) == next) {
+            handler.accept(slot((int) (next & mask)));
+            next++;
+            count++;
+        }
+        if (count > 0) {
+            consumed.lazySet(next - 1);
+        }
+        return count;
+    }
+
+    public long size() {
+        return claimed.get() - consumed.get();
+    }
+
+    @SuppressWarnings("unchecked")
+    private E slot(int index) {
+        return (E) slots[index];
+    }
+}
@@ -0,0 +1,110 @@
+package com.youcode.bankify.util;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Counts the SQL statements Hibernate prepares while a count is open.
+ * Registered as the session factory's statement inspector when the query budget is enabled.
+ * Work handed to another thread is charged to the caller's count when it is wrapped with
+ * {@link #propagate(Supplier)} or run through {@link #charge(Count, Runnable)}.
+ */
+public class QueryCounter implements StatementInspector {
+
+    private static final ThreadLocal<Count> CURRENT = new ThreadLocal<>();
+
+    @Override
+    public String inspect(String sql) {
+        Count count = CURRENT.get();
+        if (count != null) {
+            count.increment();
+        }
+        return sql;
+    }
+
+    public static void start() {
+        CURRENT.set(new Count(null));
+    }
+
+    /**
+     * Close the count of the current thread and return it.
+     */
+    public static int stop() {
+        Count count = CURRENT.get();
+        CURRENT.remove();
+        return count == null ? 0 : count.get();
+    }
+
+    /**
+     * The count open on the current thread, null when there is none.
+     */
+    public static Count current() {
+        return CURRENT.get();
+    }
+
+    /**
+     * Run the task on the current thread with its statements charged to {@code count}, or to no count when null.
+     */
+    public static <T> T charge(Count count, Supplier<T> task) {
+        Count previous = CURRENT.get();
+        CURRENT.set(count);
+        try {
+            return task.get();
+        } finally {
+            CURRENT.set(previous);
+        }
+    }
+
+    public static void charge(Count count, Runnable task) {
+        charge(count, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * Wrap a task about to be handed to another thread so its statements are charged to the caller's count.
+     */
+    public static <T> Supplier<T> propagate(Supplier<T> task) {
+        Count count = CURRENT.get();
+        return count == null ? task : () -> charge(count, task);
+    }
+
+    /**
+     * Statements issued on behalf of one request. A shared count charges every request it was built from.
+     */
+    public static final class Count {
+        private final AtomicInteger statements = new AtomicInteger();
+        private final List<Count> members;
+
+        private Count(List<Count> members) {
+            this.members = members;
+        }
+
+        /**
+         * A count charging each of the given counts, null when none of them is open.
+         */
+        public static Count shared(Collection<Count> counts) {
+            List<Count> members = new ArrayList<>();
+            counts.stream().filter(Objects::nonNull).forEach(members::add);
+            return members.isEmpty() ? null : new Count(members);
+        }
+
+        public int get() {
+            return statements.get();
+        }
+
+        private void increment() {
+            statements.incrementAndGet();
+            if (members != null) {
+                members.forEach(Count::increment);
+            }
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package com.youcode.bankify.util;
+
+import java.util.function.Supplier;
+
+/**
+ * A value recomputed in the background and served to readers while it is younger than
+ * {@code maxAgeMs}. A reader finding it missing or stale recomputes it, and concurrent readers
+ * share that one computation.
+ */
+public class RefreshingSnapshot<V> {
+
+    private final Supplier<V> loader;
+    private final long maxAgeNanos;
+    private final SingleFlight<Boolean, V> flight = new SingleFlight<>();
+    private volatile Snapshot<V> current;
+
+    public RefreshingSnapshot(Supplier<V> loader, long maxAgeMs) {
+        this.loader = loader;
+        this.maxAgeNanos = maxAgeMs * 1_000_000;
+    }
+
+    public V get() {
+        Snapshot<V> snapshot = current;
+        if (snapshot != null && System.nanoTime() - snapshot.takenAt() < maxAgeNanos) {
+            return snapshot.value();
+        }
+        return refresh();
+    }
+
+    public V refresh() {
+        return flight.execute(Boolean.TRUE, () -> {
+            V value = loader.get();
+            current = new Snapshot<>(value, System.nanoTime());
+            return value;
+        });
+    }
+
+    private record Snapshot<V>(V value, long takenAt) {}
+}
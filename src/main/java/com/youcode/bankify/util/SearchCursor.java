@@ -0,0 +1,50 @@
+package com.youcode.bankify.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+
+/**
+ * Position in a paginated search: the point-in-time to read from and the sort values
+ * (date, id) of the last hit returned, bound to the fingerprint of the filter it was issued for.
+ * Handed to clients as an opaque base64 token.
+ */
+public record SearchCursor(String filterHash, String pitId, long date, long id) {
+
+    private static final String SEPARATOR = "|";
+
+    public String encode() {
+        String raw = filterHash + SEPARATOR + pitId + SEPARATOR + date + SEPARATOR + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static SearchCursor decode(String token) {
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(token), StandardCharsets.UTF_8);
+            int first = raw.indexOf(SEPARATOR);
+            int last = raw.lastIndexOf(SEPARATOR);
+            int middle = raw.lastIndexOf(SEPARATOR, last - 1);
+            if (first <= 0 || middle <= first) {
+                throw new IllegalArgumentException("Invalid search cursor");
+            }
+            return new SearchCursor(
+                    raw.substring(0, first),
+                    raw.substring(first + 1, middle),
+                    Long.parseLong(raw.substring(middle + 1, last)),
+                    Long.parseLong(raw.substring(last + 1)));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Invalid search cursor");
+        }
+    }
+
+    /**
+     * Decode a cursor and check it belongs to the search it is used with; search_after positions
+     * only make sense for the filter that produced them.
+     */
+    public static SearchCursor decode(String token, String filterHash) {
+        SearchCursor cursor = decode(token);
+        if (!cursor.filterHash().equals(filterHash)) {
+            throw new IllegalArgumentException("Search cursor was issued for a different filter, start the search again");
+        }
+        return cursor;
+    }
+}
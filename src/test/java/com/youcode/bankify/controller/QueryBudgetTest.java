@@ -0,0 +1,266 @@
+package com.youcode.bankify.controller;
+
+import com.youcode.bankify.config.QueryBudgetConfig;
+import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.entity.Role;
+import com.youcode.bankify.entity.ScheduledTransfer;
+import com.youcode.bankify.entity.Transaction;
+import com.youcode.bankify.entity.User;
+import com.youcode.bankify.entity.UserDashboardSummary;
+import com.youcode.bankify.filter.QueryBudgetFilter;
+import com.youcode.bankify.repository.elasticsearch.BulkIndexer;
+import com.youcode.bankify.repository.elasticsearch.TransactionSearchRepositoryCustom;
+import com.youcode.bankify.repository.jpa.AccountRepository;
+import com.youcode.bankify.repository.jpa.RoleRepository;
+import com.youcode.bankify.repository.jpa.ScheduledTransferRepository;
+import com.youcode.bankify.repository.jpa.TransactionRepository;
+import com.youcode.bankify.repository.jpa.UserDashboardSummaryRepository;
+import com.youcode.bankify.repository.jpa.UserRepository;
+import com.youcode.bankify.service.AdminService;
+import com.youcode.bankify.service.DashboardExecutor;
+import com.youcode.bankify.service.DashboardSummaryService;
+import com.youcode.bankify.service.IdempotencyService;
+import com.youcode.bankify.service.InvoiceService;
+import com.youcode.bankify.service.LedgerService;
+import com.youcode.bankify.service.LoanService;
+import com.youcode.bankify.service.ScheduledTransferService;
+import com.youcode.bankify.service.SearchOutboxService;
+import com.youcode.bankify.service.SearchReindexService;
+import com.youcode.bankify.service.TransactionService;
+import com.youcode.bankify.service.TransferEngine;
+import com.youcode.bankify.service.UserService;
+import com.youcode.bankify.util.JwtUtil;
+import com.youcode.bankify.util.QueryCounter;
+import jakarta.persistence.EntityManagerFactory;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.orm.jpa.support.OpenEntityManagerInViewInterceptor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.web.servlet.handler.WebRequestHandlerInterceptorAdapter;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+/**
+ * Runs the list and dashboard endpoints against an in-memory database with the query budget of the
+ * test profile, and fails on any breach the filter records. Liquibase is off: its changesets are
+ * written for Postgres, so the schema comes from the entities.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.url=jdbc:h2:mem:query-budget;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "bankify.dashboard.snapshot-max-age-ms=0"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ActiveProfiles("test")
+@Import({QueryBudgetConfig.class, UserService.class, TransactionService.class, ScheduledTransferService.class,
+        AdminService.class, DashboardSummaryService.class, DashboardExecutor.class})
+class QueryBudgetTest {
+
+    private static final int PAGE_SIZE = 30;
+
+    @MockBean private SearchOutboxService searchOutboxService;
+    @MockBean private TransferEngine transferEngine;
+    @MockBean private LedgerService ledgerService;
+    @MockBean private JwtUtil jwtUtil;
+    @MockBean private TransactionSearchRepositoryCustom transactionSearchRepository;
+    @MockBean private PasswordEncoder passwordEncoder;
+
+    @Autowired private UserService userService;
+    @Autowired private TransactionService transactionService;
+    @Autowired private ScheduledTransferService scheduledTransferService;
+    @Autowired private AdminService adminService;
+    @Autowired private UserRepository userRepository;
+    @Autowired private RoleRepository roleRepository;
+    @Autowired private AccountRepository accountRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private ScheduledTransferRepository scheduledTransferRepository;
+    @Autowired private UserDashboardSummaryRepository userDashboardSummaryRepository;
+    @Autowired private EntityManagerFactory entityManagerFactory;
+    @Autowired private FilterRegistrationBean<QueryBudgetFilter> queryBudgetRegistration;
+
+    private QueryBudgetFilter queryBudgetFilter;
+    private MockMvc mockMvc;
+    private User owner;
+    private BankAccount account;
+
+    @BeforeEach
+    void setUp() {
+        queryBudgetFilter = queryBudgetRegistration.getFilter();
+        queryBudgetFilter.clearViolations();
+
+        UserController userController = new UserController(userService, mock(InvoiceService.class), mock(LoanService.class),
+                transactionService, scheduledTransferService, mock(IdempotencyService.class));
+        AdminController adminController = new AdminController(adminService, userService, mock(BulkIndexer.class),
+                mock(SearchReindexService.class), scheduledTransferService);
+        OpenEntityManagerInViewInterceptor openEntityManagerInView = new OpenEntityManagerInViewInterceptor();
+        openEntityManagerInView.setEntityManagerFactory(entityManagerFactory);
+        mockMvc = MockMvcBuilders.standaloneSetup(userController, adminController)
+                .addFilters(queryBudgetFilter)
+                .addInterceptors(new WebRequestHandlerInterceptorAdapter(openEntityManagerInView))
+                .build();
+
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        roleRepository.save(role);
+        owner = user(role);
+        account = account(owner);
+        BankAccount counterparty = account(user(role));
+
+        // the summary is normally built by an upsert written for Postgres
+        UserDashboardSummary summary = new UserDashboardSummary();
+        summary.setUserId(owner.getId());
+        summary.setTotalBalance(account.getBalance());
+        summary.setActiveAccounts(1);
+        summary.setUpdatedAt(OffsetDateTime.now());
+        userDashboardSummaryRepository.save(summary);
+
+        for (int i = 0; i < PAGE_SIZE; i++) {
+            Transaction transaction = new Transaction();
+            transaction.setAmount(BigDecimal.TEN);
+            transaction.setType("TRANSFER");
+            transaction.setStatus("COMPLETED");
+            transaction.setDate(OffsetDateTime.now().minusMinutes(i));
+            transaction.setBankAccount(i % 2 == 0 ? account : counterparty);
+            transaction.setUser(i % 2 == 0 ? owner : counterparty.getUser());
+            transactionRepository.save(transaction);
+
+            ScheduledTransfer scheduledTransfer = new ScheduledTransfer();
+            scheduledTransfer.setFromAccountId(i % 2 == 0 ? account.getId() : counterparty.getId());
+            scheduledTransfer.setToAccountId(i % 2 == 0 ? counterparty.getId() : account.getId());
+            scheduledTransfer.setAmount(BigDecimal.ONE);
+            scheduledTransfer.setFrequency("MONTHLY");
+            scheduledTransfer.setNextExecutionDate(OffsetDateTime.now().plusDays(i));
+            scheduledTransferRepository.save(scheduledTransfer);
+        }
+    }
+
+    @Test
+    void transactionHistoryStaysWithinBudgetWhateverThePageSize() throws Exception {
+        int small = statements(get("/api/user/transactions").param("size", "2"));
+        int full = statements(get("/api/user/transactions").param("size", String.valueOf(PAGE_SIZE)));
+
+        assertEquals(small, full, "the history issues statements per row");
+        assertNoViolations();
+    }
+
+    @Test
+    void accountHistoryStaysWithinBudgetWhateverThePageSize() throws Exception {
+        String path = "/api/user/accounts/" + account.getId() + "/transactions";
+        int small = statements(get(path).param("size", "2"));
+        int full = statements(get(path).param("size", String.valueOf(PAGE_SIZE)));
+
+        assertEquals(small, full, "the account history issues statements per row");
+        assertNoViolations();
+    }
+
+    @Test
+    void scheduledTransfersStayWithinBudgetWhateverThePageSize() throws Exception {
+        String path = "/api/user/accounts/" + account.getId() + "/scheduled-transfers";
+        int small = statements(get(path).param("size", "2"));
+        int full = statements(get(path).param("size", String.valueOf(PAGE_SIZE)));
+
+        assertEquals(small, full, "the scheduled transfers issue statements per row");
+        assertNoViolations();
+    }
+
+    @Test
+    void userDashboardCountsTheQueriesOfTheExecutor() throws Exception {
+        // the request thread only resolves the user, the summary and the recent transactions run on the executor
+        QueryCounter.start();
+        userService.getUserIdFromAuthentication(authentication());
+        int requestThread = QueryCounter.stop();
+
+        int dashboard = statements(get("/api/user/dashboard-summary"));
+
+        assertTrue(dashboard >= requestThread + 2, "dashboard queries were not counted: " + dashboard);
+        assertNoViolations();
+    }
+
+    @Test
+    void adminDashboardCountsTheQueriesOfTheExecutor() throws Exception {
+        int statements = statements(get("/api/admin/dashboard-summary"));
+
+        // every query of the admin dashboard runs on the executor, none on the request thread
+        assertTrue(statements >= 5, "dashboard queries were not counted: " + statements);
+        assertNoViolations();
+    }
+
+    @Test
+    void breachIsRecordedOnceTheResponseIsCommitted() throws Exception {
+        QueryBudgetFilter tightBudget = new QueryBudgetFilter(1, true);
+        MockMvc tight = MockMvcBuilders.standaloneSetup(new AdminController(adminService, userService,
+                        mock(BulkIndexer.class), mock(SearchReindexService.class), scheduledTransferService))
+                .addFilters(tightBudget)
+                .build();
+
+        tight.perform(get("/api/admin/dashboard-summary")).andExpect(status().isOk());
+
+        assertEquals(1, tightBudget.getViolations().size());
+        assertTrue(tightBudget.getViolations().get(0).startsWith("GET /api/admin/dashboard-summary issued "));
+    }
+
+    private int statements(MockHttpServletRequestBuilder request) throws Exception {
+        Object statements = mockMvc.perform(request.principal(authentication()))
+                .andExpect(status().isOk())
+                .andReturn()
+                .getRequest()
+                .getAttribute(QueryBudgetFilter.STATEMENTS_ATTRIBUTE);
+        return (Integer) statements;
+    }
+
+    private UsernamePasswordAuthenticationToken authentication() {
+        return new UsernamePasswordAuthenticationToken(owner.getUsername(), null, List.of());
+    }
+
+    private void assertNoViolations() {
+        assertEquals(List.of(), queryBudgetFilter.getViolations());
+    }
+
+    private User user(Role role) {
+        String name = UUID.randomUUID().toString();
+        User user = new User();
+        user.setUsername(name);
+        user.setPassword("password");
+        user.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        user.setAge(30);
+        user.setIdentityNumber(name);
+        user.setRoles(Set.of(role));
+        return userRepository.save(user);
+    }
+
+    private BankAccount account(User user) {
+        BankAccount account = new BankAccount();
+        account.setAccountNumber(UUID.randomUUID().toString());
+        account.setBalance(BigDecimal.valueOf(1000));
+        account.setStatus("ACTIVE");
+        account.setUser(user);
+        return accountRepository.save(account);
+    }
+}
@@ -0,0 +1,195 @@
+package com.youcode.bankify.repository.lucene;
+
+import com.youcode.bankify.dto.TransactionResponse;
+import com.youcode.bankify.dto.TransactionSearchRequest;
+import com.youcode.bankify.dto.TransactionSearchResponse;
+import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.entity.Transaction;
+import com.youcode.bankify.entity.User;
+import com.youcode.bankify.repository.elasticsearch.TransactionFilter;
+import com.youcode.bankify.util.SearchCursor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.file.Path;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class LuceneTransactionIndexTest {
+
+    private static final OffsetDateTime START = OffsetDateTime.of(2024, 3, 1, 9, 0, 0, 0, ZoneOffset.UTC);
+
+    @TempDir
+    Path path;
+
+    private LuceneTransactionIndex index;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        index = new LuceneTransactionIndex(path.toString(), 16, 60, 16);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        index.close();
+    }
+
+    @Test
+    void pagesWithTiedDatesReturnEveryHitOnce() throws IOException {
+        // 40 transactions on 4 instants, spread over several segments and with updated documents,
+        // so the doc ids of tied hits are not in sort order
+        List<CompletableFuture<Void>> writes = new ArrayList<>();
+        for (long id = 1; id <= 40; id++) {
+            writes.add(index.index(transaction(id, START.plusMinutes(id % 4))));
+            if (id % 10 == 0) {
+                index.flush();
+            }
+        }
+        for (long id = 3; id <= 40; id += 7) {
+            writes.add(index.index(transaction(id, START.plusMinutes(id % 4))));
+        }
+        index.flush();
+        index.refresh();
+        writes.forEach(write -> assertTrue(write.isDone()));
+
+        for (int size : List.of(1, 3, 4, 7, 40)) {
+            List<Long> ids = walk(size);
+            assertEquals(40, ids.size(), "page size " + size);
+            assertEquals(40, new HashSet<>(ids).size(), "page size " + size);
+            assertEquals(expectedOrder(), ids, "page size " + size);
+        }
+    }
+
+    @Test
+    void cursorKeepsReadingTheSnapshotItStartedOn() throws IOException {
+        for (long id = 1; id <= 6; id++) {
+            index.index(transaction(id, START));
+        }
+        index.flush();
+        index.refresh();
+
+        TransactionSearchRequest request = new TransactionSearchRequest();
+        TransactionSearchResponse first = index.searchByCriteria(request, null, 3);
+        index.index(transaction(7, START.plusDays(1)));
+        index.flush();
+        index.refresh();
+        request.setCursor(first.getNextCursor());
+        TransactionSearchResponse second = index.searchByCriteria(request, null, 3);
+
+        assertEquals(List.of(6L, 5L, 4L), ids(first));
+        assertEquals(List.of(3L, 2L, 1L), ids(second));
+    }
+
+    @Test
+    void cursorFromTheElasticsearchBackendIsRejectedAsExpired() {
+        TransactionSearchRequest request = new TransactionSearchRequest();
+        String filterHash = TransactionFilter.from(request, null).fingerprint();
+        request.setCursor(new SearchCursor(filterHash, "46ToAwMDaWR5BXV1aWQyKwZub2RlXzMAAAAAAAAAACoBYwADaWR4", 1L, 2L).encode());
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> index.searchByCriteria(request, null, 3));
+
+        assertEquals("Search cursor has expired, start the search again", e.getMessage());
+    }
+
+    @Test
+    void writeIsAcknowledgedOnlyByACommitThatIncludesIt() throws IOException {
+        CompletableFuture<Void> first = index.index(transaction(1, START));
+        index.refresh();
+        assertFalse(first.isDone(), "a refresh makes the write visible but not durable");
+
+        index.backgroundCommit();
+        assertTrue(first.isDone());
+        assertNull(first.join());
+
+        CompletableFuture<Void> second = index.index(transaction(2, START));
+        CompletableFuture<Void> deleted = index.delete(List.of(1L));
+        assertFalse(second.isDone());
+        assertFalse(deleted.isDone());
+
+        index.flush();
+        assertTrue(second.isDone());
+        assertTrue(deleted.isDone());
+    }
+
+    @Test
+    void scopedSearchOnlyReturnsTheGivenAccounts() throws IOException {
+        for (long id = 1; id <= 6; id++) {
+            index.index(transaction(id, START.plusMinutes(id)));
+        }
+        index.flush();
+        index.refresh();
+
+        TransactionSearchResponse page = index.searchByCriteria(new TransactionSearchRequest(), List.of("ACC-1"), 10);
+
+        assertEquals(List.of(5L, 3L, 1L), ids(page));
+    }
+
+    private List<Long> walk(int size) {
+        TransactionSearchRequest request = new TransactionSearchRequest();
+        List<Long> ids = new ArrayList<>();
+        Set<String> cursors = new HashSet<>();
+        while (true) {
+            TransactionSearchResponse page = index.searchByCriteria(request, null, size);
+            ids.addAll(ids(page));
+            if (page.getNextCursor() == null) {
+                return ids;
+            }
+            assertTrue(cursors.add(page.getNextCursor()), "cursor handed out twice");
+            request.setCursor(page.getNextCursor());
+        }
+    }
+
+    /**
+     * Newest first, then by id descending.
+     */
+    private List<Long> expectedOrder() {
+        List<Long> order = new ArrayList<>();
+        for (long minute = 3; minute >= 0; minute--) {
+            for (long id = 40; id >= 1; id--) {
+                if (id % 4 == minute) {
+                    order.add(id);
+                }
+            }
+        }
+        return order;
+    }
+
+    private List<Long> ids(TransactionSearchResponse page) {
+        // the amount of each test transaction is its id
+        return page.getTransactions().stream()
+                .map(TransactionResponse::getAmount)
+                .map(BigDecimal::longValue)
+                .toList();
+    }
+
+    private Transaction transaction(long id, OffsetDateTime date) {
+        User user = new User();
+        user.setUsername("owner");
+        BankAccount account = new BankAccount();
+        account.setAccountNumber("ACC-" + (id % 2));
+        Transaction transaction = new Transaction();
+        transaction.setId(id);
+        transaction.setAmount(BigDecimal.valueOf(id));
+        transaction.setType("DEBIT");
+        transaction.setStatus("APPROVED");
+        transaction.setDate(date);
+        transaction.setBankAccount(account);
+        transaction.setUser(user);
+        return transaction;
+    }
+}
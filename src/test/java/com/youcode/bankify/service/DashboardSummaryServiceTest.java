@@ -0,0 +1,234 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.dto.AccountCreationDTO;
+import com.youcode.bankify.dto.TransferRequest;
+import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.entity.Role;
+import com.youcode.bankify.entity.Transaction;
+import com.youcode.bankify.entity.User;
+import com.youcode.bankify.entity.UserDashboardSummary;
+import com.youcode.bankify.repository.jpa.AccountRepository;
+import com.youcode.bankify.repository.jpa.RoleRepository;
+import com.youcode.bankify.repository.jpa.TransactionRepository;
+import com.youcode.bankify.repository.jpa.UserDashboardSummaryRepository;
+import com.youcode.bankify.repository.jpa.UserRepository;
+import com.youcode.bankify.util.AccountLockManager;
+import com.youcode.bankify.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Checks the materialized counters against a recount of the source tables after the writes that
+ * maintain them. Runs on an in-memory database; Liquibase is off and the schema comes from the entities.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.url=jdbc:h2:mem:dashboard;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({DashboardSummaryService.class, UserService.class, EmployeeService.class, AdminService.class,
+        LedgerService.class, TransferEngine.class, AccountLockManager.class})
+class DashboardSummaryServiceTest {
+
+    @MockBean private SearchOutboxService searchOutboxService;
+    @MockBean private DashboardExecutor dashboardExecutor;
+    @MockBean private IdempotencyService idempotencyService;
+    @MockBean private JwtUtil jwtUtil;
+    @MockBean private PasswordEncoder passwordEncoder;
+
+    @SpyBean private UserDashboardSummaryRepository summaryRepository;
+
+    @Autowired private UserService userService;
+    @Autowired private EmployeeService employeeService;
+    @Autowired private AdminService adminService;
+    @Autowired private TransferEngine transferEngine;
+    @Autowired private PlatformTransactionManager transactionManager;
+    @Autowired private AccountRepository accountRepository;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private RoleRepository roleRepository;
+
+    private User alice;
+    private User bob;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        roleRepository.save(role);
+        alice = user(role);
+        bob = user(role);
+    }
+
+    @Test
+    void countersMatchARecountAfterEveryWrite() {
+        // neither user has a row yet: the first write of each builds it from the source tables
+        BankAccount aliceMain = userService.createBankAccount(new AccountCreationDTO(), alice.getId());
+        assertMatchesRecount(alice);
+        BankAccount bobMain = legacyAccount(bob, "30000");
+        userService.depositMoney(bob.getId(), bobMain.getId(), new BigDecimal("50"));
+        assertMatchesRecount(bob);
+
+        BankAccount aliceSavings = userService.createBankAccount(new AccountCreationDTO(), alice.getId());
+        userService.depositMoney(alice.getId(), aliceMain.getId(), new BigDecimal("900"));
+        userService.withdrawMoney(alice.getId(), aliceSavings.getId(), new BigDecimal("30"));
+        assertMatchesBoth();
+
+        // an approved and a pending transfer, then the same mix in one batch chunk
+        transfer(bob, bobMain, aliceMain, 400);
+        transfer(bob, bobMain, aliceSavings, 6000);
+        assertMatchesBoth();
+        userService.transferFundsBatch(List.of(
+                batchItem(bobMain, aliceMain, 5500),
+                batchItem(bobMain, aliceSavings, 25),
+                batchItem(bobMain, aliceMain, 7000)), bob.getId());
+        assertMatchesBoth();
+
+        List<Transaction> pending = transactionRepository.findAll().stream()
+                .filter(transaction -> "PENDING".equals(transaction.getStatus()))
+                .toList();
+        assertEquals(6, pending.size());
+        employeeService.approveTransaction(pending.get(0).getId());
+        employeeService.rejectTransaction(pending.get(1).getId());
+        employeeService.approveTransaction(pending.get(0).getId());
+        assertMatchesBoth();
+
+        adminService.updateAccountStatus(aliceSavings.getId(), "blocked");
+        adminService.updateAccountStatus(aliceSavings.getId(), "BLOCKED");
+        assertMatchesRecount(alice);
+        adminService.updateAccountStatus(aliceSavings.getId(), "active");
+        adminService.updateAccountStatus(bobMain.getId(), "suspended");
+        assertMatchesBoth();
+    }
+
+    @Test
+    void firstWriteOfAUserWithoutARowIsComputedFromTheSourceTables() {
+        BankAccount account = legacyAccount(alice, "300");
+        legacyAccount(alice, "75");
+        assertFalse(summaryRepository.existsById(alice.getId()));
+
+        userService.depositMoney(alice.getId(), account.getId(), new BigDecimal("25"));
+
+        UserDashboardSummary summary = summaryRepository.findById(alice.getId()).orElseThrow();
+        assertAmount("400", summary.getTotalBalance());
+        assertEquals(2, summary.getActiveAccounts());
+        assertMatchesRecount(alice);
+    }
+
+    @Test
+    void rowInsertedByAnotherTransactionGetsTheDeltaOnTop() {
+        BankAccount account = legacyAccount(alice, "300");
+        // the row is missing when the deposit looks for it, and another transaction inserts it right after
+        TransactionTemplate other = new TransactionTemplate(transactionManager);
+        other.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        Answer<?> repository = mockingDetails(summaryRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            other.executeWithoutResult(status -> summaryRepository.insertFromSource(alice.getId()));
+            return 0;
+        }).doAnswer(repository).when(summaryRepository).applyDelta(eq(alice.getId()), any(), anyLong(), anyLong());
+
+        userService.depositMoney(alice.getId(), account.getId(), new BigDecimal("25"));
+
+        verify(summaryRepository, times(2)).insertFromSource(alice.getId());
+
+        assertAmount("325", summaryRepository.findById(alice.getId()).orElseThrow().getTotalBalance());
+        assertMatchesRecount(alice);
+    }
+
+    private void assertMatchesBoth() {
+        assertMatchesRecount(alice);
+        assertMatchesRecount(bob);
+    }
+
+    private void assertMatchesRecount(User user) {
+        UserDashboardSummary summary = summaryRepository.findById(user.getId()).orElseThrow();
+        List<BankAccount> accounts = accountRepository.findAll().stream()
+                .filter(account -> account.getUser().getId().equals(user.getId()))
+                .toList();
+        BigDecimal balance = accounts.stream().map(BankAccount::getBalance).reduce(BigDecimal.ZERO, BigDecimal::add);
+        long active = accounts.stream().filter(account -> "ACTIVE".equals(account.getStatus())).count();
+        long pending = transactionRepository.findAll().stream()
+                .filter(transaction -> transaction.getUser().getId().equals(user.getId()))
+                .filter(transaction -> "PENDING".equals(transaction.getStatus()))
+                .count();
+
+        assertAmount(balance.toPlainString(), summary.getTotalBalance());
+        assertEquals(active, summary.getActiveAccounts(), "active accounts of " + user.getUsername());
+        assertEquals(pending, summary.getPendingTransactions(), "pending transactions of " + user.getUsername());
+    }
+
+    private void transfer(User owner, BankAccount from, BankAccount to, double amount) {
+        TransferRequest request = batchItem(from, to, amount);
+        transferEngine.execute(List.of(from.getId(), to.getId()),
+                () -> userService.applyTransfer(request, owner.getId(), to.getId()));
+    }
+
+    private TransferRequest batchItem(BankAccount from, BankAccount to, double amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromAccount(from.getId());
+        request.setToAccountNumber(to.getAccountNumber());
+        request.setAmount(amount);
+        request.setTransactionType("CLASSIC");
+        return request;
+    }
+
+    /**
+     * An account written before the counters existed, so its owner has no row.
+     */
+    private BankAccount legacyAccount(User user, String balance) {
+        BankAccount account = new BankAccount();
+        account.setAccountNumber(UUID.randomUUID().toString());
+        account.setBalance(new BigDecimal(balance));
+        account.setStatus("ACTIVE");
+        account.setUser(user);
+        return accountRepository.save(account);
+    }
+
+    private User user(Role role) {
+        String name = UUID.randomUUID().toString();
+        User user = new User();
+        user.setUsername(name);
+        user.setPassword("password");
+        user.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        user.setAge(30);
+        user.setIdentityNumber(name);
+        user.setRoles(Set.of(role));
+        return userRepository.save(user);
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
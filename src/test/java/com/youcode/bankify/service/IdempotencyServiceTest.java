@@ -0,0 +1,275 @@
+package com.youcode.bankify.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.youcode.bankify.entity.IdempotencyRecord;
+import com.youcode.bankify.exception.OperationPendingException;
+import com.youcode.bankify.exception.RetryableOperationException;
+import com.youcode.bankify.repository.jpa.IdempotencyRecordRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.ResponseEntity;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class IdempotencyServiceTest {
+
+    private static final Long USER_ID = 1L;
+
+    private IdempotencyRecordRepository repository;
+    private IdempotencyService idempotencyService;
+    private final AtomicInteger executions = new AtomicInteger();
+    private final List<String> savedStates = new CopyOnWriteArrayList<>();
+    private final AtomicLong ids = new AtomicLong();
+
+    @BeforeEach
+    void setUp() {
+        repository = mock(IdempotencyRecordRepository.class);
+        when(repository.findByUserIdAndIdempotencyKey(any(), any())).thenReturn(Optional.empty());
+        when(repository.saveAndFlush(any())).thenAnswer(invocation -> {
+            IdempotencyRecord record = invocation.getArgument(0);
+            record.setId(ids.incrementAndGet());
+            return record;
+        });
+        when(repository.complete(any(), any(), any(), any())).thenAnswer(invocation -> {
+            savedStates.add("COMPLETED " + invocation.getArgument(1) + " " + invocation.getArgument(2));
+            return 1;
+        });
+        when(repository.release(any())).thenReturn(1);
+        when(repository.extendClaim(any(), any())).thenReturn(1);
+        when(repository.deleteExpired(any(Long.class), any())).thenReturn(1);
+
+        idempotencyService = new IdempotencyService(repository, new ObjectMapper().findAndRegisterModules());
+        ReflectionTestUtils.setField(idempotencyService, "ttlHours", 24L);
+        ReflectionTestUtils.setField(idempotencyService, "cacheSize", 100);
+        ReflectionTestUtils.setField(idempotencyService, "claimLeaseSeconds", 30L);
+    }
+
+    @Test
+    void replaysCompletedResponseWithoutRunningTheActionAgain() {
+        ResponseEntity<?> first = idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, this::succeed);
+        ResponseEntity<?> second = idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, this::succeed);
+
+        assertEquals(1, executions.get());
+        assertEquals(200, second.getStatusCode().value());
+        assertEquals(first.getBody(), second.getBody());
+        assertEquals("true", second.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+    }
+
+    @Test
+    void rejectsKeyReusedForDifferentRequestWith422() {
+        idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, this::succeed);
+
+        ResponseEntity<?> response = idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 20), this::applied, this::succeed);
+
+        assertEquals(422, response.getStatusCode().value());
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void answers409WhileTheClaimIsLeased() {
+        when(repository.findByUserIdAndIdempotencyKey(USER_ID, "key")).thenReturn(Optional.of(claim(OffsetDateTime.now().plusSeconds(30))));
+
+        ResponseEntity<?> response = idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, this::succeed);
+
+        assertEquals(409, response.getStatusCode().value());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void takesOverClaimWhoseLeaseExpired() {
+        IdempotencyRecord abandoned = claim(OffsetDateTime.now().minusSeconds(1));
+        when(repository.findByUserIdAndIdempotencyKey(USER_ID, "key")).thenReturn(Optional.of(abandoned));
+
+        ResponseEntity<?> response = idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, this::succeed);
+
+        assertEquals(200, response.getStatusCode().value());
+        assertEquals(1, executions.get());
+        verify(repository).deleteExpired(eq(abandoned.getId()), any());
+    }
+
+    @Test
+    void expiredClaimCompletedMeanwhileIsNotTakenOver() {
+        IdempotencyRecord late = claim(OffsetDateTime.now().minusSeconds(1));
+        when(repository.findByUserIdAndIdempotencyKey(USER_ID, "key")).thenReturn(Optional.of(late));
+        when(repository.deleteExpired(any(Long.class), any())).thenReturn(0);
+
+        ResponseEntity<?> response = idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, this::succeed);
+
+        assertEquals(409, response.getStatusCode().value());
+        assertEquals(0, executions.get());
+    }
+
+    @Test
+    void claimIsBoundToTheThreadWhileTheActionRuns() {
+        List<IdempotencyService.Claim> seen = new ArrayList<>();
+
+        idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, () -> {
+            seen.add(IdempotencyService.currentClaim());
+            return succeed();
+        });
+
+        assertEquals(1, seen.size());
+        assertEquals(1L, seen.get(0).recordId());
+        assertEquals(200, seen.get(0).appliedStatus());
+        assertTrue(seen.get(0).appliedBody().contains("Transfer successful"));
+        assertNull(IdempotencyService.currentClaim());
+    }
+
+    @Test
+    void markingAClaimStoresItsAppliedResponse() {
+        IdempotencyService.Claim claim = new IdempotencyService.Claim(5L, 200, "{\"message\":\"Transfer successful\"}");
+
+        idempotencyService.markApplied(claim);
+
+        verify(repository).complete(eq(5L), eq(200), eq("{\"message\":\"Transfer successful\"}"), any());
+    }
+
+    @Test
+    void markingAClaimThatWasTakenOverFails() {
+        when(repository.complete(any(), any(), any(), any())).thenReturn(0);
+
+        // rolls back the balance change it runs with: the retry that took the key over applies it instead
+        assertThrows(RetryableOperationException.class,
+                () -> idempotencyService.markApplied(new IdempotencyService.Claim(5L, 200, null)));
+    }
+
+    @Test
+    void releasesKeyOnTransientFailure() {
+        assertThrows(RetryableOperationException.class, () -> idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, () -> {
+            executions.incrementAndGet();
+            throw new RetryableOperationException("Account is busy, please retry the operation");
+        }));
+        verify(repository).release(1L);
+
+        ResponseEntity<?> retried = idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, this::succeed);
+
+        assertEquals(200, retried.getStatusCode().value());
+        assertNull(retried.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(2, executions.get());
+    }
+
+    @Test
+    void storesDeterministicClientErrorButNotServerError() {
+        ResponseEntity<?> unavailable = idempotencyService.execute("a", USER_ID, "transfer", Map.of("amount", 10), this::applied,
+                () -> ResponseEntity.status(503).body(Map.of("message", "down")));
+        assertEquals(503, unavailable.getStatusCode().value());
+        verify(repository, never()).complete(any(), any(), any(), any());
+
+        idempotencyService.execute("b", USER_ID, "transfer", Map.of("amount", 10), this::applied,
+                () -> ResponseEntity.badRequest().body(Map.of("message", "Insufficient funds")));
+        verify(repository, times(1)).complete(any(), any(), any(), any());
+    }
+
+    @Test
+    void classifiesFinalStatuses() {
+        assertTrue(IdempotencyService.isFinal(200));
+        assertTrue(IdempotencyService.isFinal(400));
+        assertTrue(IdempotencyService.isFinal(404));
+        assertFalse(IdempotencyService.isFinal(409));
+        assertFalse(IdempotencyService.isFinal(429));
+        assertFalse(IdempotencyService.isFinal(500));
+        assertFalse(IdempotencyService.isFinal(503));
+    }
+
+    @Test
+    void pendingOperationKeepsTheClaimAndStoresItsRealOutcome() {
+        CompletableFuture<Void> outcome = new CompletableFuture<>();
+        assertThrows(OperationPendingException.class, () -> idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, () -> {
+            throw new OperationPendingException("Transfer is still being processed", outcome).whenApplied(this::succeed);
+        }));
+
+        verify(repository, never()).release(any());
+        verify(repository).extendClaim(eq(1L), any());
+        assertEquals(List.of(), savedStates);
+
+        outcome.complete(null);
+
+        awaitSaved("COMPLETED 200 ");
+        ResponseEntity<?> replayed = idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, this::succeed);
+        assertEquals("true", replayed.getHeaders().getFirst(IdempotencyService.REPLAYED_HEADER));
+        assertEquals(1, executions.get());
+    }
+
+    @Test
+    void pendingOperationThatFailsStoresItsError() {
+        CompletableFuture<Void> outcome = new CompletableFuture<>();
+        assertThrows(OperationPendingException.class, () -> idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, () -> {
+            throw new OperationPendingException("Transfer is still being processed", outcome);
+        }));
+
+        outcome.completeExceptionally(new RuntimeException("Insufficient funds"));
+
+        String stored = awaitSaved("COMPLETED 400 ");
+        assertTrue(stored.contains("Insufficient funds"));
+    }
+
+    @Test
+    void pendingOperationThatWasNotAppliedReleasesTheKey() {
+        CompletableFuture<Void> outcome = new CompletableFuture<>();
+        assertThrows(OperationPendingException.class, () -> idempotencyService.execute("key", USER_ID, "transfer", Map.of("amount", 10), this::applied, () -> {
+            throw new OperationPendingException("Transfer is still being processed", outcome);
+        }));
+
+        outcome.completeExceptionally(new RetryableOperationException("Account is busy, please retry the operation"));
+
+        verify(repository, timeout(1000)).release(1L);
+    }
+
+    private String awaitSaved(String prefix) {
+        long deadline = System.currentTimeMillis() + 1000;
+        while (System.currentTimeMillis() < deadline) {
+            for (String state : savedStates) {
+                if (state.startsWith(prefix)) {
+                    return state;
+                }
+            }
+            Thread.onSpinWait();
+        }
+        throw new AssertionError("No record saved as " + prefix + "in " + savedStates);
+    }
+
+    private ResponseEntity<?> succeed() {
+        executions.incrementAndGet();
+        return ResponseEntity.ok(Map.of("message", "Transfer successful"));
+    }
+
+    private ResponseEntity<?> applied() {
+        return ResponseEntity.ok(Map.of("message", "Transfer successful"));
+    }
+
+    private IdempotencyRecord claim(OffsetDateTime expiresAt) {
+        IdempotencyRecord record = new IdempotencyRecord();
+        record.setId(ids.incrementAndGet() + 100);
+        record.setIdempotencyKey("key");
+        record.setUserId(USER_ID);
+        record.setScope("transfer");
+        record.setRequestHash("hash");
+        record.setStatus("IN_PROGRESS");
+        record.setCreatedAt(expiresAt.minusSeconds(30));
+        record.setExpiresAt(expiresAt);
+        return record;
+    }
+}
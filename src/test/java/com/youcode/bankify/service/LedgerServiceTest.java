@@ -0,0 +1,230 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.dto.TransferRequest;
+import com.youcode.bankify.entity.BalanceSnapshot;
+import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.entity.LedgerEntry;
+import com.youcode.bankify.entity.Role;
+import com.youcode.bankify.entity.ScheduledTransfer;
+import com.youcode.bankify.entity.User;
+import com.youcode.bankify.repository.jpa.AccountRepository;
+import com.youcode.bankify.repository.jpa.BalanceSnapshotRepository;
+import com.youcode.bankify.repository.jpa.LedgerEntryRepository;
+import com.youcode.bankify.repository.jpa.RoleRepository;
+import com.youcode.bankify.repository.jpa.UserRepository;
+import com.youcode.bankify.util.AccountLockManager;
+import com.youcode.bankify.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Runs the ledger against an in-memory database with real transactions, so the optimistic check
+ * on the account version takes part. Liquibase is off; the schema comes from the entities.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.url=jdbc:h2:mem:ledger;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "bankify.ledger.snapshot-threshold=1"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({LedgerService.class, UserService.class, TransferEngine.class, AccountLockManager.class})
+class LedgerServiceTest {
+
+    @MockBean private SearchOutboxService searchOutboxService;
+    @MockBean private DashboardSummaryService dashboardSummaryService;
+    @MockBean private DashboardExecutor dashboardExecutor;
+    @MockBean private IdempotencyService idempotencyService;
+    @MockBean private JwtUtil jwtUtil;
+
+    @Autowired private LedgerService ledgerService;
+    @Autowired private UserService userService;
+    @Autowired private TransferEngine transferEngine;
+    @Autowired private TransactionTemplate transactionTemplate;
+    @Autowired private AccountRepository accountRepository;
+    @Autowired private LedgerEntryRepository ledgerEntryRepository;
+    @Autowired private BalanceSnapshotRepository balanceSnapshotRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private RoleRepository roleRepository;
+
+    private BankAccount first;
+    private BankAccount second;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        roleRepository.save(role);
+        first = openAccount(user(role), "1000");
+        second = openAccount(user(role), "500");
+    }
+
+    @Test
+    void everyMovementKeepsTheLedgerBalancedAndEqualToTheStoredBalance() {
+        userService.depositMoney(first.getUser().getId(), first.getId(), new BigDecimal("250"));
+        assertLedgerMatchesBalances();
+
+        userService.withdrawMoney(second.getUser().getId(), second.getId(), new BigDecimal("120"));
+        assertLedgerMatchesBalances();
+
+        transfer(first, second, 300);
+        assertLedgerMatchesBalances();
+
+        Map<Long, String> failures = transactionTemplate.execute(status -> userService.applyScheduledTransfers(
+                List.of(scheduled(1L, first, second, "400"), scheduled(2L, second, first, "150")), true));
+        assertEquals(Map.of(), failures);
+        assertLedgerMatchesBalances();
+        assertTrue(ledgerEntryRepository.findAll().stream().anyMatch(entry -> "NET_TRANSFER".equals(entry.getEntryType())));
+
+        Map<String, BigDecimal> journals = ledgerEntryRepository.findAll().stream()
+                .collect(Collectors.groupingBy(LedgerEntry::getJournalId,
+                        Collectors.reducing(BigDecimal.ZERO, LedgerEntry::getAmount, BigDecimal::add)));
+        assertEquals(6, journals.size());
+        journals.forEach((journalId, total) -> assertEquals(0, total.signum(), "journal " + journalId + " sums to " + total));
+    }
+
+    @Test
+    void snapshotPlusLaterPostingsGivesTheBalance() {
+        userService.depositMoney(first.getUser().getId(), first.getId(), new BigDecimal("250"));
+        ledgerService.snapshotBalances();
+        BalanceSnapshot snapshot = balanceSnapshotRepository.findTopByAccountIdOrderByAccountVersionDesc(first.getId()).orElseThrow();
+        assertAmount("1250", snapshot.getBalance());
+
+        userService.depositMoney(first.getUser().getId(), first.getId(), new BigDecimal("40"));
+        transfer(first, second, 100);
+        assertLedgerMatchesBalances();
+
+        ledgerService.snapshotBalances();
+        userService.withdrawMoney(first.getUser().getId(), first.getId(), new BigDecimal("10"));
+        assertTrue(balanceSnapshotRepository.findTopByAccountIdOrderByAccountVersionDesc(first.getId()).orElseThrow()
+                .getAccountVersion() > snapshot.getAccountVersion());
+        assertLedgerMatchesBalances();
+    }
+
+    @Test
+    void writerHoldingThePreSnapshotVersionIsRejectedAndRetried() throws Exception {
+        // a second lock manager stands for another node: its stripes do not keep the snapshot out
+        TransferEngine otherNode = new TransferEngine(new AccountLockManager(16, 1000), transactionTemplate, idempotencyService);
+        ReflectionTestUtils.setField(otherNode, "maxAttempts", 3);
+        CountDownLatch versionRead = new CountDownLatch(1);
+        CountDownLatch snapshotTaken = new CountDownLatch(1);
+        AtomicInteger attempts = new AtomicInteger();
+        List<Long> postedVersions = new CopyOnWriteArrayList<>();
+
+        CompletableFuture<Void> deposit = CompletableFuture.runAsync(() -> otherNode.execute(List.of(first.getId()), () -> {
+            BankAccount account = accountRepository.findById(first.getId()).orElseThrow();
+            postedVersions.add(account.getVersion());
+            if (attempts.incrementAndGet() == 1) {
+                versionRead.countDown();
+                await(snapshotTaken);
+            }
+            account.setBalance(account.getBalance().add(new BigDecimal("75")));
+            accountRepository.save(account);
+            ledgerService.postDeposit(account, new BigDecimal("75"));
+        }));
+
+        assertTrue(versionRead.await(5, TimeUnit.SECONDS));
+        ledgerService.snapshotBalances();
+        snapshotTaken.countDown();
+        deposit.get(5, TimeUnit.SECONDS);
+
+        BalanceSnapshot snapshot = balanceSnapshotRepository.findTopByAccountIdOrderByAccountVersionDesc(first.getId()).orElseThrow();
+        assertEquals(2, attempts.get());
+        assertEquals(snapshot.getAccountVersion(), postedVersions.get(0));
+        assertTrue(postedVersions.get(1) > snapshot.getAccountVersion());
+        assertAmount("1000", snapshot.getBalance());
+        assertLedgerMatchesBalances();
+        assertAmount("1075", ledgerService.getBalance(first.getId()));
+    }
+
+    private void assertLedgerMatchesBalances() {
+        for (BankAccount account : List.of(first, second)) {
+            BigDecimal stored = accountRepository.findById(account.getId()).orElseThrow().getBalance();
+            assertAmount(stored.toPlainString(), ledgerService.getBalance(account.getId()));
+        }
+    }
+
+    private void transfer(BankAccount from, BankAccount to, double amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromAccount(from.getId());
+        request.setToAccountNumber(to.getAccountNumber());
+        request.setAmount(amount);
+        request.setTransactionType("CLASSIC");
+        transferEngine.execute(List.of(from.getId(), to.getId()),
+                () -> userService.applyTransfer(request, from.getUser().getId(), to.getId()));
+    }
+
+    private BankAccount openAccount(User user, String balance) {
+        BankAccount account = new BankAccount();
+        account.setAccountNumber(UUID.randomUUID().toString());
+        account.setBalance(new BigDecimal(balance));
+        account.setStatus("ACTIVE");
+        account.setUser(user);
+        BankAccount saved = accountRepository.save(account);
+        transactionTemplate.executeWithoutResult(status -> ledgerService.postOpeningBalance(saved, saved.getBalance()));
+        return saved;
+    }
+
+    private User user(Role role) {
+        String name = UUID.randomUUID().toString();
+        User user = new User();
+        user.setUsername(name);
+        user.setPassword("password");
+        user.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        user.setAge(30);
+        user.setIdentityNumber(name);
+        user.setRoles(Set.of(role));
+        return userRepository.save(user);
+    }
+
+    private ScheduledTransfer scheduled(Long id, BankAccount from, BankAccount to, String amount) {
+        ScheduledTransfer transfer = new ScheduledTransfer();
+        transfer.setId(id);
+        transfer.setFromAccountId(from.getId());
+        transfer.setToAccountId(to.getId());
+        transfer.setAmount(new BigDecimal(amount));
+        transfer.setFrequency("MONTHLY");
+        transfer.setNextExecutionDate(OffsetDateTime.now());
+        return transfer;
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
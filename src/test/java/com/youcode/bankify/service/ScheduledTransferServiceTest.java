@@ -0,0 +1,299 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.entity.ScheduledTransfer;
+import com.youcode.bankify.repository.jpa.AccountRepository;
+import com.youcode.bankify.repository.jpa.ScheduledTransferRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.mockito.ArgumentCaptor;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ScheduledTransferServiceTest {
+
+    private ScheduledTransferRepository repository;
+    private UserService userService;
+    private TransferEngine transferEngine;
+    private ScheduledTransferService service;
+    private final List<List<Long>> appliedBatches = new CopyOnWriteArrayList<>();
+    private final Map<Long, String> failures = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        repository = mock(ScheduledTransferRepository.class);
+        userService = mock(UserService.class);
+        transferEngine = mock(TransferEngine.class);
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        when(transactionTemplate.execute(any())).thenAnswer(invocation ->
+                ((TransactionCallback<?>) invocation.getArgument(0)).doInTransaction(mock(TransactionStatus.class)));
+        doAnswer(invocation -> {
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(mock(TransactionStatus.class));
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        when(repository.lockLeased(any(), any())).thenAnswer(invocation -> new ArrayList<>((Collection<Long>) invocation.getArgument(0)));
+        when(userService.applyScheduledTransfers(any(), anyBoolean())).thenAnswer(invocation -> {
+            List<ScheduledTransfer> transfers = invocation.getArgument(0);
+            appliedBatches.add(transfers.stream().map(ScheduledTransfer::getId).collect(Collectors.toList()));
+            return new HashMap<>(failures);
+        });
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(1)).run();
+            return null;
+        }).when(transferEngine).execute(any(), any());
+
+        service = new ScheduledTransferService(repository, mock(AccountRepository.class), userService, transferEngine, transactionTemplate);
+        ReflectionTestUtils.setField(service, "chunkSize", 500);
+        ReflectionTestUtils.setField(service, "commitSize", 50);
+        ReflectionTestUtils.setField(service, "workers", 4);
+        ReflectionTestUtils.setField(service, "leaseSeconds", 300L);
+        ReflectionTestUtils.setField(service, "maxAttempts", 5);
+        ReflectionTestUtils.setField(service, "retryBaseSeconds", 300L);
+        ReflectionTestUtils.setField(service, "retryMaxBackoffSeconds", 21600L);
+        ReflectionTestUtils.setField(service, "nodeId", "node-1");
+        ReflectionTestUtils.invokeMethod(service, "startWorkers");
+    }
+
+    @AfterEach
+    void tearDown() {
+        ReflectionTestUtils.invokeMethod(service, "stopWorkers");
+    }
+
+    @Test
+    void partitionsWithoutCommonAccountsRunConcurrently() {
+        CountDownLatch bothRunning = new CountDownLatch(2);
+        List<Boolean> overlapped = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            bothRunning.countDown();
+            overlapped.add(bothRunning.await(5, TimeUnit.SECONDS));
+            ((Runnable) invocation.getArgument(1)).run();
+            return null;
+        }).when(transferEngine).execute(any(), any());
+
+        int executed = executeDue(transfer(1, 1, 2), transfer(2, 3, 4));
+
+        assertEquals(2, executed);
+        assertEquals(List.of(true, true), overlapped);
+    }
+
+    @Test
+    void transfersSharingAnAccountStayInOnePartition() {
+        List<Set<Long>> lockedAccounts = new CopyOnWriteArrayList<>();
+        doAnswer(invocation -> {
+            lockedAccounts.add(new HashSet<>(invocation.<Collection<Long>>getArgument(0)));
+            ((Runnable) invocation.getArgument(1)).run();
+            return null;
+        }).when(transferEngine).execute(any(), any());
+
+        // 1 -> 2 and 3 -> 2 credit the same account, 4 -> 5 is unrelated
+        int executed = executeDue(transfer(1, 1, 2), transfer(2, 4, 5), transfer(3, 3, 2));
+
+        assertEquals(3, executed);
+        assertEquals(Set.of(Set.of(1L, 2L, 3L), Set.of(4L, 5L)), new HashSet<>(lockedAccounts));
+    }
+
+    @Test
+    void partitionCommitsInBatchesOfCommitSize() {
+        ReflectionTestUtils.setField(service, "commitSize", 2);
+
+        // a chain of transfers linking every account, so they all land in one partition
+        int executed = executeDue(transfer(1, 1, 2), transfer(2, 2, 3), transfer(3, 3, 4), transfer(4, 4, 5), transfer(5, 5, 6));
+
+        assertEquals(5, executed);
+        assertEquals(List.of(List.of(1L, 2L), List.of(3L, 4L), List.of(5L)), appliedBatches);
+    }
+
+    @Test
+    void nettingKeepsBothDirectionsOfAPairInOneBatch() {
+        ReflectionTestUtils.setField(service, "commitSize", 2);
+        ReflectionTestUtils.setField(service, "netting", true);
+
+        int executed = executeDue(transfer(1, 1, 2), transfer(2, 2, 3), transfer(3, 2, 1));
+
+        assertEquals(3, executed);
+        assertEquals(List.of(List.of(1L, 3L), List.of(2L)), appliedBatches);
+    }
+
+    @Test
+    void rolledBackBatchLeavesItsTransfersAsLoaded() {
+        ScheduledTransfer exhausted = transfer(1, 1, 2);
+        exhausted.setAttempts(4);
+        exhausted.setLastError("Insufficient funds");
+        OffsetDateTime due = exhausted.getNextExecutionDate();
+        ScheduledTransfer other = transfer(2, 2, 3);
+        OffsetDateTime otherDue = other.getNextExecutionDate();
+        AtomicInteger commits = new AtomicInteger();
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(1)).run();
+            if (commits.incrementAndGet() == 1) {
+                throw new RuntimeException("could not commit the batch");
+            }
+            return null;
+        }).when(transferEngine).execute(any(), any());
+        // both apply in the batch; retried alone, the exhausted one runs out of funds again
+        doAnswer(invocation -> {
+            List<ScheduledTransfer> transfers = invocation.getArgument(0);
+            return commits.get() > 0 && transfers.get(0).getId() == 1L ? Map.of(1L, "Insufficient funds") : Map.of();
+        }).when(userService).applyScheduledTransfers(any(), anyBoolean());
+
+        int executed = executeDue(exhausted, other);
+
+        assertEquals(1, executed);
+        assertEquals(4, exhausted.getAttempts());
+        assertEquals("Insufficient funds", exhausted.getLastError());
+        assertEquals(due, exhausted.getNextExecutionDate());
+        verify(repository).skipOccurrence(eq(1L), any(), eq(due.plusMonths(1)), eq(ScheduledTransfer.ACTIVE));
+        verify(repository, never()).recordRetry(any(), any(), any());
+        assertEquals(otherDue.plusMonths(1), other.getNextExecutionDate());
+    }
+
+    @ParameterizedTest
+    @CsvSource({"0, 300", "1, 600", "2, 1200", "6, 19200", "7, 21600", "40, 21600"})
+    void backoffDoublesPerFailureUpToItsCap(int failedAttempts, long expectedSeconds) {
+        assertEquals(expectedSeconds, ScheduledTransferService.backoffSeconds(failedAttempts, 300, 21600));
+    }
+
+    @Test
+    void failedOccurrenceIsRetriedAfterItsBackoff() {
+        ScheduledTransfer transfer = transfer(1, 1, 2);
+        transfer.setAttempts(1);
+        failures.put(1L, "Insufficient funds");
+        OffsetDateTime before = OffsetDateTime.now();
+
+        int executed = executeDue(transfer);
+
+        assertEquals(0, executed);
+        ArgumentCaptor<OffsetDateTime> retryAt = ArgumentCaptor.forClass(OffsetDateTime.class);
+        verify(repository).recordRetry(eq(1L), eq("Insufficient funds"), retryAt.capture());
+        assertFalse(retryAt.getValue().isBefore(before.plusSeconds(600)));
+        assertFalse(retryAt.getValue().isAfter(OffsetDateTime.now().plusSeconds(600)));
+        verify(repository, never()).skipOccurrence(any(), any(), any(), any());
+    }
+
+    @Test
+    void occurrenceOutOfAttemptsIsSkippedForTheNextOne() {
+        ScheduledTransfer transfer = transfer(1, 1, 2);
+        transfer.setAttempts(4);
+        OffsetDateTime due = transfer.getNextExecutionDate();
+        failures.put(1L, "Insufficient funds");
+
+        executeDue(transfer);
+
+        verify(repository).skipOccurrence(eq(1L), argThat(error -> error.startsWith("Occurrence of " + due + " skipped after 5 failed attempts")),
+                eq(due.plusMonths(1)), eq(ScheduledTransfer.ACTIVE));
+        verify(repository, never()).recordRetry(any(), any(), any());
+        verify(repository, never()).markFailed(any(), any());
+    }
+
+    @Test
+    void skippedOccurrencePastTheEndDateCompletesTheTransfer() {
+        ScheduledTransfer transfer = transfer(1, 1, 2);
+        transfer.setAttempts(4);
+        transfer.setEndDate(transfer.getNextExecutionDate().plusDays(10));
+        failures.put(1L, "Insufficient funds");
+
+        executeDue(transfer);
+
+        verify(repository).skipOccurrence(eq(1L), any(), any(), eq(ScheduledTransfer.COMPLETED));
+    }
+
+    @Test
+    void transferWithoutNextOccurrenceIsMarkedFailed() {
+        ScheduledTransfer transfer = transfer(1, 1, 2);
+        transfer.setAttempts(4);
+        transfer.setFrequency("HOURLY");
+
+        executeDue(transfer);
+
+        verify(repository).markFailed(eq(1L), argThat(error -> error.startsWith("Invalid frequency type")));
+        verify(repository, never()).skipOccurrence(any(), any(), any(), any());
+    }
+
+    @Test
+    void executedOccurrencePastTheEndDateCompletesTheTransfer() {
+        ScheduledTransfer transfer = transfer(1, 1, 2);
+        transfer.setAttempts(2);
+        transfer.setRetryAt(OffsetDateTime.now().minusMinutes(1));
+        OffsetDateTime due = transfer.getNextExecutionDate();
+        transfer.setEndDate(due.plusDays(10));
+
+        int executed = executeDue(transfer);
+
+        assertEquals(1, executed);
+        assertEquals(ScheduledTransfer.COMPLETED, transfer.getStatus());
+        assertEquals(due.plusMonths(1), transfer.getNextExecutionDate());
+        assertEquals(0, transfer.getAttempts());
+        assertNull(transfer.getRetryAt());
+    }
+
+    @Test
+    void nightlyRunRetiresTransfersPastTheirEndDate() {
+        when(repository.retireEnded()).thenReturn(3);
+        when(repository.findClaimable(any(), anyLong(), anyInt())).thenReturn(List.of());
+
+        service.executeScheduledTransfers();
+
+        assertEquals(3, service.getLastRun().getRetired());
+        assertEquals(0, service.getLastRun().getDueTransfers());
+    }
+
+    private int executeDue(ScheduledTransfer... transfers) {
+        List<Long> ids = new ArrayList<>();
+        for (ScheduledTransfer transfer : transfers) {
+            ids.add(transfer.getId());
+        }
+        when(repository.findClaimableIn(any(), any())).thenReturn(ids);
+        when(repository.findByIdInOrderByIdAsc(any())).thenReturn(List.of(transfers));
+        return service.executeDue(ids);
+    }
+
+    private ScheduledTransfer transfer(long id, long fromAccountId, long toAccountId) {
+        ScheduledTransfer transfer = new ScheduledTransfer();
+        transfer.setId(id);
+        transfer.setFromAccountId(fromAccountId);
+        transfer.setToAccountId(toAccountId);
+        transfer.setAmount(BigDecimal.TEN);
+        transfer.setFrequency("MONTHLY");
+        transfer.setNextExecutionDate(OffsetDateTime.now().minusMinutes(1));
+        return transfer;
+    }
+}
@@ -0,0 +1,78 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.dto.TransactionSearchRequest;
+import com.youcode.bankify.dto.TransactionSearchResponse;
+import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.repository.elasticsearch.TransactionSearchRepositoryCustom;
+import com.youcode.bankify.repository.jpa.AccountRepository;
+import com.youcode.bankify.repository.jpa.TransactionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransactionServiceTest {
+
+    private TransactionSearchRepositoryCustom searchRepository;
+    private AccountRepository accountRepository;
+    private TransactionService transactionService;
+
+    @BeforeEach
+    void setUp() {
+        searchRepository = mock(TransactionSearchRepositoryCustom.class);
+        accountRepository = mock(AccountRepository.class);
+        when(searchRepository.searchByCriteria(any(), any(), anyInt())).thenReturn(new TransactionSearchResponse());
+        transactionService = new TransactionService(searchRepository, mock(TransactionRepository.class), accountRepository);
+        ReflectionTestUtils.setField(transactionService, "defaultPageSize", 20);
+        ReflectionTestUtils.setField(transactionService, "maxPageSize", 500);
+    }
+
+    @Test
+    void customerSearchIsScopedToTheirAccounts() {
+        when(accountRepository.findByUserId(7L)).thenReturn(List.of(account("ACC1"), account("ACC2")));
+        TransactionSearchRequest request = new TransactionSearchRequest();
+
+        transactionService.searchTransactions(request, 7L);
+
+        verify(searchRepository).searchByCriteria(request, List.of("ACC1", "ACC2"), 20);
+    }
+
+    @Test
+    void staffSearchIsNotScoped() {
+        TransactionSearchRequest request = new TransactionSearchRequest();
+
+        transactionService.searchTransactions(request, null);
+
+        verify(searchRepository).searchByCriteria(eq(request), isNull(), eq(20));
+        verify(accountRepository, never()).findByUserId(any());
+    }
+
+    @Test
+    void customerWithoutAccountsGetsAnEmptyPage() {
+        when(accountRepository.findByUserId(7L)).thenReturn(List.of());
+
+        TransactionSearchResponse page = transactionService.searchTransactions(new TransactionSearchRequest(), 7L);
+
+        assertEquals(List.of(), page.getTransactions());
+        assertNull(page.getNextCursor());
+        verify(searchRepository, never()).searchByCriteria(any(), any(), anyInt());
+    }
+
+    private BankAccount account(String accountNumber) {
+        BankAccount account = new BankAccount();
+        account.setAccountNumber(accountNumber);
+        return account;
+    }
+}
@@ -0,0 +1,147 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.exception.RetryableOperationException;
+import com.youcode.bankify.util.AccountLockManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class TransferEngineTest {
+
+    private AccountLockManager accountLockManager;
+    private TransferEngine transferEngine;
+    private IdempotencyService idempotencyService;
+    private final List<String> events = new CopyOnWriteArrayList<>();
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        TransactionTemplate transactionTemplate = mock(TransactionTemplate.class);
+        doAnswer(invocation -> {
+            events.add("begin");
+            ((Consumer<TransactionStatus>) invocation.getArgument(0)).accept(mock(TransactionStatus.class));
+            events.add("commit");
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        accountLockManager = new AccountLockManager(16, 100);
+        idempotencyService = mock(IdempotencyService.class);
+        transferEngine = new TransferEngine(accountLockManager, transactionTemplate, idempotencyService);
+        ReflectionTestUtils.setField(transferEngine, "maxAttempts", 3);
+    }
+
+    @Test
+    void retriesOptimisticLockConflicts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        transferEngine.execute(List.of(1L, 2L), () -> {
+            if (attempts.incrementAndGet() < 3) {
+                throw new OptimisticLockingFailureException("stale balance");
+            }
+        });
+
+        assertEquals(3, attempts.get());
+    }
+
+    @Test
+    void givesUpAfterMaxAttempts() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        RuntimeException e = assertThrows(RuntimeException.class, () -> transferEngine.execute(List.of(1L), () -> {
+            attempts.incrementAndGet();
+            throw new OptimisticLockingFailureException("stale balance");
+        }));
+
+        assertEquals(3, attempts.get());
+        assertEquals("Transfer could not be completed due to concurrent updates, please retry", e.getMessage());
+    }
+
+    @Test
+    void otherFailuresAreNotRetried() {
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(IllegalStateException.class, () -> transferEngine.execute(List.of(1L), () -> {
+            attempts.incrementAndGet();
+            throw new IllegalStateException("insufficient funds");
+        }));
+
+        assertEquals(1, attempts.get());
+    }
+
+    @Test
+    void claimIsCompletedInTheTransactionOfTheBalanceChange() {
+        IdempotencyService.Claim claim = new IdempotencyService.Claim(1L, 200, null);
+        doAnswer(invocation -> events.add("mark")).when(idempotencyService).markApplied(claim);
+
+        transferEngine.execute(List.of(1L, 2L), claim, () -> events.add("work"));
+
+        assertEquals(List.of("begin", "work", "mark", "commit"), events);
+    }
+
+    @Test
+    void lostClaimFailsTheTransferWithoutRetrying() {
+        IdempotencyService.Claim claim = new IdempotencyService.Claim(1L, 200, null);
+        doThrow(new RetryableOperationException("Idempotency-Key was taken over by a retry, the operation was not applied"))
+                .when(idempotencyService).markApplied(claim);
+        AtomicInteger attempts = new AtomicInteger();
+
+        assertThrows(RetryableOperationException.class, () -> transferEngine.execute(List.of(1L), claim, attempts::incrementAndGet));
+
+        assertEquals(1, attempts.get());
+        verify(idempotencyService, times(1)).markApplied(claim);
+    }
+
+    @Test
+    void workWithoutAClaimMarksNothing() {
+        transferEngine.execute(List.of(1L), () -> events.add("work"));
+
+        verify(idempotencyService, never()).markApplied(any());
+    }
+
+    @Test
+    void failsWhenAccountStaysLockedPastTimeout() throws Exception {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread holder = new Thread(() -> accountLockManager.withLocks(List.of(7L), () -> {
+            held.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        }));
+        holder.start();
+        held.await();
+
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            RuntimeException e = assertThrows(RuntimeException.class,
+                    () -> transferEngine.execute(List.of(7L, 8L), attempts::incrementAndGet));
+            assertEquals("Account is busy, please retry the operation", e.getMessage());
+            assertEquals(0, attempts.get());
+        } finally {
+            release.countDown();
+            holder.join();
+        }
+    }
+}
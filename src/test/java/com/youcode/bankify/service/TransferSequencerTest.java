@@ -0,0 +1,244 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.dto.TransferRequest;
+import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.exception.RetryableOperationException;
+import com.youcode.bankify.repository.jpa.AccountRepository;
+import com.youcode.bankify.util.MpscRingBuffer;
+import com.youcode.bankify.util.QueryCounter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class TransferSequencerTest {
+
+    private UserService userService;
+    private TransferEngine transferEngine;
+    private IdempotencyService idempotencyService;
+    private AccountRepository accountRepository;
+    private TransferSequencer sequencer;
+    private final ExecutorService clients = Executors.newCachedThreadPool();
+
+    @BeforeEach
+    void setUp() {
+        userService = mock(UserService.class);
+        transferEngine = mock(TransferEngine.class);
+        idempotencyService = mock(IdempotencyService.class);
+        accountRepository = mock(AccountRepository.class);
+        when(accountRepository.findByIdInOrAccountNumberIn(any(), any()))
+                .thenReturn(List.of(account(10L, "A"), account(11L, "B"), account(12L, "C")));
+        doThrow(new RuntimeException("Insufficient funds"))
+                .when(userService).applyTransfer(argThat(request -> "B".equals(request.getToAccountNumber())), anyLong(), eq(11L));
+
+        sequencer = new TransferSequencer(userService, transferEngine, idempotencyService, accountRepository, 1, 16, 16, 5_000);
+    }
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        sequencer.stop();
+        clients.shutdownNow();
+    }
+
+    @Test
+    void failingCommandDoesNotFailTheRestOfItsGroup() throws Exception {
+        runWork();
+
+        Map<String, CompletableFuture<Void>> outcomes = submitGroup("A", "B", "C");
+
+        assertOutcomes(outcomes);
+        verify(transferEngine, times(1)).execute(any(), any());
+    }
+
+    @Test
+    void poisonedGroupTransactionFallsBackToOneTransactionPerCommand() throws Exception {
+        doThrow(new RuntimeException("could not commit the group")).when(transferEngine).execute(any(), any());
+        runWorkAlone();
+
+        Map<String, CompletableFuture<Void>> outcomes = submitGroup("A", "B", "C");
+
+        assertOutcomes(outcomes);
+        verify(transferEngine, times(1)).execute(any(), any());
+        verify(transferEngine, times(3)).execute(any(), any(), any());
+    }
+
+    @Test
+    void claimsOfAGroupAreCompletedInItsTransaction() throws Exception {
+        runWork();
+        Map<String, IdempotencyService.Claim> claims = claims("A", "B", "C");
+
+        Map<String, CompletableFuture<Void>> outcomes = submitGroup(claims, "A", "B", "C");
+
+        assertOutcomes(outcomes);
+        verify(idempotencyService).markApplied(claims.get("A"));
+        verify(idempotencyService).markApplied(claims.get("C"));
+        verify(idempotencyService, never()).markApplied(claims.get("B"));
+    }
+
+    @Test
+    void lostClaimRollsTheGroupBackAndFailsOnlyItsOwnTransfer() throws Exception {
+        runWork();
+        runWorkAlone();
+        Map<String, IdempotencyService.Claim> claims = claims("A", "C");
+        doThrow(new RetryableOperationException("Idempotency-Key was taken over by a retry, the operation was not applied"))
+                .when(idempotencyService).markApplied(claims.get("A"));
+
+        Map<String, CompletableFuture<Void>> outcomes = submitGroup(claims, "A", "C");
+
+        ExecutionException lost = assertThrows(ExecutionException.class, () -> outcomes.get("A").get(5, TimeUnit.SECONDS));
+        assertTrue(lost.getCause() instanceof RetryableOperationException);
+        assertNull(outcomes.get("C").get(5, TimeUnit.SECONDS));
+        // the group transaction is rolled back, then each transfer commits with its own claim
+        verify(transferEngine, times(1)).execute(any(), any());
+        verify(transferEngine).execute(any(), eq(claims.get("A")), any());
+        verify(transferEngine).execute(any(), eq(claims.get("C")), any());
+    }
+
+    @Test
+    void statementsOfAGroupCountAgainstTheRequestsInIt() throws Exception {
+        runWork();
+        QueryCounter inspector = new QueryCounter();
+        when(accountRepository.findByIdInOrAccountNumberIn(any(), any())).thenAnswer(invocation -> {
+            inspector.inspect("select account");
+            return List.of(account(10L, "A"), account(12L, "C"));
+        });
+        doAnswer(invocation -> inspector.inspect("update account"))
+                .when(userService).applyTransfer(any(), anyLong(), anyLong());
+
+        Map<String, CompletableFuture<Integer>> statements = new LinkedHashMap<>();
+        for (String toAccountNumber : List.of("A", "C")) {
+            statements.put(toAccountNumber, CompletableFuture.supplyAsync(() -> {
+                QueryCounter.start();
+                sequencer.submit(transfer(toAccountNumber), 7L);
+                return QueryCounter.stop();
+            }, clients));
+        }
+        awaitQueued(2);
+        sequencer.start();
+
+        // the shared account lookup counts for both, each update only for its own request
+        assertEquals(2, statements.get("A").get(5, TimeUnit.SECONDS));
+        assertEquals(2, statements.get("C").get(5, TimeUnit.SECONDS));
+    }
+
+    private void runWork() {
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(1)).run();
+            return null;
+        }).when(transferEngine).execute(any(), any());
+    }
+
+    /**
+     * Run single-command transactions the way the engine does, completing the claim after the work.
+     */
+    private void runWorkAlone() {
+        doAnswer(invocation -> {
+            ((Runnable) invocation.getArgument(2)).run();
+            IdempotencyService.Claim claim = invocation.getArgument(1);
+            if (claim != null) {
+                idempotencyService.markApplied(claim);
+            }
+            return null;
+        }).when(transferEngine).execute(any(), any(), any());
+    }
+
+    private Map<String, IdempotencyService.Claim> claims(String... toAccountNumbers) {
+        Map<String, IdempotencyService.Claim> claims = new LinkedHashMap<>();
+        long id = 1;
+        for (String toAccountNumber : toAccountNumbers) {
+            claims.put(toAccountNumber, new IdempotencyService.Claim(id++, 200, null));
+        }
+        return claims;
+    }
+
+    private Map<String, CompletableFuture<Void>> submitGroup(String... toAccountNumbers) throws InterruptedException {
+        return submitGroup(Map.of(), toAccountNumbers);
+    }
+
+    /**
+     * Queue every transfer before the writer starts, so they are committed as one group; a transfer
+     * with a claim is submitted the way an idempotent request would, with the claim bound to its thread.
+     */
+    @SuppressWarnings("unchecked")
+    private Map<String, CompletableFuture<Void>> submitGroup(Map<String, IdempotencyService.Claim> claims, String... toAccountNumbers)
+            throws InterruptedException {
+        ThreadLocal<IdempotencyService.Claim> current =
+                (ThreadLocal<IdempotencyService.Claim>) ReflectionTestUtils.getField(IdempotencyService.class, "CURRENT");
+        Map<String, CompletableFuture<Void>> outcomes = new LinkedHashMap<>();
+        for (String toAccountNumber : toAccountNumbers) {
+            TransferRequest request = transfer(toAccountNumber);
+            IdempotencyService.Claim claim = claims.get(toAccountNumber);
+            outcomes.put(toAccountNumber, CompletableFuture.runAsync(() -> {
+                current.set(claim);
+                try {
+                    sequencer.submit(request, 7L);
+                } finally {
+                    current.remove();
+                }
+            }, clients));
+        }
+        awaitQueued(toAccountNumbers.length);
+
+        sequencer.start();
+        return outcomes;
+    }
+
+    private void awaitQueued(int commands) throws InterruptedException {
+        Object partition = ((Object[]) ReflectionTestUtils.getField(sequencer, "partitions"))[0];
+        MpscRingBuffer<?> ring = (MpscRingBuffer<?>) ReflectionTestUtils.getField(partition, "ring");
+        long deadline = System.currentTimeMillis() + 5_000;
+        while (ring.size() < commands && System.currentTimeMillis() < deadline) {
+            Thread.sleep(5);
+        }
+        assertEquals(commands, ring.size());
+    }
+
+    private TransferRequest transfer(String toAccountNumber) {
+        TransferRequest request = new TransferRequest();
+        request.setFromAccount(1L);
+        request.setToAccountNumber(toAccountNumber);
+        request.setAmount(10);
+        return request;
+    }
+
+    private void assertOutcomes(Map<String, CompletableFuture<Void>> outcomes) throws Exception {
+        assertNull(outcomes.get("A").get(5, TimeUnit.SECONDS));
+        assertNull(outcomes.get("C").get(5, TimeUnit.SECONDS));
+        ExecutionException failure = assertThrows(ExecutionException.class, () -> outcomes.get("B").get(5, TimeUnit.SECONDS));
+        assertTrue(failure.getCause().getMessage().contains("Insufficient funds"));
+        verify(userService).applyTransfer(argThat(request -> "A".equals(request.getToAccountNumber())), eq(7L), eq(10L));
+        verify(userService).applyTransfer(argThat(request -> "C".equals(request.getToAccountNumber())), eq(7L), eq(12L));
+    }
+
+    private BankAccount account(Long id, String accountNumber) {
+        BankAccount account = new BankAccount();
+        account.setId(id);
+        account.setAccountNumber(accountNumber);
+        return account;
+    }
+}
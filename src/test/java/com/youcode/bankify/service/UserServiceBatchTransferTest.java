@@ -0,0 +1,224 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.dto.BatchTransferResponse;
+import com.youcode.bankify.dto.BatchTransferResult;
+import com.youcode.bankify.dto.TransferRequest;
+import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.entity.Role;
+import com.youcode.bankify.entity.User;
+import com.youcode.bankify.repository.jpa.AccountRepository;
+import com.youcode.bankify.repository.jpa.RoleRepository;
+import com.youcode.bankify.repository.jpa.TransactionRepository;
+import com.youcode.bankify.repository.jpa.UserRepository;
+import com.youcode.bankify.util.AccountLockManager;
+import com.youcode.bankify.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+/**
+ * Batch transfers against an in-memory database, so a failed chunk really rolls back.
+ * Liquibase is off; the schema comes from the entities.
+ */
+@DataJpaTest(properties = {
+        "spring.liquibase.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.datasource.url=jdbc:h2:mem:batch;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH",
+        "bankify.transfer.batch.chunk-size=2"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({UserService.class, TransferEngine.class, AccountLockManager.class})
+class UserServiceBatchTransferTest {
+
+    @MockBean private SearchOutboxService searchOutboxService;
+    @MockBean private LedgerService ledgerService;
+    @MockBean private DashboardSummaryService dashboardSummaryService;
+    @MockBean private DashboardExecutor dashboardExecutor;
+    @MockBean private IdempotencyService idempotencyService;
+    @MockBean private JwtUtil jwtUtil;
+
+    @SpyBean private AccountRepository accountRepository;
+
+    @Autowired private UserService userService;
+    @Autowired private TransactionRepository transactionRepository;
+    @Autowired private UserRepository userRepository;
+    @Autowired private RoleRepository roleRepository;
+
+    private User owner;
+    private BankAccount checking;
+    private BankAccount savings;
+    private BankAccount payee;
+
+    @BeforeEach
+    void setUp() {
+        Role role = new Role();
+        role.setName("ROLE_USER");
+        roleRepository.save(role);
+        owner = user(role);
+        checking = account(owner, "1000");
+        savings = account(owner, "0");
+        payee = account(user(role), "0");
+    }
+
+    @Test
+    void everyItemGetsItsOwnResult() {
+        BatchTransferResponse response = userService.transferFundsBatch(List.of(
+                transfer(checking, payee, 100),
+                transfer(checking, savings, 6000),
+                transfer(savings, payee, 0),
+                transfer(checking, savings, 50)), owner.getId());
+
+        assertResult(response.getResults().get(0), 0, "SUCCESS", "APPROVED");
+        assertResult(response.getResults().get(1), 1, "FAILED", "Insufficient funds, including transaction fee");
+        assertResult(response.getResults().get(2), 2, "FAILED", "Amount must be positive");
+        assertResult(response.getResults().get(3), 3, "SUCCESS", "APPROVED");
+        assertEquals(4, response.getTotal());
+        assertEquals(2, response.getSucceeded());
+        assertEquals(2, response.getFailed());
+
+        assertAmount("848.50", balance(checking));
+        assertAmount("50", balance(savings));
+        assertAmount("100", balance(payee));
+        assertEquals(4, recordedTransactions());
+    }
+
+    @Test
+    void insufficientFundsFailsOnlyThatItem() {
+        // the second item no longer fits once the first has been applied, the third still does
+        BatchTransferResponse response = userService.transferFundsBatch(List.of(
+                transfer(checking, payee, 600),
+                transfer(checking, payee, 600),
+                transfer(checking, savings, 300)), owner.getId());
+
+        assertEquals(List.of("SUCCESS", "FAILED", "SUCCESS"), statuses(response));
+        assertAmount("91", balance(checking));
+        assertAmount("600", balance(payee));
+        assertAmount("300", balance(savings));
+    }
+
+    @Test
+    void transferToTheSameAccountIsRejected() {
+        BatchTransferResponse response = userService.transferFundsBatch(List.of(
+                transfer(checking, checking, 100),
+                transfer(checking, payee, 100)), owner.getId());
+
+        assertResult(response.getResults().get(0), 0, "FAILED", "Cannot transfer to the same account");
+        assertResult(response.getResults().get(1), 1, "SUCCESS", "APPROVED");
+        assertAmount("899", balance(checking));
+        assertEquals(2, recordedTransactions());
+    }
+
+    @Test
+    void failedChunkRollsBackAndFailsEveryItemInIt() {
+        // chunks of two: the first commits, the write of the second fails
+        doNothing().doThrow(new RuntimeException("Dashboard update failed"))
+                .when(dashboardSummaryService).apply(any());
+
+        BatchTransferResponse response = userService.transferFundsBatch(List.of(
+                transfer(checking, payee, 100),
+                transfer(checking, savings, 100),
+                transfer(checking, payee, 200),
+                transfer(savings, payee, 50)), owner.getId());
+
+        assertEquals(List.of("SUCCESS", "SUCCESS", "FAILED", "FAILED"), statuses(response));
+        assertEquals("Dashboard update failed", response.getResults().get(2).getMessage());
+        assertEquals("Dashboard update failed", response.getResults().get(3).getMessage());
+        assertAmount("798", balance(checking));
+        assertAmount("100", balance(savings));
+        assertAmount("100", balance(payee));
+        assertEquals(4, recordedTransactions());
+    }
+
+    @Test
+    void accountsAreLoadedWithOneQueryPerChunk() {
+        userService.transferFundsBatch(List.of(
+                transfer(checking, payee, 10),
+                transfer(checking, savings, 10),
+                transfer(savings, payee, 5),
+                transfer(checking, payee, 10)), owner.getId());
+
+        verify(accountRepository, times(1)).findByIdInOrAccountNumberIn(any(), any());
+        verify(accountRepository, times(2)).findAllById(any());
+        verify(accountRepository, never()).findById(anyLong());
+        verify(accountRepository, never()).findByAccountNumber(any());
+    }
+
+    private TransferRequest transfer(BankAccount from, BankAccount to, double amount) {
+        TransferRequest request = new TransferRequest();
+        request.setFromAccount(from.getId());
+        request.setToAccountNumber(to.getAccountNumber());
+        request.setAmount(amount);
+        request.setTransactionType("CLASSIC");
+        return request;
+    }
+
+    private List<String> statuses(BatchTransferResponse response) {
+        return response.getResults().stream().map(BatchTransferResult::getStatus).toList();
+    }
+
+    private long recordedTransactions() {
+        Set<Long> accountIds = Set.of(checking.getId(), savings.getId(), payee.getId());
+        return transactionRepository.findAll().stream()
+                .filter(transaction -> accountIds.contains(transaction.getBankAccount().getId()))
+                .count();
+    }
+
+    private BigDecimal balance(BankAccount account) {
+        return accountRepository.findById(account.getId()).orElseThrow().getBalance();
+    }
+
+    private BankAccount account(User user, String balance) {
+        BankAccount account = new BankAccount();
+        account.setAccountNumber(UUID.randomUUID().toString());
+        account.setBalance(new BigDecimal(balance));
+        account.setStatus("ACTIVE");
+        account.setUser(user);
+        return accountRepository.save(account);
+    }
+
+    private User user(Role role) {
+        String name = UUID.randomUUID().toString();
+        User user = new User();
+        user.setUsername(name);
+        user.setPassword("password");
+        user.setDateOfBirth(LocalDate.of(1990, 1, 1));
+        user.setAge(30);
+        user.setIdentityNumber(name);
+        user.setRoles(Set.of(role));
+        return userRepository.save(user);
+    }
+
+    private static void assertResult(BatchTransferResult result, int index, String status, String message) {
+        assertEquals(index, result.getIndex());
+        assertEquals(status, result.getStatus());
+        assertEquals(message, result.getMessage());
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+}
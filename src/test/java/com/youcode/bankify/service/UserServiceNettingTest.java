@@ -0,0 +1,155 @@
+package com.youcode.bankify.service;
+
+import com.youcode.bankify.entity.BankAccount;
+import com.youcode.bankify.entity.ScheduledTransfer;
+import com.youcode.bankify.entity.Transaction;
+import com.youcode.bankify.entity.User;
+import com.youcode.bankify.repository.jpa.AccountRepository;
+import com.youcode.bankify.repository.jpa.ScheduledTransferRepository;
+import com.youcode.bankify.repository.jpa.TransactionRepository;
+import com.youcode.bankify.repository.jpa.UserRepository;
+import com.youcode.bankify.util.JwtUtil;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.math.BigDecimal;
+import java.time.OffsetDateTime;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.ArgumentMatchers.same;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserServiceNettingTest {
+
+    private AccountRepository accountRepository;
+    private TransactionRepository transactionRepository;
+    private LedgerService ledgerService;
+    private UserService userService;
+    private BankAccount first;
+    private BankAccount second;
+
+    @BeforeEach
+    @SuppressWarnings("unchecked")
+    void setUp() {
+        accountRepository = mock(AccountRepository.class);
+        transactionRepository = mock(TransactionRepository.class);
+        ledgerService = mock(LedgerService.class);
+        userService = new UserService(accountRepository, transactionRepository, mock(UserRepository.class),
+                mock(ScheduledTransferRepository.class), mock(SearchOutboxService.class), mock(TransferEngine.class),
+                ledgerService, mock(DashboardSummaryService.class), mock(DashboardExecutor.class),
+                mock(ApplicationEventPublisher.class), mock(ObjectProvider.class), mock(JwtUtil.class));
+
+        first = account(1L, 100L);
+        second = account(2L, 200L);
+        when(accountRepository.findAllById(any())).thenReturn(List.of(first, second));
+    }
+
+    @Test
+    void oppositeTransfersOfAPairAreSettledOnTheirNet() {
+        // 80 + 0.80 fee out and 30 in: the first account only has to cover 50.80
+        first.setBalance(new BigDecimal("60"));
+        second.setBalance(new BigDecimal("50"));
+
+        Map<Long, String> failures = userService.applyScheduledTransfers(
+                List.of(transfer(1L, first, second, "80"), transfer(2L, second, first, "30")), true);
+
+        assertEquals(Map.of(), failures);
+        assertAmount("9.20", first.getBalance());
+        assertAmount("99.70", second.getBalance());
+        verify(ledgerService, times(1)).postNetTransfer(same(first), argThat(amount -> amount.compareTo(new BigDecimal("-50.80")) == 0),
+                same(second), argThat(amount -> amount.compareTo(new BigDecimal("49.70")) == 0),
+                argThat(fees -> fees.compareTo(new BigDecimal("1.10")) == 0));
+        verify(ledgerService, never()).postTransfer(any(), any(), any(), any());
+        assertEquals(4, savedTransactions().size());
+    }
+
+    @Test
+    void pairThatCannotCoverItsNetIsAppliedTransferByTransfer() {
+        // a net debit of 50.80 is more than the first account holds, so each transfer stands alone
+        first.setBalance(new BigDecimal("10"));
+        second.setBalance(new BigDecimal("50"));
+
+        Map<Long, String> failures = userService.applyScheduledTransfers(
+                List.of(transfer(1L, first, second, "80"), transfer(2L, second, first, "30")), true);
+
+        assertEquals(Map.of(1L, "Insufficient funds for scheduled transfer"), failures);
+        assertAmount("40", first.getBalance());
+        assertAmount("19.70", second.getBalance());
+        verify(ledgerService, never()).postNetTransfer(any(), any(), any(), any(), any());
+        verify(ledgerService, times(1)).postTransfer(same(second), same(first),
+                argThat(amount -> amount.compareTo(new BigDecimal("30")) == 0), any());
+        assertEquals(2, savedTransactions().size());
+    }
+
+    @Test
+    void withoutNettingThePairIsAppliedInOrder() {
+        first.setBalance(new BigDecimal("60"));
+        second.setBalance(new BigDecimal("50"));
+
+        Map<Long, String> failures = userService.applyScheduledTransfers(
+                List.of(transfer(1L, first, second, "80"), transfer(2L, second, first, "30")), false);
+
+        assertEquals(Map.of(1L, "Insufficient funds for scheduled transfer"), failures);
+        assertAmount("90", first.getBalance());
+        assertAmount("19.70", second.getBalance());
+        verify(ledgerService, never()).postNetTransfer(any(), any(), any(), any(), any());
+    }
+
+    @Test
+    void singleTransferOfAPairIsNotNetted() {
+        first.setBalance(new BigDecimal("100"));
+        second.setBalance(new BigDecimal("0"));
+
+        Map<Long, String> failures = userService.applyScheduledTransfers(List.of(transfer(1L, first, second, "50")), true);
+
+        assertEquals(Map.of(), failures);
+        assertAmount("49.50", first.getBalance());
+        assertAmount("50", second.getBalance());
+        verify(ledgerService, never()).postNetTransfer(any(), any(), any(), any(), any());
+        verify(ledgerService).postTransfer(same(first), same(second), any(), argThat(fee -> fee.compareTo(new BigDecimal("0.50")) == 0));
+    }
+
+    @SuppressWarnings("unchecked")
+    private List<Transaction> savedTransactions() {
+        ArgumentCaptor<List<Transaction>> saved = ArgumentCaptor.forClass(List.class);
+        verify(transactionRepository).saveAll(saved.capture());
+        return saved.getValue();
+    }
+
+    private static void assertAmount(String expected, BigDecimal actual) {
+        assertEquals(0, new BigDecimal(expected).compareTo(actual), "expected " + expected + " but was " + actual);
+    }
+
+    private static ScheduledTransfer transfer(Long id, BankAccount from, BankAccount to, String amount) {
+        ScheduledTransfer transfer = new ScheduledTransfer();
+        transfer.setId(id);
+        transfer.setFromAccountId(from.getId());
+        transfer.setToAccountId(to.getId());
+        transfer.setAmount(new BigDecimal(amount));
+        transfer.setFrequency("MONTHLY");
+        transfer.setNextExecutionDate(OffsetDateTime.now());
+        return transfer;
+    }
+
+    private static BankAccount account(Long id, Long userId) {
+        User user = new User();
+        user.setId(userId);
+        BankAccount account = new BankAccount();
+        account.setId(id);
+        account.setAccountNumber("ACC" + id);
+        account.setStatus("ACTIVE");
+        account.setUser(user);
+        return account;
+    }
+}
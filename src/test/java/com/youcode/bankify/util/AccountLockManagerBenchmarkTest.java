@@ -0,0 +1,113 @@
+package com.youcode.bankify.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput comparison between a single global lock (what the transfer path needs without
+ * per-account locking to avoid lost updates) and the striped {@link AccountLockManager}.
+ * Each transfer parks briefly inside the critical section to stand in for the database round-trip.
+ */
+class AccountLockManagerBenchmarkTest {
+
+    private static final int ACCOUNTS = 1_000;
+    private static final int THREADS = 8;
+    private static final int TRANSFERS_PER_THREAD = 1_000;
+    private static final long SIMULATED_IO_NANOS = 20_000;
+    private static final long INITIAL_BALANCE = 1_000_000;
+
+    @Test
+    void neitherStrategyLosesAnUpdate() throws Exception {
+        long[] globalBalances = newBalances();
+        run(globalBalances, globalLock());
+        long[] stripedBalances = newBalances();
+        run(stripedBalances, stripedLocks());
+
+        assertEquals(ACCOUNTS * INITIAL_BALANCE, Arrays.stream(globalBalances).sum());
+        assertEquals(ACCOUNTS * INITIAL_BALANCE, Arrays.stream(stripedBalances).sum());
+    }
+
+    /**
+     * Wall-clock numbers depend on the machine, so they are only reported, and only when asked for
+     * with {@code -Dbankify.benchmark=true}.
+     */
+    @Test
+    @EnabledIfSystemProperty(named = "bankify.benchmark", matches = "true")
+    void compareThroughput() throws Exception {
+        double globalOps = run(newBalances(), globalLock());
+        double stripedOps = run(newBalances(), stripedLocks());
+        System.out.printf("global lock: %.0f transfers/s, striped locks: %.0f transfers/s (%.1fx)%n",
+                globalOps, stripedOps, stripedOps / globalOps);
+    }
+
+    private LockStrategy globalLock() {
+        ReentrantLock globalLock = new ReentrantLock();
+        return (from, to, transfer) -> {
+            globalLock.lock();
+            try {
+                transfer.run();
+            } finally {
+                globalLock.unlock();
+            }
+        };
+    }
+
+    private LockStrategy stripedLocks() {
+        AccountLockManager lockManager = new AccountLockManager(256, 5_000);
+        return (from, to, transfer) -> lockManager.withLocks(List.of(from, to), () -> {
+            transfer.run();
+            return null;
+        });
+    }
+
+    private long[] newBalances() {
+        long[] balances = new long[ACCOUNTS];
+        Arrays.fill(balances, INITIAL_BALANCE);
+        return balances;
+    }
+
+    private double run(long[] balances, LockStrategy strategy) throws InterruptedException {
+        ExecutorService pool = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch done = new CountDownLatch(THREADS);
+        long start = System.nanoTime();
+        for (int t = 0; t < THREADS; t++) {
+            pool.execute(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                for (int i = 0; i < TRANSFERS_PER_THREAD; i++) {
+                    int from = random.nextInt(ACCOUNTS);
+                    int to = random.nextInt(ACCOUNTS);
+                    strategy.transfer((long) from, (long) to, () -> {
+                        long fromBalance = balances[from];
+                        long toBalance = balances[to];
+                        LockSupport.parkNanos(SIMULATED_IO_NANOS);
+                        balances[from] = fromBalance - 1;
+                        balances[to] = (from == to ? balances[to] : toBalance) + 1;
+                    });
+                }
+                done.countDown();
+            });
+        }
+        done.await();
+        long elapsed = System.nanoTime() - start;
+        pool.shutdown();
+        pool.awaitTermination(10, TimeUnit.SECONDS);
+        return THREADS * TRANSFERS_PER_THREAD / (elapsed / 1_000_000_000.0);
+    }
+
+    @FunctionalInterface
+    private interface LockStrategy {
+        void transfer(Long from, Long to, Runnable transfer);
+    }
+}
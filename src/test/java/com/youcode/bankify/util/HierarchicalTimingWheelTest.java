@@ -0,0 +1,121 @@
+package com.youcode.bankify.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class HierarchicalTimingWheelTest {
+
+    private static final long TICK_MS = 1000;
+    // the geometry of StandingOrderScheduler: 64 slots, 3 levels, so 64^3 ticks before the overflow list
+    private static final int WHEEL_SIZE = 64;
+    private static final int LEVELS = 3;
+
+    @ParameterizedTest
+    @CsvSource({
+            "0, 1", "0, 63", "0, 64", "0, 65", "0, 4095", "0, 4096", "0, 4097",
+            "0, 262143", "0, 262144", "0, 262145", "0, 600000",
+            "1, 63", "1, 64", "63, 1", "63, 4096", "4000, 96", "4000, 4095", "4000, 4096", "262100, 100"
+    })
+    void entryExpiresOnItsTickAndNotBefore(long startTick, long ticksAhead) {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, LEVELS, startTick * TICK_MS);
+        long deadlineMs = (startTick + ticksAhead) * TICK_MS;
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("transfer", deadlineMs);
+
+        wheel.advance(deadlineMs - TICK_MS, expired::add);
+        assertEquals(List.of(), expired);
+        assertEquals(1, wheel.size());
+
+        wheel.advance(deadlineMs, expired::add);
+        assertEquals(List.of("transfer"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void pastDeadlineExpiresOnTheNextAdvance() {
+        long nowMs = 5_000 * TICK_MS;
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, LEVELS, nowMs);
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("overdue", nowMs - 3_600_000);
+        wheel.schedule("now", nowMs);
+
+        wheel.advance(nowMs, expired::add);
+
+        assertEquals(List.of("overdue", "now"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void deadlineBetweenTicksIsRoundedUp() {
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, LEVELS, 0);
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("transfer", 1_500);
+
+        wheel.advance(1_999, expired::add);
+        assertEquals(List.of(), expired);
+
+        wheel.advance(2_000, expired::add);
+        assertEquals(List.of("transfer"), expired);
+    }
+
+    @Test
+    void overflowEntriesArePlacedBackWhenTheTopLevelWraps() {
+        long topLevelTicks = 262_144;
+        HierarchicalTimingWheel<String> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, LEVELS, 0);
+        List<String> expired = new ArrayList<>();
+        wheel.schedule("first wrap", (topLevelTicks + 10) * TICK_MS);
+        wheel.schedule("second wrap", (2 * topLevelTicks + 5) * TICK_MS);
+
+        wheel.advance((topLevelTicks + 9) * TICK_MS, expired::add);
+        assertEquals(List.of(), expired);
+        wheel.advance((topLevelTicks + 10) * TICK_MS, expired::add);
+        assertEquals(List.of("first wrap"), expired);
+
+        wheel.advance((2 * topLevelTicks + 4) * TICK_MS, expired::add);
+        assertEquals(List.of("first wrap"), expired);
+        wheel.advance((2 * topLevelTicks + 5) * TICK_MS, expired::add);
+        assertEquals(List.of("first wrap", "second wrap"), expired);
+        assertEquals(0, wheel.size());
+    }
+
+    @Test
+    void randomDeadlinesExpireInTheRightAdvance() {
+        Random random = new Random(42);
+        long startMs = 123 * TICK_MS;
+        HierarchicalTimingWheel<Integer> wheel = new HierarchicalTimingWheel<>(TICK_MS, WHEEL_SIZE, LEVELS, startMs);
+        Map<Integer, Long> deadlines = new TreeMap<>();
+        for (int item = 0; item < 2_000; item++) {
+            long deadlineMs = startMs + 1 + random.nextInt(400_000) * TICK_MS + random.nextInt((int) TICK_MS);
+            deadlines.put(item, deadlineMs);
+            wheel.schedule(item, deadlineMs);
+        }
+
+        long previousMs = startMs;
+        long nowMs = startMs;
+        while (wheel.size() > 0) {
+            nowMs += random.nextInt(5_000) * TICK_MS;
+            long fromMs = previousMs;
+            long toMs = nowMs;
+            List<Integer> expired = new ArrayList<>();
+            wheel.advance(nowMs, expired::add);
+            for (Integer item : expired) {
+                long dueTickMs = Math.floorDiv(deadlines.get(item) + TICK_MS - 1, TICK_MS) * TICK_MS;
+                assertTrue(dueTickMs > fromMs && dueTickMs <= toMs,
+                        "item due at " + dueTickMs + " expired in (" + fromMs + ", " + toMs + "]");
+                deadlines.remove(item);
+            }
+            previousMs = nowMs;
+        }
+        assertEquals(Map.of(), deadlines);
+    }
+}
@@ -0,0 +1,59 @@
+package com.youcode.bankify.util;
+
+import com.youcode.bankify.entity.Transaction;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.nio.charset.StandardCharsets;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class HistoryCursorTest {
+
+    private static final OffsetDateTime DATE = OffsetDateTime.of(2024, 3, 1, 12, 30, 15, 123_000_000, ZoneOffset.ofHours(2));
+
+    @Test
+    void roundTripsDateWithOffsetAndId() {
+        HistoryCursor cursor = new HistoryCursor(DATE, 987L);
+
+        assertEquals(cursor, HistoryCursor.decode(cursor.encode()));
+    }
+
+    @Test
+    void pointsAfterTheLastRowOfAFullPage() {
+        List<Transaction> page = List.of(transaction(DATE.plusMinutes(1), 2L), transaction(DATE, 1L));
+
+        assertEquals(new HistoryCursor(DATE, 1L), HistoryCursor.decode(HistoryCursor.nextCursor(page, 2)));
+        assertNull(HistoryCursor.nextCursor(page, 3));
+        assertNull(HistoryCursor.nextCursor(List.of(), 2));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "not base64!", "bm8tc2VwYXJhdG9y"})
+    void rejectsMalformedTokens(String token) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode(token));
+        assertEquals("Invalid history cursor", e.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"yesterday|5", "2024-03-01T12:30:15+02:00|five", "2024-03-01T12:30:15+02:00|"})
+    void rejectsTamperedContent(String raw) {
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> HistoryCursor.decode(token));
+    }
+
+    private Transaction transaction(OffsetDateTime date, Long id) {
+        Transaction transaction = new Transaction();
+        transaction.setDate(date);
+        transaction.setId(id);
+        return transaction;
+    }
+}
@@ -0,0 +1,120 @@
+package com.youcode.bankify.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MpscRingBufferTest {
+
+    @Test
+    void rejectsCapacityThatIsNotAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new MpscRingBuffer<>(12, Slot::new));
+    }
+
+    @Test
+    void drainsInPublishOrderAcrossTheWrapBoundary() {
+        MpscRingBuffer<Slot> ring = new MpscRingBuffer<>(8, Slot::new);
+        List<Long> drained = new ArrayList<>();
+
+        for (long value = 0; value < 100; value += 5) {
+            for (long i = value; i < value + 5; i++) {
+                long next = i;
+                ring.publish(slot -> slot.value = next);
+            }
+            assertEquals(5, ring.size());
+            assertEquals(3, ring.drain(slot -> drained.add(slot.value), 3));
+            assertEquals(2, ring.drain(slot -> drained.add(slot.value), 8));
+            assertEquals(0, ring.size());
+        }
+
+        for (int i = 0; i < 100; i++) {
+            assertEquals(i, drained.get(i));
+        }
+    }
+
+    @Test
+    void keepsEveryProducersOrderUnderConcurrentPublishing() throws Exception {
+        int producers = 4;
+        int perProducer = 20_000;
+        MpscRingBuffer<Slot> ring = new MpscRingBuffer<>(64, Slot::new);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int producer = p;
+            Thread thread = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+                for (int i = 0; i < perProducer; i++) {
+                    long value = (long) producer << 32 | i;
+                    ring.publish(slot -> slot.value = value);
+                }
+            });
+            thread.start();
+            threads.add(thread);
+        }
+
+        long[] lastSeen = new long[producers];
+        Arrays.fill(lastSeen, -1);
+        int[] total = new int[1];
+        start.countDown();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        while (total[0] < producers * perProducer && System.nanoTime() < deadline) {
+            ring.drain(slot -> {
+                int producer = (int) (slot.value >>> 32);
+                long sequence = slot.value & 0xFFFFFFFFL;
+                assertEquals(lastSeen[producer] + 1, sequence, "producer " + producer + " out of order");
+                lastSeen[producer] = sequence;
+                total[0]++;
+            }, 32);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertEquals(producers * perProducer, total[0]);
+        assertEquals(0, ring.size());
+    }
+
+    @Test
+    void blocksProducersWhileTheRingIsFull() throws Exception {
+        MpscRingBuffer<Slot> ring = new MpscRingBuffer<>(4, Slot::new);
+        for (long i = 0; i < 4; i++) {
+            long value = i;
+            ring.publish(slot -> slot.value = value);
+        }
+
+        CountDownLatch published = new CountDownLatch(1);
+        Thread producer = new Thread(() -> {
+            ring.publish(slot -> slot.value = 4);
+            published.countDown();
+        });
+        producer.start();
+
+        assertFalse(published.await(100, TimeUnit.MILLISECONDS), "publish must wait for a free slot");
+
+        List<Long> drained = new ArrayList<>();
+        ring.drain(slot -> drained.add(slot.value), 1);
+        assertTrue(published.await(5, TimeUnit.SECONDS));
+        producer.join();
+
+        ring.drain(slot -> drained.add(slot.value), 8);
+        assertEquals(List.of(0L, 1L, 2L, 3L, 4L), drained);
+    }
+
+    private static final class Slot {
+        private long value;
+    }
+}
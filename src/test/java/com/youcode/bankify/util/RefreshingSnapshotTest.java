@@ -0,0 +1,59 @@
+package com.youcode.bankify.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RefreshingSnapshotTest {
+
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void servesTheSnapshotWhileItIsYoung() {
+        RefreshingSnapshot<Integer> snapshot = new RefreshingSnapshot<>(loads::incrementAndGet, 60_000);
+
+        assertEquals(1, snapshot.get());
+        assertEquals(1, snapshot.get());
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void reloadsOnceTheSnapshotIsStale() throws InterruptedException {
+        RefreshingSnapshot<Integer> snapshot = new RefreshingSnapshot<>(loads::incrementAndGet, 20);
+
+        assertEquals(1, snapshot.get());
+        Thread.sleep(40);
+        assertEquals(2, snapshot.get());
+        assertEquals(2, snapshot.get());
+    }
+
+    @Test
+    void refreshReplacesTheSnapshotForReaders() {
+        RefreshingSnapshot<Integer> snapshot = new RefreshingSnapshot<>(loads::incrementAndGet, 60_000);
+
+        snapshot.get();
+        assertEquals(2, snapshot.refresh());
+        assertEquals(2, snapshot.get());
+    }
+
+    @Test
+    void failedLoadKeepsServingTheLastSnapshotOnTheNextRead() {
+        AtomicInteger calls = new AtomicInteger();
+        RefreshingSnapshot<Integer> snapshot = new RefreshingSnapshot<>(() -> {
+            if (calls.incrementAndGet() == 2) {
+                throw new IllegalStateException("database down");
+            }
+            return calls.get();
+        }, 60_000);
+
+        assertEquals(1, snapshot.get());
+        try {
+            snapshot.refresh();
+        } catch (IllegalStateException expected) {
+            // a failed background refresh leaves the previous value in place
+        }
+        assertEquals(1, snapshot.get());
+    }
+}
@@ -0,0 +1,95 @@
+package com.youcode.bankify.util;
+
+import com.youcode.bankify.dto.TransactionSearchRequest;
+import com.youcode.bankify.repository.elasticsearch.TransactionFilter;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class SearchCursorTest {
+
+    @Test
+    void roundTripsPointInTimeContainingSeparators() {
+        SearchCursor cursor = new SearchCursor("0123456789abcdef", "pit|with|bars==", 1_700_000_000_000L, 42L);
+
+        assertEquals(cursor, SearchCursor.decode(cursor.encode()));
+        assertEquals(cursor, SearchCursor.decode(cursor.encode(), "0123456789abcdef"));
+    }
+
+    @Test
+    void rejectsCursorIssuedForAnotherFilter() {
+        String issuedFor = filter("TRANSFER", null).fingerprint();
+        String token = new SearchCursor(issuedFor, "pit", 1L, 2L).encode();
+
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class,
+                () -> SearchCursor.decode(token, filter("DEPOSIT", null).fingerprint()));
+        assertEquals("Search cursor was issued for a different filter, start the search again", e.getMessage());
+    }
+
+    @Test
+    void equivalentFiltersShareAFingerprint() {
+        TransactionSearchRequest single = new TransactionSearchRequest();
+        single.setType("TRANSFER");
+        single.setAmount(new BigDecimal("10"));
+        TransactionSearchRequest multi = new TransactionSearchRequest();
+        multi.setTypes(List.of("TRANSFER"));
+        multi.setAmount(new BigDecimal("10.00"));
+
+        assertEquals(TransactionFilter.from(single).fingerprint(), TransactionFilter.from(multi).fingerprint());
+        assertNotEquals(filter("TRANSFER", null).fingerprint(), filter("TRANSFER", "PENDING").fingerprint());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "not base64!", "b25seS1vbmUtcGFydA"})
+    void rejectsMalformedTokens(String token) {
+        IllegalArgumentException e = assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(token));
+        assertEquals("Invalid search cursor", e.getMessage());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"|pit|1|2", "hash|pit|one|2", "hash|pit|1|", "hash|1|2"})
+    void rejectsTamperedContent(String raw) {
+        String token = Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(token));
+    }
+
+    @Test
+    void rejectsCursorWhoseFingerprintWasEdited() {
+        String fingerprint = filter("TRANSFER", null).fingerprint();
+        String raw = new String(Base64.getUrlDecoder().decode(new SearchCursor(fingerprint, "pit", 1L, 2L).encode()), StandardCharsets.UTF_8);
+        String edited = Base64.getUrlEncoder().withoutPadding()
+                .encodeToString(("0000000000000000" + raw.substring(fingerprint.length())).getBytes(StandardCharsets.UTF_8));
+
+        assertThrows(IllegalArgumentException.class, () -> SearchCursor.decode(edited, fingerprint));
+    }
+
+    @Test
+    void cursorOfOneCustomerIsRejectedForAnother() {
+        TransactionSearchRequest request = new TransactionSearchRequest();
+        String mine = TransactionFilter.from(request, List.of("ACC2", "ACC1")).fingerprint();
+        String cursor = new SearchCursor(mine, "pit", 1L, 2L).encode();
+
+        assertEquals(mine, TransactionFilter.from(request, List.of("ACC1", "ACC2")).fingerprint());
+        assertThrows(IllegalArgumentException.class,
+                () -> SearchCursor.decode(cursor, TransactionFilter.from(request, List.of("ACC3")).fingerprint()));
+        assertThrows(IllegalArgumentException.class,
+                () -> SearchCursor.decode(cursor, TransactionFilter.from(request).fingerprint()));
+    }
+
+    private TransactionFilter filter(String type, String status) {
+        TransactionSearchRequest request = new TransactionSearchRequest();
+        request.setType(type);
+        request.setStatus(status);
+        return TransactionFilter.from(request);
+    }
+}
@@ -0,0 +1,103 @@
+package com.youcode.bankify.util;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SingleFlightTest {
+
+    private static final int CALLERS = 8;
+
+    private final ExecutorService callers = Executors.newFixedThreadPool(CALLERS);
+
+    @AfterEach
+    void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    void concurrentCallersShareOneComputation() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Integer> leader = callers.submit(() -> flight.execute("dashboard", () -> {
+            started.countDown();
+            await(release);
+            return loads.incrementAndGet();
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        List<Future<Integer>> followers = new ArrayList<>();
+        for (int i = 1; i < CALLERS; i++) {
+            followers.add(callers.submit(() -> flight.execute("dashboard", loads::incrementAndGet)));
+        }
+        Thread.sleep(50);
+        release.countDown();
+
+        assertEquals(1, leader.get(5, TimeUnit.SECONDS));
+        for (Future<Integer> follower : followers) {
+            assertEquals(1, follower.get(5, TimeUnit.SECONDS));
+        }
+        assertEquals(1, loads.get());
+    }
+
+    @Test
+    void failureReachesEveryWaitingCaller() throws Exception {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<Integer> leader = callers.submit(() -> flight.execute("dashboard", () -> {
+            started.countDown();
+            await(release);
+            throw new IllegalStateException("database down");
+        }));
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+        List<Future<Integer>> followers = new ArrayList<>();
+        for (int i = 1; i < CALLERS; i++) {
+            followers.add(callers.submit(() -> flight.execute("dashboard", () -> 42)));
+        }
+        Thread.sleep(50);
+        release.countDown();
+
+        followers.add(leader);
+        for (Future<Integer> caller : followers) {
+            ExecutionException e = assertThrows(ExecutionException.class, () -> caller.get(5, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, e.getCause());
+            assertEquals("database down", e.getCause().getMessage());
+        }
+    }
+
+    @Test
+    void nothingIsCachedOnceTheComputationFinishes() {
+        SingleFlight<String, Integer> flight = new SingleFlight<>();
+        AtomicInteger loads = new AtomicInteger();
+
+        flight.execute("dashboard", loads::incrementAndGet);
+        assertEquals(2, flight.execute("dashboard", loads::incrementAndGet));
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}